@@ -0,0 +1,34 @@
+package com.semanticshop.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de los benchmarks: acepta los mismos argumentos que el runner de JMH
+ * (filtro de benchmarks, -p escala=10000, -f, -wi, ...) y agrega siempre el profiler de GC
+ * para reportar la tasa de asignación, además de guardar los resultados en JSON.
+ *
+ * <pre>
+ * mvn -Pbenchmarks compile exec:exec -Djmh.args="Servicios -p escala=base,10000"
+ * </pre>
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opciones = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-resultados.json")
+                .build();
+
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,158 @@
+package com.semanticshop.benchmark;
+
+import com.semanticshop.dto.BusquedaProductosRequest;
+import com.semanticshop.dto.ProductoDTO;
+import com.semanticshop.model.Carrito;
+import com.semanticshop.model.Usuario;
+import com.semanticshop.repository.CarritoRepository;
+import com.semanticshop.repository.InventarioRepository;
+import com.semanticshop.repository.UsuarioRepository;
+import com.semanticshop.service.*;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Servicios reales armados sin Spring ni base de datos para los benchmarks.
+ * La ontología se carga según {@code escala} (la base, o una generada con
+ * {@link GeneradorDatosSinteticos} con esa cantidad de productos); los repositorios JPA se reemplazan
+ * por proxies en memoria que devuelven un usuario y un carrito fijos.
+ */
+@State(Scope.Benchmark)
+public class EstadoTienda {
+
+    static final String NAMESPACE = "http://www.semanticshop.com/ontology#";
+    static final long SEMILLA = 42;
+
+    @Param({"base", "10000", "100000"})
+    public String escala;
+
+    OntologyService ontologyService;
+    ProductoService productoService;
+    BusquedaProductoService busquedaService;
+    RecomendacionService recomendacionService;
+    CarritoService carritoService;
+
+    Usuario usuario;
+    List<String> idsProductos;
+    BusquedaProductosRequest busquedaTexto;
+    BusquedaProductosRequest busquedaFiltros;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws Exception {
+        // Los servicios registran cada llamada; en un benchmark eso solo mide el logging
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.ERROR);
+
+        // Caché de resultados SPARQL desactivada (peso 0): los benchmarks miden la ejecución
+        ontologyService = new OntologyService(new DefaultResourceLoader(), new CacheResultadosSparql(0));
+        asignar(ontologyService, "ontologyPath", obtenerRutaOntologia(escala));
+        asignar(ontologyService, "namespace", NAMESPACE);
+        asignar(ontologyService, "cambiosEntreReconstrucciones", 500L);
+        ontologyService.initialize();
+
+        productoService = new ProductoService(ontologyService);
+        InventarioService inventarioService = new InventarioService(
+                repositorio(InventarioRepository.class, "findAll", List.of()));
+        busquedaService = new BusquedaProductoService(productoService, inventarioService);
+
+        List<ProductoDTO> productos = productoService.getAllProductos();
+        idsProductos = productos.stream().map(ProductoDTO::getId).limit(5).toList();
+
+        usuario = Usuario.builder()
+                .id(1L)
+                .username("benchmark")
+                .clienteIdOntologia("ClienteAna")
+                .marcaPreferida("Apple")
+                .sistemaOperativoPreferido("iOS")
+                .rangoPrecioMin(100.0)
+                .rangoPrecioMax(1500.0)
+                .build();
+
+        List<Carrito> carrito = idsProductos.stream()
+                .map(id -> Carrito.builder().usuario(usuario).productoId(id).fechaAgregado(LocalDateTime.now()).build())
+                .toList();
+
+        recomendacionService = new RecomendacionService(ontologyService, productoService,
+                repositorio(UsuarioRepository.class, "findById", Optional.of(usuario)), inventarioService);
+        carritoService = new CarritoService(
+                repositorio(CarritoRepository.class, "findByUsuarioOrderByFechaAgregadoDesc", carrito),
+                productoService,
+                inventarioService);
+
+        busquedaTexto = BusquedaProductosRequest.builder().q("iphone").build();
+        busquedaFiltros = BusquedaProductosRequest.builder()
+                .marca("Apple")
+                .precioMin(200.0)
+                .precioMax(1200.0)
+                .disponible(true)
+                .ordenarPor("precio")
+                .direccion("desc")
+                .build();
+
+        // El primer acceso construye catálogo e índices; se excluye de las mediciones
+        busquedaService.buscarProductos(busquedaTexto);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        ontologyService.cleanup();
+    }
+
+    /**
+     * Ruta (para el ResourceLoader) de la ontología con la escala pedida; las generadas
+     * quedan en el directorio temporal y se reutilizan entre forks
+     */
+    private static String obtenerRutaOntologia(String escala) throws Exception {
+        if ("base".equals(escala)) {
+            return "classpath:ontology/semanticshop.owl";
+        }
+
+        int productos = Integer.parseInt(escala);
+        File destino = new File(System.getProperty("java.io.tmpdir"), "semanticshop-sint-" + productos + ".owl");
+        if (!destino.exists()) {
+            File temporal = new File(destino.getPath() + ".tmp");
+            GeneradorDatosSinteticos.Configuracion config = new GeneradorDatosSinteticos.Configuracion(
+                    productos, Math.max(1, productos / 4), 3, SEMILLA, 1_000_000L, temporal.getParentFile().toPath());
+            new GeneradorDatosSinteticos(config).generarOntologia(temporal.toPath());
+            if (!temporal.renameTo(destino)) {
+                throw new IllegalStateException("No se pudo escribir " + destino);
+            }
+        }
+        return destino.toURI().toString();
+    }
+
+    private static void asignar(Object destino, String campo, Object valor) {
+        Field field = ReflectionUtils.findField(destino.getClass(), campo);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, destino, valor);
+    }
+
+    /**
+     * Repositorio en memoria que solo responde el método indicado
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T repositorio(Class<T> tipo, String metodo, Object resultado) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, m, args) -> {
+            if (m.getName().equals(metodo)) {
+                return resultado;
+            }
+            if (m.getDeclaringClass() == Object.class) {
+                return switch (m.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> tipo.getSimpleName() + "EnMemoria";
+                };
+            }
+            throw new UnsupportedOperationException(m.getName());
+        });
+    }
+}
@@ -0,0 +1,447 @@
+package com.semanticshop.benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Generador determinista de datos sintéticos para pruebas de carga.
+ * <p>
+ * Produce, a partir de una semilla, una ontología escalada (la ontología base más productos de todas
+ * las subclases de Producto con marca, características, categoría y aristas esCompatibleCon, y clientes
+ * con preferencias y pedidos enlazados por realizoPedido) y las filas JPA equivalentes de usuarios,
+ * pedidos, detalle_pedido y carrito en CSV, junto con un script {@code cargar.sql} para psql.
+ * <p>
+ * Todo se escribe en streaming: cada producto y cliente se deriva de un generador aleatorio propio
+ * sembrado con (semilla, índice), así que no hace falta mantener el catálogo en memoria para
+ * referenciarlo desde los pedidos y la misma semilla produce siempre los mismos archivos.
+ *
+ * <pre>
+ * mvn -Pbenchmarks compile exec:java@generar-datos \
+ *     -Ddatos.args="--productos=2000 --clientes=600 --pedidos-por-cliente=3 --semilla=42 --salida=target/datos-sinteticos"
+ * </pre>
+ */
+public final class GeneradorDatosSinteticos {
+
+    static final String NAMESPACE = "http://www.semanticshop.com/ontology#";
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+    private static final String RECURSO_BASE = "ontology/semanticshop.owl";
+
+    // BCrypt de "password" calculado una vez: codificarlo en cada corrida cambiaría la sal y la salida
+    private static final String PASSWORD_HASH = "$2a$10$Mo8bMvY6MakpD9TPNLvzHu2q7Tjvv2tTgAD7lmRjKX19XpHWEgPki";
+
+    private static final DateTimeFormatter FECHA = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final LocalDateTime FECHA_REFERENCIA = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    // Sal por tipo de entidad para que productos, clientes y pedidos no compartan secuencia aleatoria
+    private static final long SAL_PRODUCTO = 1;
+    private static final long SAL_COMPATIBLES = 2;
+    private static final long SAL_CLIENTE = 3;
+    private static final long SAL_PEDIDOS = 4;
+
+    /**
+     * Parámetros de generación
+     *
+     * @param idInicial primer id de las filas JPA, para no chocar con los datos existentes
+     */
+    public record Configuracion(int productos, int clientes, int pedidosPorCliente, long semilla,
+                                long idInicial, Path salida) {
+
+        public static Configuracion desdeArgumentos(String[] args) {
+            Map<String, String> valores = new HashMap<>();
+            for (String arg : args) {
+                String[] partes = arg.replaceFirst("^--", "").split("=", 2);
+                valores.put(partes[0], partes.length > 1 ? partes[1] : "true");
+            }
+            return new Configuracion(
+                    Integer.parseInt(valores.getOrDefault("productos", "2000")),
+                    Integer.parseInt(valores.getOrDefault("clientes", "600")),
+                    Integer.parseInt(valores.getOrDefault("pedidos-por-cliente", "3")),
+                    Long.parseLong(valores.getOrDefault("semilla", "42")),
+                    Long.parseLong(valores.getOrDefault("id-inicial", "1000000")),
+                    Paths.get(valores.getOrDefault("salida", "target/datos-sinteticos")));
+        }
+    }
+
+    /**
+     * Subclase hoja de Producto con los valores plausibles para sus instancias
+     */
+    private record TipoProducto(String clase, String[] marcas, double precioMin, double precioMax,
+                                String categoria, boolean accesorio) {
+    }
+
+    private static final TipoProducto[] TIPOS = {
+            new TipoProducto("Smartphone", new String[]{"Apple", "Samsung", "Google"}, 199, 1399, "CategoriaSmartphones", false),
+            new TipoProducto("Tablet", new String[]{"Apple", "Samsung"}, 249, 1299, null, false),
+            new TipoProducto("Laptop", new String[]{"Apple", "Dell", "HP"}, 449, 2999, "CategoriaLaptops", false),
+            new TipoProducto("Computadora_Escritorio", new String[]{"Dell", "HP"}, 499, 2499, null, false),
+            new TipoProducto("Monitor", new String[]{"Samsung", "Dell", "HP"}, 129, 899, "CategoriaAccesorios", true),
+            new TipoProducto("Mouse", new String[]{"Logitech", "Generico"}, 9, 149, "CategoriaAccesorios", true),
+            new TipoProducto("Teclado", new String[]{"Keychron", "Logitech", "Generico"}, 19, 229, "CategoriaAccesorios", true),
+            new TipoProducto("Audifonos", new String[]{"Apple", "Sony", "Samsung"}, 29, 549, "CategoriaAccesorios", true),
+            new TipoProducto("Cable", new String[]{"Generico"}, 5, 39, "CategoriaAccesorios", true),
+            new TipoProducto("Cargador", new String[]{"Generico", "Samsung", "Apple"}, 12, 79, "CategoriaAccesorios", true),
+    };
+
+    private static final String[] NOMBRES = {"Ana", "Carlos", "Juan", "Laura", "Maria", "Pedro", "Lucia",
+            "Diego", "Sofia", "Miguel", "Valeria", "Jorge", "Camila", "Andres", "Paula", "Luis"};
+    private static final String[] APELLIDOS = {"Martinez", "Rodriguez", "Perez", "Gomez", "Lopez", "Diaz",
+            "Torres", "Ramirez", "Flores", "Castro", "Vargas", "Rojas", "Mendoza", "Silva"};
+    private static final String[] MARCAS = {"Apple", "Samsung", "Google", "Dell", "HP", "Sony", "Logitech", "Keychron"};
+    private static final String[] SISTEMAS = {"iOS", "Android", "Windows", "MacOS"};
+
+    // Estados de pedido (EstadoPedido) con su peso relativo
+    private static final String[] ESTADOS = {"ENTREGADO", "ENVIADO", "PROCESANDO", "PENDIENTE", "CANCELADO"};
+    private static final String[] ESTADOS_ONTOLOGIA = {"Entregado", "Enviado", "Procesando", "Pendiente", "Cancelado"};
+    private static final int[] PESOS_ESTADO = {55, 15, 10, 12, 8};
+
+    private final Configuracion config;
+
+    public GeneradorDatosSinteticos(Configuracion config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Configuracion config = Configuracion.desdeArgumentos(args);
+        long inicio = System.currentTimeMillis();
+        new GeneradorDatosSinteticos(config).generar();
+        System.out.printf("Datos sintéticos generados en %s (%d productos, %d clientes, semilla %d) en %d ms%n",
+                config.salida().toAbsolutePath(), config.productos(), config.clientes(), config.semilla(),
+                System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Genera la ontología escalada y los CSV de base de datos en el directorio de salida
+     */
+    public void generar() throws IOException {
+        Files.createDirectories(config.salida());
+        try (Writer owl = abrir("semanticshop.owl");
+             Writer usuarios = abrir("usuarios.csv");
+             Writer pedidos = abrir("pedidos.csv");
+             Writer detalles = abrir("detalle_pedido.csv");
+             Writer carrito = abrir("carrito.csv")) {
+
+            usuarios.write("id,username,password,email,nombre_completo,role,cliente_id_ontologia,fecha_registro,"
+                    + "activo,marca_preferida,sistema_operativo_preferido,rango_precio_min,rango_precio_max\n");
+            pedidos.write("id,usuario_id,fecha_pedido,estado,total,direccion_envio,notas,fecha_actualizacion\n");
+            detalles.write("id,pedido_id,producto_id,producto_nombre,producto_marca,producto_categoria,"
+                    + "cantidad,precio_unitario,subtotal\n");
+            carrito.write("id,usuario_id,producto_id,cantidad,fecha_agregado\n");
+
+            copiarOntologiaBase(owl);
+            escribirProductos(owl);
+
+            long[] ids = {config.idInicial(), config.idInicial(), config.idInicial()};
+            for (int k = 0; k < config.clientes(); k++) {
+                escribirCliente(k, PASSWORD_HASH, owl, usuarios, pedidos, detalles, carrito, ids);
+            }
+
+            owl.write("</rdf:RDF>\n");
+        }
+
+        escribirScriptCarga();
+    }
+
+    /**
+     * Genera solo la ontología escalada en {@code destino} (usado por los benchmarks)
+     */
+    public void generarOntologia(Path destino) throws IOException {
+        Files.createDirectories(destino.toAbsolutePath().getParent());
+        try (Writer owl = Files.newBufferedWriter(destino, StandardCharsets.UTF_8);
+             Writer descarte = Writer.nullWriter()) {
+            copiarOntologiaBase(owl);
+            escribirProductos(owl);
+            long[] ids = {config.idInicial(), config.idInicial(), config.idInicial()};
+            for (int k = 0; k < config.clientes(); k++) {
+                escribirCliente(k, "", owl, descarte, descarte, descarte, descarte, ids);
+            }
+            owl.write("</rdf:RDF>\n");
+        }
+    }
+
+    // ========== PRODUCTOS ==========
+
+    private record ProductoSintetico(String id, TipoProducto tipo, String marca, String conector,
+                                     String sistema, String nombre, double precio, int stock) {
+    }
+
+    /**
+     * Producto i derivado solo de (semilla, i): se puede recalcular desde cualquier pedido
+     */
+    private ProductoSintetico producto(int i) {
+        SplittableRandom r = aleatorio(SAL_PRODUCTO, i);
+        TipoProducto tipo = TIPOS[r.nextInt(TIPOS.length)];
+        String marca = tipo.marcas()[r.nextInt(tipo.marcas().length)];
+
+        String conector;
+        if (tipo.clase().equals("Mouse") || tipo.clase().equals("Teclado")) {
+            conector = r.nextBoolean() ? "USBA" : "USBC";
+        } else if (marca.equals("Apple") || tipo.clase().equals("Cable") || tipo.clase().equals("Cargador")) {
+            conector = r.nextInt(4) == 0 ? "Lightning" : "USBC";
+        } else {
+            conector = "USBC";
+        }
+
+        String sistema = switch (tipo.clase()) {
+            case "Smartphone", "Tablet" -> marca.equals("Apple") ? "iOS" : "Android";
+            case "Laptop" -> marca.equals("Apple") ? "MacOS" : "Windows";
+            case "Computadora_Escritorio" -> "Windows";
+            default -> null;
+        };
+
+        double precio = Math.round((tipo.precioMin() + r.nextDouble() * (tipo.precioMax() - tipo.precioMin())) * 100) / 100.0;
+        int stock = r.nextInt(10) == 0 ? 0 : 1 + r.nextInt(120);
+        String nombre = marca + " " + tipo.clase().replace('_', ' ') + " " + (1000 + i);
+
+        return new ProductoSintetico("ProductoSint" + i, tipo, marca, conector, sistema, nombre, precio, stock);
+    }
+
+    private void escribirProductos(Writer owl) throws IOException {
+        for (int i = 0; i < config.productos(); i++) {
+            ProductoSintetico p = producto(i);
+            List<String> clases = new ArrayList<>(List.of(p.tipo().clase()));
+            if (p.tipo().clase().equals("Laptop")) {
+                clases.add(p.precio() < 800 ? "LaptopGamaBaja" : p.precio() < 1500 ? "LaptopGamaMedia" : "LaptopGamaAlta");
+            }
+
+            abrirIndividuo(owl, p.id(), clases);
+            if (p.tipo().categoria() != null) {
+                objeto(owl, "perteneceACategoria", p.tipo().categoria());
+            }
+            objeto(owl, "tieneCaracteristica", p.conector());
+            if (p.sistema() != null) {
+                objeto(owl, "tieneCaracteristica", p.sistema());
+            }
+            objeto(owl, "tieneMarca", p.marca());
+            if (p.tipo().accesorio()) {
+                for (String compatible : compatibles(i, p)) {
+                    objeto(owl, "esCompatibleCon", compatible);
+                }
+            }
+            dato(owl, "nombre", p.nombre(), null);
+            dato(owl, "precio", formatearPrecio(p.precio()), "float");
+            dato(owl, "stock", Integer.toString(p.stock()), "integer");
+            cerrarIndividuo(owl);
+        }
+    }
+
+    /**
+     * Hasta tres dispositivos (no accesorios) con el mismo conector que el accesorio i
+     */
+    private List<String> compatibles(int i, ProductoSintetico accesorio) {
+        SplittableRandom r = aleatorio(SAL_COMPATIBLES, i);
+        Set<String> resultado = new LinkedHashSet<>();
+        for (int intento = 0; intento < 12 && resultado.size() < 3; intento++) {
+            int j = r.nextInt(config.productos());
+            ProductoSintetico candidato = producto(j);
+            if (j != i && !candidato.tipo().accesorio() && candidato.conector().equals(accesorio.conector())) {
+                resultado.add(candidato.id());
+            }
+        }
+        return new ArrayList<>(resultado);
+    }
+
+    // ========== CLIENTES, PEDIDOS Y CARRITO ==========
+
+    private void escribirCliente(int k, String passwordHash, Writer owl, Writer usuarios, Writer pedidos,
+                                 Writer detalles, Writer carrito, long[] ids) throws IOException {
+        SplittableRandom r = aleatorio(SAL_CLIENTE, k);
+        String username = "sint_" + k;
+        String clienteId = "Cliente_" + username;
+        String nombre = NOMBRES[r.nextInt(NOMBRES.length)] + " " + APELLIDOS[r.nextInt(APELLIDOS.length)];
+        String email = username + "@semanticshop.test";
+        String marca = MARCAS[r.nextInt(MARCAS.length)];
+        String sistema = SISTEMAS[r.nextInt(SISTEMAS.length)];
+        double precioMin = 50 * r.nextInt(10);
+        double precioMax = precioMin + 300 + 100 * r.nextInt(20);
+        LocalDateTime registro = FECHA_REFERENCIA.minusDays(365 + r.nextInt(365));
+
+        long usuarioId = config.idInicial() + k;
+        fila(usuarios, usuarioId, username, passwordHash, email, nombre, "USER", clienteId, registro.format(FECHA),
+                true, marca, sistema, precioMin, precioMax);
+
+        // Pedidos: mismos productos y montos en la ontología y en las tablas JPA
+        SplittableRandom rp = aleatorio(SAL_PEDIDOS, k);
+        int cantidadPedidos = config.pedidosPorCliente() == 0 ? 0 : rp.nextInt(2 * config.pedidosPorCliente() + 1);
+        List<String> pedidosOntologia = new ArrayList<>(cantidadPedidos);
+
+        for (int n = 0; n < cantidadPedidos; n++) {
+            long pedidoId = ids[0]++;
+            String pedidoOntologia = "PedidoSint" + pedidoId;
+            pedidosOntologia.add(pedidoOntologia);
+
+            int estado = elegirEstado(rp);
+            LocalDateTime fecha = registro.plusMinutes(rp.nextInt(525_600));
+            int lineas = 1 + rp.nextInt(4);
+            double total = 0;
+            int unidades = 0;
+            Set<String> contenidos = new LinkedHashSet<>();
+
+            for (int l = 0; l < lineas; l++) {
+                ProductoSintetico p = producto(rp.nextInt(config.productos()));
+                if (!contenidos.add(p.id())) {
+                    continue;
+                }
+                int cantidad = 1 + rp.nextInt(3);
+                double subtotal = Math.round(cantidad * p.precio() * 100) / 100.0;
+                total += subtotal;
+                unidades += cantidad;
+                fila(detalles, ids[1]++, pedidoId, p.id(), p.nombre(), p.marca(),
+                        p.tipo().categoria() != null ? p.tipo().categoria() : p.tipo().clase(),
+                        cantidad, p.precio(), subtotal);
+            }
+            total = Math.round(total * 100) / 100.0;
+
+            fila(pedidos, pedidoId, usuarioId, fecha.format(FECHA), ESTADOS[estado], total,
+                    "Calle Sintética " + (100 + k), "Pedido sintético", fecha.format(FECHA));
+
+            abrirIndividuo(owl, pedidoOntologia, List.of("Pedido"));
+            for (String contenido : contenidos) {
+                objeto(owl, "contieneProducto", contenido);
+            }
+            dato(owl, "cantidadProducto", Integer.toString(unidades), "integer");
+            dato(owl, "estadoPedido", ESTADOS_ONTOLOGIA[estado], null);
+            dato(owl, "fechaPedido", fecha.format(FECHA), "dateTime");
+            dato(owl, "montoTotal", formatearPrecio(total), "float");
+            cerrarIndividuo(owl);
+        }
+
+        abrirIndividuo(owl, clienteId, List.of("Cliente"));
+        objeto(owl, "tieneMarcaPreferida", marca);
+        objeto(owl, "tienePreferencia", sistema);
+        for (String pedido : pedidosOntologia) {
+            objeto(owl, "realizoPedido", pedido);
+        }
+        dato(owl, "email", email, null);
+        dato(owl, "nombre", nombre, null);
+        cerrarIndividuo(owl);
+
+        // Carrito abierto en aproximadamente un tercio de los clientes
+        if (r.nextInt(3) == 0) {
+            Set<String> enCarrito = new HashSet<>();
+            int items = 1 + r.nextInt(3);
+            for (int c = 0; c < items; c++) {
+                String productoId = producto(r.nextInt(config.productos())).id();
+                if (enCarrito.add(productoId)) {
+                    fila(carrito, ids[2]++, usuarioId, productoId, 1 + r.nextInt(2),
+                            FECHA_REFERENCIA.minusHours(r.nextInt(720)).format(FECHA));
+                }
+            }
+        }
+    }
+
+    private static int elegirEstado(SplittableRandom r) {
+        int total = Arrays.stream(PESOS_ESTADO).sum();
+        int valor = r.nextInt(total);
+        for (int i = 0; i < PESOS_ESTADO.length; i++) {
+            valor -= PESOS_ESTADO[i];
+            if (valor < 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    // ========== ESCRITURA ==========
+
+    private SplittableRandom aleatorio(long sal, long indice) {
+        return new SplittableRandom(config.semilla() * 0x9E3779B97F4A7C15L + sal * 0xBF58476D1CE4E5B9L + indice);
+    }
+
+    private Writer abrir(String archivo) throws IOException {
+        return Files.newBufferedWriter(config.salida().resolve(archivo), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copia la ontología base (TBox e individuos de referencia) sin la etiqueta de cierre
+     */
+    private static void copiarOntologiaBase(Writer owl) throws IOException {
+        InputStream entrada = GeneradorDatosSinteticos.class.getClassLoader().getResourceAsStream(RECURSO_BASE);
+        if (entrada == null) {
+            throw new FileNotFoundException(RECURSO_BASE);
+        }
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                if (linea.trim().equals("</rdf:RDF>")) {
+                    continue;
+                }
+                owl.write(linea);
+                owl.write('\n');
+            }
+        }
+        owl.write("\n    <!-- Individuos sintéticos -->\n\n");
+    }
+
+    private static void abrirIndividuo(Writer owl, String id, List<String> clases) throws IOException {
+        owl.write("    <owl:NamedIndividual rdf:about=\"" + NAMESPACE + id + "\">\n");
+        for (String clase : clases) {
+            owl.write("        <rdf:type rdf:resource=\"" + NAMESPACE + clase + "\"/>\n");
+        }
+    }
+
+    private static void objeto(Writer owl, String propiedad, String individuo) throws IOException {
+        owl.write("        <" + propiedad + " rdf:resource=\"" + NAMESPACE + individuo + "\"/>\n");
+    }
+
+    private static void dato(Writer owl, String propiedad, String valor, String tipoXsd) throws IOException {
+        String tipo = tipoXsd != null ? " rdf:datatype=\"" + XSD + tipoXsd + "\"" : "";
+        owl.write("        <" + propiedad + tipo + ">" + escaparXml(valor) + "</" + propiedad + ">\n");
+    }
+
+    private static void cerrarIndividuo(Writer owl) throws IOException {
+        owl.write("    </owl:NamedIndividual>\n");
+    }
+
+    private static String escaparXml(String valor) {
+        return valor.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static String formatearPrecio(double valor) {
+        return String.format(Locale.ROOT, "%.2f", valor);
+    }
+
+    private static void fila(Writer csv, Object... valores) throws IOException {
+        StringBuilder linea = new StringBuilder();
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                linea.append(',');
+            }
+            Object valor = valores[i];
+            String texto = valor instanceof Double d ? formatearPrecio(d) : String.valueOf(valor);
+            if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0) {
+                texto = '"' + texto.replace("\"", "\"\"") + '"';
+            }
+            linea.append(texto);
+        }
+        csv.write(linea.append('\n').toString());
+    }
+
+    /**
+     * Script para psql: carga los CSV y ajusta las secuencias IDENTITY
+     */
+    private void escribirScriptCarga() throws IOException {
+        try (Writer sql = abrir("cargar.sql")) {
+            sql.write("-- Generado con semilla " + config.semilla() + ". Ejecutar desde este directorio: psql -f cargar.sql\n");
+            sql.write("BEGIN;\n");
+            sql.write("\\copy usuarios(id,username,password,email,nombre_completo,role,cliente_id_ontologia,fecha_registro,"
+                    + "activo,marca_preferida,sistema_operativo_preferido,rango_precio_min,rango_precio_max) "
+                    + "FROM 'usuarios.csv' WITH (FORMAT csv, HEADER true)\n");
+            sql.write("\\copy pedidos(id,usuario_id,fecha_pedido,estado,total,direccion_envio,notas,fecha_actualizacion) "
+                    + "FROM 'pedidos.csv' WITH (FORMAT csv, HEADER true)\n");
+            sql.write("\\copy detalle_pedido(id,pedido_id,producto_id,producto_nombre,producto_marca,producto_categoria,"
+                    + "cantidad,precio_unitario,subtotal) FROM 'detalle_pedido.csv' WITH (FORMAT csv, HEADER true)\n");
+            sql.write("\\copy carrito(id,usuario_id,producto_id,cantidad,fecha_agregado) "
+                    + "FROM 'carrito.csv' WITH (FORMAT csv, HEADER true)\n");
+            for (String tabla : List.of("usuarios", "pedidos", "detalle_pedido", "carrito")) {
+                sql.write("SELECT setval(pg_get_serial_sequence('" + tabla + "', 'id'), (SELECT MAX(id) FROM " + tabla + "));\n");
+            }
+            sql.write("COMMIT;\n");
+        }
+    }
+}
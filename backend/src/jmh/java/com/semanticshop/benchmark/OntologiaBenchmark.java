@@ -0,0 +1,61 @@
+package com.semanticshop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas SPARQL sobre el modelo Jena y reconstrucción completa del modelo desde OWL
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class OntologiaBenchmark {
+
+    private static final String PREFIJOS = """
+            PREFIX : <http://www.semanticshop.com/ontology#>
+            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            """;
+
+    private static final String PRODUCTOS_POR_MARCA = PREFIJOS + """
+            SELECT ?producto ?precio WHERE {
+                ?producto :tieneMarca :Apple ;
+                          :precio ?precio .
+            }
+            ORDER BY ?precio
+            """;
+
+    private static final String CLIENTES_Y_PREFERENCIAS = PREFIJOS + """
+            SELECT ?cliente ?marca WHERE {
+                ?cliente rdf:type :Cliente .
+                OPTIONAL { ?cliente :tieneMarcaPreferida ?marca }
+            }
+            LIMIT 100
+            """;
+
+    @Benchmark
+    public List<Map<String, String>> sparqlProductosPorMarca(EstadoTienda estado) {
+        return estado.ontologyService.executeSparqlQuery(PRODUCTOS_POR_MARCA);
+    }
+
+    @Benchmark
+    public List<Map<String, String>> sparqlClientesConOptional(EstadoTienda estado) {
+        return estado.ontologyService.executeSparqlQuery(CLIENTES_Y_PREFERENCIAS);
+    }
+
+    /**
+     * Serializa la ontología completa y reconstruye el modelo Jena; es segundos por operación
+     * en las escalas grandes, así que se mide por tiempo de cada llamada
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public void reconstruccionModeloJena(EstadoTienda estado) {
+        estado.ontologyService.syncJenaModelFromOWL();
+    }
+}
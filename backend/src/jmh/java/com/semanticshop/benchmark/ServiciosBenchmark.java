@@ -0,0 +1,51 @@
+package com.semanticshop.benchmark;
+
+import com.semanticshop.dto.BusquedaProductosResponse;
+import com.semanticshop.dto.ProductoDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminos calientes de lectura expuestos por la API: catálogo, búsqueda,
+ * recomendaciones y verificación de compatibilidad del carrito
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ServiciosBenchmark {
+
+    @Benchmark
+    public List<ProductoDTO> catalogoCompleto(EstadoTienda estado) {
+        return estado.productoService.getAllProductos();
+    }
+
+    @Benchmark
+    public Optional<ProductoDTO> productoPorId(EstadoTienda estado) {
+        return estado.productoService.getProductoById(estado.idsProductos.get(0));
+    }
+
+    @Benchmark
+    public BusquedaProductosResponse busquedaTexto(EstadoTienda estado) {
+        return estado.busquedaService.buscarProductos(estado.busquedaTexto);
+    }
+
+    @Benchmark
+    public BusquedaProductosResponse busquedaConFiltros(EstadoTienda estado) {
+        return estado.busquedaService.buscarProductos(estado.busquedaFiltros);
+    }
+
+    @Benchmark
+    public List<ProductoDTO> recomendacionesPersonalizadas(EstadoTienda estado) {
+        return estado.recomendacionService.getRecomendacionesPersonalizadas(estado.usuario.getId());
+    }
+
+    @Benchmark
+    public List<String> compatibilidadCarrito(EstadoTienda estado) {
+        return estado.carritoService.verificarCompatibilidad(estado.usuario);
+    }
+}
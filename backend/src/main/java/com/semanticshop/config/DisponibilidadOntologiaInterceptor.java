@@ -0,0 +1,56 @@
+package com.semanticshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semanticshop.service.OntologyService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Responde 503 con Retry-After en los endpoints que necesitan la ontología mientras
+ * se inicializa en segundo plano, en vez de dejar la petición esperando a HermiT.
+ * Si la inicialización falló responde 500 con el error y sin Retry-After: no se va a recuperar sola
+ */
+@Component
+@RequiredArgsConstructor
+public class DisponibilidadOntologiaInterceptor implements HandlerInterceptor {
+
+    private final OntologyService ontologyService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ontology.inicializacion.reintentar-segundos:5}")
+    private int reintentarSegundos;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (ontologyService.isLista() || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true;
+        }
+
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        if (ontologyService.isFallida()) {
+            cuerpo.put("error", "La ontología no pudo inicializarse; el servicio requiere un reinicio");
+            cuerpo.put("inicializacion", ontologyService.getEstadoInicializacion());
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        } else {
+            cuerpo.put("error", "La ontología se está inicializando, intente nuevamente en unos segundos");
+            cuerpo.put("inicializacion", ontologyService.getEstadoInicializacion());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(reintentarSegundos));
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), cuerpo);
+        return false;
+    }
+}
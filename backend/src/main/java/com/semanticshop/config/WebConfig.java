@@ -0,0 +1,35 @@
+package com.semanticshop.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración de Spring MVC
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final DisponibilidadOntologiaInterceptor disponibilidadOntologia;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Endpoints que leen la ontología; auth, pedidos y la lectura del carrito atienden siempre
+        registry.addInterceptor(disponibilidadOntologia)
+                .addPathPatterns(
+                        "/api/productos/**",
+                        "/api/recomendaciones/**",
+                        "/api/sparql/**",
+                        "/api/analisis/**",
+                        "/api/ontology/**",
+                        "/api/carrito/agregar",
+                        "/api/carrito/actualizar/**",
+                        "/api/carrito/total",
+                        "/api/carrito/verificar-stock",
+                        "/api/carrito/verificar-compatibilidad",
+                        "/api/pedidos/crear")
+                .excludePathPatterns("/api/ontology/estado");
+    }
+}
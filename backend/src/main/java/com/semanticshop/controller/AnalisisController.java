@@ -1,15 +1,20 @@
 package com.semanticshop.controller;
 
+import com.semanticshop.service.GuardiaConsultasSparql;
 import com.semanticshop.service.SPARQLService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.query.QueryCancelledException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador REST para consultas SPARQL y análisis de datos
@@ -23,14 +28,26 @@ import java.util.Map;
 public class AnalisisController {
 
     private final SPARQLService sparqlService;
+    private final GuardiaConsultasSparql guardiaConsultas;
 
     @PostMapping("/sparql")
     @Operation(summary = "Ejecutar consulta SPARQL personalizada", 
                description = "Ejecuta una consulta SPARQL sobre la ontología")
-    public ResponseEntity<List<Map<String, String>>> ejecutarConsultaSPARQL(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> ejecutarConsultaSPARQL(@RequestBody Map<String, String> request) {
         String query = request.get("query");
         log.info("POST /api/analisis/sparql - Ejecutando consulta SPARQL");
-        List<Map<String, String>> resultados = sparqlService.executeQuery(query);
+        if (query == null || query.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Query no puede estar vacía"));
+        }
+
+        GuardiaConsultasSparql.Evaluacion evaluacion;
+        try {
+            evaluacion = guardiaConsultas.evaluar(query);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Error ejecutando query: " + e.getMessage()));
+        }
+        List<Map<String, String>> resultados = guardiaConsultas.ejecutar(evaluacion,
+                () -> sparqlService.executeQuery(query, guardiaConsultas.getTimeoutMs()));
         return ResponseEntity.ok(resultados);
     }
 
@@ -74,7 +91,7 @@ public class AnalisisController {
 
     @GetMapping("/productos/bajo-stock")
     @Operation(summary = "Productos con bajo stock", 
-               description = "Obtiene productos con stock por debajo del mínimo especificado")
+               description = "Obtiene productos cuyo stock de catálogo (ontología) está por debajo del mínimo especificado; no incluye reservas ni ventas del inventario")
     public ResponseEntity<List<Map<String, String>>> getProductosBajoStock(
             @RequestParam(defaultValue = "10") int stockMinimo) {
         log.info("GET /api/analisis/productos/bajo-stock?stockMinimo={}", stockMinimo);
@@ -99,4 +116,18 @@ public class AnalisisController {
         List<Map<String, String>> resultados = sparqlService.getPedidosPorEstado();
         return ResponseEntity.ok(resultados);
     }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> consultasSaturadas(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(QueryCancelledException.class)
+    public ResponseEntity<Map<String, String>> consultaExpirada(QueryCancelledException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("error", "La consulta superó el tiempo máximo de "
+                        + guardiaConsultas.getTimeoutMs() + " ms"));
+    }
 }
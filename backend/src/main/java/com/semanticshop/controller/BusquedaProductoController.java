@@ -3,6 +3,7 @@ package com.semanticshop.controller;
 import com.semanticshop.dto.BusquedaProductosRequest;
 import com.semanticshop.dto.BusquedaProductosResponse;
 import com.semanticshop.service.BusquedaProductoService;
+import com.semanticshop.service.IndiceSugerencias;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -150,13 +151,19 @@ public class BusquedaProductoController {
 
     /**
      * 5. Obtener sugerencias de autocompletado
-     * GET /api/productos/sugerencias?q=texto
+     * GET /api/productos/sugerencias?q=texto&limite=5 (limite entre 1 y 10)
      */
     @GetMapping("/sugerencias")
     public ResponseEntity<Map<String, Object>> obtenerSugerencias(
             @RequestParam String q,
             @RequestParam(defaultValue = "5") int limite) {
         
+        if (limite < 1 || limite > IndiceSugerencias.MAX_POR_NODO) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false,
+                            "error", "El límite debe estar entre 1 y " + IndiceSugerencias.MAX_POR_NODO));
+        }
+
         try {
             log.info("💡 Obteniendo sugerencias para: {}", q);
 
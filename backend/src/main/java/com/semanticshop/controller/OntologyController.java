@@ -2,6 +2,7 @@ package com.semanticshop.controller;
 
 import com.semanticshop.model.Usuario;
 import com.semanticshop.repository.UsuarioRepository;
+import com.semanticshop.service.ColaEscrituraOntologia;
 import com.semanticshop.service.OntologyService;
 import com.semanticshop.service.OntologySyncService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -9,7 +10,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.semanticweb.owlapi.model.OWLClass;
-import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -31,6 +32,7 @@ public class OntologyController {
 
     private final OntologyService ontologyService;
     private final OntologySyncService ontologySyncService;
+    private final ColaEscrituraOntologia colaEscritura;
     private final UsuarioRepository usuarioRepository;
 
     // ==================== ENDPOINTS DE VALIDACIÓN ====================
@@ -98,14 +100,17 @@ public class OntologyController {
     public ResponseEntity<List<String>> getIndividualsOfClass(@PathVariable String clase) {
         log.info("GET /api/ontology/individuos/{}", clase);
         
-        // ✅ CORREGIDO: Convertir Set<OWLNamedIndividual> a List<String>
-        Set<OWLNamedIndividual> individuals = ontologyService.getIndividualsOfClass(clase);
-        List<String> individuos = individuals.stream()
-                .map(ind -> ind.getIRI().getShortForm())
-                .sorted()
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(individuos);
+        // Nombres ya ordenados desde la realización materializada
+        return ResponseEntity.ok(ontologyService.getRealizacion().getNombresInstancias(clase));
+    }
+
+    @GetMapping("/estado")
+    @Operation(summary = "Estado de inicialización",
+               description = "Fase de carga y razonamiento de la ontología; responde aunque todavía no esté lista. "
+                       + "Devuelve 500 si la inicialización falló, para que los health checks lo detecten")
+    public ResponseEntity<Map<String, Object>> getEstadoInicializacion() {
+        HttpStatus status = ontologyService.isFallida() ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK;
+        return ResponseEntity.status(status).body(ontologyService.getEstadoInicializacion());
     }
 
     @GetMapping("/info")
@@ -213,6 +218,8 @@ public class OntologyController {
 
         String clienteId = usuario.getClienteIdOntologia();
         boolean existe = ontologySyncService.clienteExisteEnOntologia(clienteId);
+        Optional<ColaEscrituraOntologia.EstadoEscritura> escritura =
+                ontologySyncService.getEstadoSincronizacion(clienteId);
 
         Map<String, Object> response = new HashMap<>();
         
@@ -225,11 +232,21 @@ public class OntologyController {
         ));
         
         // Estado en ontología
-        response.put("ontologia", Map.of(
-            "clienteId", clienteId,
-            "existe", existe,
-            "sincronizado", existe
-        ));
+        Map<String, Object> ontologia = new HashMap<>();
+        ontologia.put("clienteId", clienteId);
+        ontologia.put("existe", existe);
+        ontologia.put("sincronizado", existe);
+        escritura.ifPresent(e -> {
+            ontologia.put("estadoEscritura", e.estado().name());
+            ontologia.put("actualizado", e.actualizado());
+            if (e.error() != null) {
+                ontologia.put("error", e.error());
+            }
+        });
+        response.put("ontologia", ontologia);
+
+        // Cola de escritura por lotes
+        response.put("colaEscritura", colaEscritura.getEstadisticas());
         
         // Preferencias
         response.put("preferencias", Map.of(
@@ -1,5 +1,6 @@
 package com.semanticshop.controller;
 
+import com.semanticshop.dto.PaginaPedidosDTO;
 import com.semanticshop.dto.PedidoDTO;
 import com.semanticshop.model.Usuario;
 import com.semanticshop.repository.UsuarioRepository;
@@ -12,7 +13,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -60,23 +60,23 @@ public class PedidoController {
     }
 
     /**
-     * 2. Obtener historial de pedidos del usuario
-     * GET /api/pedidos/mis-pedidos
+     * 2. Obtener historial de pedidos del usuario, por páginas
+     * GET /api/pedidos/mis-pedidos?estado=ENVIADO&cursor=...&tamanio=20 (estado opcional)
      */
     @GetMapping("/mis-pedidos")
-    public ResponseEntity<Map<String, Object>> obtenerMisPedidos() {
+    public ResponseEntity<Map<String, Object>> obtenerMisPedidos(
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamanio) {
         try {
             Usuario usuario = obtenerUsuarioAutenticado();
             
             log.info("📋 Obteniendo pedidos de: {}", usuario.getUsername());
             
-            List<PedidoDTO> pedidos = pedidoService.obtenerMisPedidos(usuario);
+            PaginaPedidosDTO pagina = pedidoService.obtenerMisPedidos(usuario, estado, cursor, tamanio);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
+            Map<String, Object> response = respuestaPagina(pagina);
             response.put("usuario", usuario.getUsername());
-            response.put("totalPedidos", pedidos.size());
-            response.put("pedidos", pedidos);
             
             return ResponseEntity.ok(response);
             
@@ -175,20 +175,19 @@ public class PedidoController {
     }
 
     /**
-     * 6. Obtener todos los pedidos (ADMIN)
-     * GET /api/pedidos
+     * 6. Obtener todos los pedidos (ADMIN), por páginas
+     * GET /api/pedidos?cursor=...&tamanio=20
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> obtenerTodosPedidos() {
+    public ResponseEntity<Map<String, Object>> obtenerTodosPedidos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamanio) {
         try {
             log.info("📋 Obteniendo todos los pedidos (ADMIN)");
             
-            List<PedidoDTO> pedidos = pedidoService.obtenerTodosPedidos();
+            PaginaPedidosDTO pagina = pedidoService.obtenerTodosPedidos(cursor, tamanio);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("totalPedidos", pedidos.size());
-            response.put("pedidos", pedidos);
+            Map<String, Object> response = respuestaPagina(pagina);
             
             return ResponseEntity.ok(response);
             
@@ -200,21 +199,21 @@ public class PedidoController {
     }
 
     /**
-     * 7. Obtener pedidos por estado (ADMIN)
-     * GET /api/pedidos/por-estado/{estado}
+     * 7. Obtener pedidos por estado (ADMIN), por páginas
+     * GET /api/pedidos/por-estado/{estado}?cursor=...&tamanio=20
      */
     @GetMapping("/por-estado/{estado}")
-    public ResponseEntity<Map<String, Object>> obtenerPedidosPorEstado(@PathVariable String estado) {
+    public ResponseEntity<Map<String, Object>> obtenerPedidosPorEstado(
+            @PathVariable String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamanio) {
         try {
             log.info("📋 Obteniendo pedidos por estado: {}", estado);
             
-            List<PedidoDTO> pedidos = pedidoService.obtenerPedidosPorEstado(estado);
+            PaginaPedidosDTO pagina = pedidoService.obtenerPedidosPorEstado(estado, cursor, tamanio);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
+            Map<String, Object> response = respuestaPagina(pagina);
             response.put("estado", estado);
-            response.put("totalPedidos", pedidos.size());
-            response.put("pedidos", pedidos);
             
             return ResponseEntity.ok(response);
             
@@ -277,9 +276,23 @@ public class PedidoController {
     }
 
     // ============================================
-    // MÉTODO HELPER
+    // MÉTODOS HELPER
     // ============================================
 
+    /**
+     * Respuesta común de los listados paginados; totalPedidos es la cantidad de esta página
+     */
+    private Map<String, Object> respuestaPagina(PaginaPedidosDTO pagina) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("totalPedidos", pagina.getPedidos().size());
+        response.put("pedidos", pagina.getPedidos());
+        response.put("hayMas", pagina.getHayMas());
+        response.put("siguienteCursor", pagina.getSiguienteCursor());
+        response.put("tamanioPagina", pagina.getTamanioPagina());
+        return response;
+    }
+
     private Usuario obtenerUsuarioAutenticado() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
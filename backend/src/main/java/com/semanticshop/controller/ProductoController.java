@@ -1,6 +1,7 @@
 package com.semanticshop.controller;
 
 import com.semanticshop.dto.ProductoDTO;
+import com.semanticshop.service.InventarioService;
 import com.semanticshop.service.ProductoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,6 +25,8 @@ import java.util.Map;
 public class ProductoController {
 
     private final ProductoService productoService;
+    // El stock de las respuestas sale del libro de inventario, no del valor de la ontología
+    private final InventarioService inventarioService;
 
     @GetMapping
     @Operation(summary = "Obtener todos los productos", 
@@ -31,7 +34,7 @@ public class ProductoController {
     public ResponseEntity<List<ProductoDTO>> getAllProductos() {
         log.info("GET /api/productos - Obteniendo todos los productos");
         List<ProductoDTO> productos = productoService.getAllProductos();
-        return ResponseEntity.ok(productos);
+        return ResponseEntity.ok(inventarioService.conExistencias(productos));
     }
 
     @GetMapping("/{id}")
@@ -40,6 +43,7 @@ public class ProductoController {
     public ResponseEntity<ProductoDTO> getProductoById(@PathVariable String id) {
         log.info("GET /api/productos/{} - Obteniendo producto", id);
         return productoService.getProductoById(id)
+                .map(inventarioService::conExistencias)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -50,7 +54,7 @@ public class ProductoController {
     public ResponseEntity<List<ProductoDTO>> getProductosByCategoria(@PathVariable String categoria) {
         log.info("GET /api/productos/categoria/{} - Obteniendo productos por categoría", categoria);
         List<ProductoDTO> productos = productoService.getProductosByCategoria(categoria);
-        return ResponseEntity.ok(productos);
+        return ResponseEntity.ok(inventarioService.conExistencias(productos));
     }
 
     @GetMapping("/{id}/compatibles")
@@ -59,7 +63,7 @@ public class ProductoController {
     public ResponseEntity<List<ProductoDTO>> getProductosCompatibles(@PathVariable String id) {
         log.info("GET /api/productos/{}/compatibles - Obteniendo productos compatibles", id);
         List<ProductoDTO> compatibles = productoService.getProductosCompatibles(id);
-        return ResponseEntity.ok(compatibles);
+        return ResponseEntity.ok(inventarioService.conExistencias(compatibles));
     }
 
     @GetMapping("/{id}/incompatibles")
@@ -68,7 +72,7 @@ public class ProductoController {
     public ResponseEntity<List<ProductoDTO>> getProductosIncompatibles(@PathVariable String id) {
         log.info("GET /api/productos/{}/incompatibles - Obteniendo productos incompatibles", id);
         List<ProductoDTO> incompatibles = productoService.getProductosIncompatibles(id);
-        return ResponseEntity.ok(incompatibles);
+        return ResponseEntity.ok(inventarioService.conExistencias(incompatibles));
     }
 
     @GetMapping("/compatibilidad")
@@ -5,6 +5,7 @@ import com.semanticshop.dto.ProductoDTO;
 import com.semanticshop.dto.RecomendacionDTO;
 import com.semanticshop.model.Usuario;
 import com.semanticshop.repository.UsuarioRepository;
+import com.semanticshop.service.InventarioService;
 import com.semanticshop.service.RecomendacionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,6 +30,7 @@ public class RecomendacionController {
 
     private final RecomendacionService recomendacionService;
     private final UsuarioRepository usuarioRepository;
+    private final InventarioService inventarioService;
 
     // ============================================
     // ENDPOINTS EXISTENTES (mantener compatibilidad)
@@ -53,7 +55,7 @@ public class RecomendacionController {
             response.put("success", true);
             response.put("clienteId", recomendacion.getClienteId());
             response.put("clienteNombre", recomendacion.getClienteNombre());
-            response.put("productos", recomendacion.getProductos());
+            response.put("productos", inventarioService.conExistencias(recomendacion.getProductos()));
             response.put("razon", recomendacion.getRazonRecomendacion());
             response.put("totalRecomendaciones", recomendacion.getTotalRecomendaciones());
             
@@ -133,7 +135,7 @@ public class RecomendacionController {
             response.put("success", true);
             response.put("productoId", productoId);
             response.put("totalAccesorios", accesorios.size());
-            response.put("accesorios", accesorios);
+            response.put("accesorios", inventarioService.conExistencias(accesorios));
             
             return ResponseEntity.ok(response);
             
@@ -157,7 +159,7 @@ public class RecomendacionController {
             response.put("success", true);
             response.put("clienteId", clienteId);
             response.put("totalRecomendaciones", recomendaciones.size());
-            response.put("productos", recomendaciones);
+            response.put("productos", inventarioService.conExistencias(recomendaciones));
             
             return ResponseEntity.ok(response);
             
@@ -206,7 +208,7 @@ public class RecomendacionController {
             response.put("usuario", usuario.getUsername());
             response.put("usuarioId", usuario.getId());
             response.put("totalRecomendaciones", productos.size());
-            response.put("productos", productos);
+            response.put("productos", inventarioService.conExistencias(productos));
             
             // Agregar preferencias del usuario
             Map<String, Object> preferencias = new HashMap<>();
@@ -256,7 +258,7 @@ public class RecomendacionController {
             response.put("usuario", usuario.getUsername());
             response.put("usuarioId", usuario.getId());
             response.put("totalRecomendaciones", productos.size());
-            response.put("productos", productos);
+            response.put("productos", inventarioService.conExistencias(productos));
             
             Map<String, Object> preferencias = new HashMap<>();
             preferencias.put("marcaPreferida", usuario.getMarcaPreferida());
@@ -288,7 +290,7 @@ public class RecomendacionController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("totalRecomendaciones", productos.size());
-            response.put("productos", productos);
+            response.put("productos", inventarioService.conExistencias(productos));
             response.put("mensaje", "Productos destacados del catálogo");
             
             return ResponseEntity.ok(response);
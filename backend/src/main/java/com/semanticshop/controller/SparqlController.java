@@ -1,13 +1,32 @@
 package com.semanticshop.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semanticshop.service.CacheResultadosSparql;
+import com.semanticshop.service.ConsultasSparqlPreparadas;
+import com.semanticshop.service.GuardiaConsultasSparql;
 import com.semanticshop.service.OntologyService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.vocabulary.XSD;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.Locale;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador REST para operaciones SPARQL
@@ -19,9 +38,29 @@ import java.util.*;
 @Slf4j
 public class SparqlController {
 
+    private static final String NAMESPACE = "http://www.semanticshop.com/ontology#";
+
     @Autowired
     private OntologyService ontologyService;
 
+    @Autowired
+    private ConsultasSparqlPreparadas consultasPreparadas;
+
+    @Autowired
+    private CacheResultadosSparql cacheSparql;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GuardiaConsultasSparql guardiaConsultas;
+
+    @Value("${sparql.stream.max-filas:50000}")
+    private long maxFilasStreaming;
+
+    @Value("${sparql.stream.timeout-total-ms:300000}")
+    private long timeoutTotalStreaming;
+
     /**
      * Forzar sincronización de modelos
      */
@@ -34,7 +73,7 @@ public class SparqlController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Modelos sincronizados correctamente");
-            response.put("jenaTriples", ontologyService.getJenaModel().size());
+            response.put("jenaTriples", ontologyService.getTriplesJena());
             response.put("owlIndividuals", ontologyService.getOntology().getIndividualsInSignature().size());
             
             return ResponseEntity.ok(response);
@@ -58,7 +97,10 @@ public class SparqlController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+            // Costo estimado, carril acotado y timeout: una consulta patológica no acapara el servidor
+            GuardiaConsultasSparql.Evaluacion evaluacion = guardiaConsultas.evaluar(query);
+            List<Map<String, String>> results = guardiaConsultas.ejecutar(evaluacion,
+                    () -> ontologyService.executeSparqlQuery(query, guardiaConsultas.getTimeoutMs()));
             
             Map<String, Object> response = new HashMap<>();
             response.put("query", query);
@@ -66,6 +108,8 @@ public class SparqlController {
             response.put("results", results);
             
             return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException | QueryCancelledException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Error ejecutando query: " + e.getMessage());
@@ -73,6 +117,217 @@ public class SparqlController {
         }
     }
 
+    /**
+     * Ejecutar consulta SPARQL SELECT en streaming.
+     * Las filas se escriben en la respuesta a medida que Jena las produce, con memoria constante
+     * sin importar el tamaño del resultado. {@code formato=filas} (por defecto) mantiene la forma
+     * de /query con el conteo al final; {@code formato=sparql-json} usa el formato estándar
+     * application/sparql-results+json. El resultado se corta en {@code sparql.stream.max-filas}
+     * y {@code truncated} indica si quedaron filas afuera. Como el 200 ya se envió, un error o timeout
+     * a mitad del recorrido cierra el documento igual y se informa en el campo {@code error}.
+     * La guardia solo admite la consulta: se recorre en el hilo de la respuesta asíncrona, con el
+     * timeout ad hoc hasta la primera fila y {@code sparql.stream.timeout-total-ms} para todo el
+     * recorrido, así un cliente lento no queda cortado por el límite pensado para la consulta.
+     */
+    @PostMapping("/query/stream")
+    public ResponseEntity<StreamingResponseBody> executeQueryStreaming(
+            @RequestBody Map<String, String> request,
+            @RequestParam(defaultValue = "filas") String formato) {
+        String texto = request.get("query");
+        if (texto == null || texto.trim().isEmpty()) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(cuerpoJson(Map.of("error", "Query no puede estar vacía")));
+        }
+
+        // Se parsea antes de empezar a escribir: una vez enviado el 200 ya no se puede informar un error
+        Query query;
+        GuardiaConsultasSparql.Evaluacion evaluacion;
+        try {
+            evaluacion = guardiaConsultas.evaluar(texto);
+            // Se pide una fila más que el máximo para saber si el resultado realmente se cortó
+            query = ontologyService.prepararSelect(texto, maxFilasStreaming + 1);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(cuerpoJson(Map.of("error", "Error ejecutando query: " + e.getMessage())));
+        }
+
+        boolean sparqlJson = "sparql-json".equals(formato);
+        MediaType tipo = sparqlJson ? MediaType.parseMediaType("application/sparql-results+json") : MediaType.APPLICATION_JSON;
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .body(salida -> {
+                    // Rechazar aquí todavía responde 503: nada se escribió en la salida
+                    try (GuardiaConsultasSparql.Permiso permiso = guardiaConsultas.admitir(evaluacion);
+                         JsonGenerator json = objectMapper.getFactory().createGenerator(salida)) {
+                        if (sparqlJson) {
+                            escribirSparqlJson(json, query);
+                        } else {
+                            escribirFilas(json, texto, query);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Forma de /query: {query, results: [variable → nombre corto], resultCount, truncated[, error]}
+     */
+    private void escribirFilas(JsonGenerator json, String texto, Query query) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("query", texto);
+        json.writeArrayFieldStart("results");
+        Recorrido recorrido = recorrer(query, solucion -> {
+            json.writeStartObject();
+            Iterator<String> variables = solucion.varNames();
+            while (variables.hasNext()) {
+                String variable = variables.next();
+                RDFNode nodo = solucion.get(variable);
+                if (nodo != null) {
+                    json.writeStringField(variable, ConsultasSparqlPreparadas.aTexto(nodo.asNode()));
+                }
+            }
+            json.writeEndObject();
+        });
+        json.writeEndArray();
+        json.writeNumberField("resultCount", recorrido.filas);
+        json.writeBooleanField("truncated", recorrido.truncado);
+        escribirError(json, recorrido);
+        json.writeEndObject();
+    }
+
+    /**
+     * Formato application/sparql-results+json: {head: {vars}, results: {bindings}[, error]}
+     */
+    private void escribirSparqlJson(JsonGenerator json, Query query) throws IOException {
+        json.writeStartObject();
+        json.writeObjectFieldStart("head");
+        json.writeArrayFieldStart("vars");
+        for (String variable : query.getResultVars()) {
+            json.writeString(variable);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeObjectFieldStart("results");
+        json.writeArrayFieldStart("bindings");
+        Recorrido recorrido = recorrer(query, solucion -> {
+            json.writeStartObject();
+            Iterator<String> variables = solucion.varNames();
+            while (variables.hasNext()) {
+                String variable = variables.next();
+                RDFNode nodo = solucion.get(variable);
+                if (nodo != null) {
+                    json.writeObjectFieldStart(variable);
+                    escribirTermino(json, nodo);
+                    json.writeEndObject();
+                }
+            }
+            json.writeEndObject();
+        });
+        json.writeEndArray();
+        json.writeEndObject();
+        escribirError(json, recorrido);
+        json.writeEndObject();
+    }
+
+    private static void escribirTermino(JsonGenerator json, RDFNode nodo) throws IOException {
+        if (nodo.isURIResource()) {
+            json.writeStringField("type", "uri");
+            json.writeStringField("value", nodo.asResource().getURI());
+        } else if (nodo.isLiteral()) {
+            Literal literal = nodo.asLiteral();
+            json.writeStringField("type", "literal");
+            json.writeStringField("value", literal.getLexicalForm());
+            if (!literal.getLanguage().isEmpty()) {
+                json.writeStringField("xml:lang", literal.getLanguage());
+            } else if (literal.getDatatypeURI() != null && !XSD.xstring.getURI().equals(literal.getDatatypeURI())) {
+                json.writeStringField("datatype", literal.getDatatypeURI());
+            }
+        } else {
+            json.writeStringField("type", "bnode");
+            json.writeStringField("value", nodo.asResource().getId().getLabelString());
+        }
+    }
+
+    /**
+     * Recorre hasta {@code maxFilasStreaming} soluciones; si aparece una más el resultado se marca truncado.
+     * Los errores de la consulta no se propagan, quedan en el recorrido para cerrar el documento.
+     * Los de escritura (cliente desconectado) sí, porque ya no hay a quién responder
+     */
+    private Recorrido recorrer(Query query, EscritorFila escritor) {
+        Recorrido recorrido = new Recorrido();
+        try {
+            ontologyService.recorrerSelect(query, guardiaConsultas.getTimeoutMs(), timeoutTotalStreaming, resultados -> {
+                try {
+                    while (resultados.hasNext()) {
+                        QuerySolution solucion = resultados.nextSolution();
+                        if (recorrido.filas == maxFilasStreaming) {
+                            recorrido.truncado = true;
+                            break;
+                        }
+                        escritor.escribir(solucion);
+                        recorrido.filas++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (QueryCancelledException e) {
+            recorrido.error = "La consulta superó el tiempo máximo (" + guardiaConsultas.getTimeoutMs()
+                    + " ms hasta la primera fila, " + timeoutTotalStreaming + " ms en total)";
+        } catch (RuntimeException e) {
+            recorrido.error = "Error ejecutando query: " + e.getMessage();
+        }
+        if (recorrido.error != null) {
+            log.warn("Consulta SPARQL en streaming cortada tras {} filas: {}", recorrido.filas, recorrido.error);
+        }
+        return recorrido;
+    }
+
+    private static void escribirError(JsonGenerator json, Recorrido recorrido) throws IOException {
+        if (recorrido.error != null) {
+            json.writeStringField("error", recorrido.error);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EscritorFila {
+        void escribir(QuerySolution solucion) throws IOException;
+    }
+
+    private static final class Recorrido {
+        long filas;
+        boolean truncado;
+        String error;
+    }
+
+    private StreamingResponseBody cuerpoJson(Map<String, ?> contenido) {
+        return salida -> objectMapper.writeValue(salida, contenido);
+    }
+
+    /**
+     * Carriles de consultas ad hoc saturados
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> consultasSaturadas(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Consulta cancelada por el timeout de Jena o de la guardia
+     */
+    @ExceptionHandler(QueryCancelledException.class)
+    public ResponseEntity<Map<String, String>> consultaExpirada(QueryCancelledException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "La consulta superó el tiempo máximo de "
+                        + guardiaConsultas.getTimeoutMs() + " ms"));
+    }
+
     /**
      * ✅ CORREGIDO: Obtener todos los productos (usando subclases)
      * Ya que los individuos NO están declarados directamente como Producto,
@@ -80,21 +335,7 @@ public class SparqlController {
      */
     @GetMapping("/analytics/todos-productos")
     public ResponseEntity<?> getTodosProductos() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" +
-            "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n" +
-            "\n" +
-            "SELECT DISTINCT ?producto ?tipo\n" +
-            "WHERE {\n" +
-            "  ?producto rdf:type ?tipo .\n" +
-            "  ?tipo rdfs:subClassOf* :Producto .\n" +
-            "  FILTER (?tipo != :Producto)\n" +
-            "  FILTER (!isBlank(?producto))\n" +
-            "}\n" +
-            "ORDER BY ?producto";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("todos-productos");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Todos los productos");
@@ -110,17 +351,7 @@ public class SparqlController {
      */
     @GetMapping("/analytics/productos-por-marca")
     public ResponseEntity<?> getProductosPorMarca() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?marca (COUNT(DISTINCT ?producto) as ?cantidad)\n" +
-            "WHERE {\n" +
-            "  ?producto :tieneMarca ?marca .\n" +
-            "}\n" +
-            "GROUP BY ?marca\n" +
-            "ORDER BY DESC(?cantidad)";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("productos-por-marca");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Productos por marca");
@@ -134,21 +365,7 @@ public class SparqlController {
      */
     @GetMapping("/analytics/productos-por-categoria")
     public ResponseEntity<?> getProductosPorCategoria() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" +
-            "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n" +
-            "\n" +
-            "SELECT ?categoria (COUNT(DISTINCT ?producto) as ?cantidad)\n" +
-            "WHERE {\n" +
-            "  ?producto rdf:type ?categoria .\n" +
-            "  ?categoria rdfs:subClassOf+ :Producto .\n" +
-            "  FILTER (?categoria NOT IN (:Producto, :Computadora, :Accesorio))\n" +
-            "}\n" +
-            "GROUP BY ?categoria\n" +
-            "ORDER BY DESC(?cantidad)";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("productos-por-categoria");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Productos por categoría");
@@ -162,16 +379,7 @@ public class SparqlController {
      */
     @GetMapping("/analytics/preferencias-clientes")
     public ResponseEntity<?> getPreferenciasClientes() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?cliente ?marcaPreferida ?soPreferido\n" +
-            "WHERE {\n" +
-            "  ?cliente :tieneMarcaPreferida ?marcaPreferida .\n" +
-            "  OPTIONAL { ?cliente :tienePreferencia ?soPreferido }\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("preferencias-clientes");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Preferencias de clientes");
@@ -188,19 +396,8 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
         @RequestParam(defaultValue = "0") double min,
         @RequestParam(defaultValue = "10000") double max) {
     
-    // ✅ Usar Locale.US para garantizar punto decimal
-    String query = String.format(Locale.US,
-        "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-        "\n" +
-        "SELECT ?producto ?nombre ?precio\n" +
-        "WHERE {\n" +
-        "  ?producto :precio ?precio .\n" +
-        "  OPTIONAL { ?producto :nombre ?nombre }\n" +
-        "  FILTER (?precio >= %f && ?precio <= %f)\n" +
-        "}\n" +
-        "ORDER BY ?precio", min, max);
-    
-    List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+    List<Map<String, String>> results = ejecutarAnalitica("productos-precio-rango",
+            Map.of("precioMin", min, "precioMax", max));
     
     Map<String, Object> response = new HashMap<>();
     response.put("analysis", "Productos por rango de precio");
@@ -220,15 +417,7 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/compatibilidad")
     public ResponseEntity<?> getAnalisisCompatibilidad() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?producto1 ?producto2\n" +
-            "WHERE {\n" +
-            "  ?producto1 :esCompatibleCon ?producto2 .\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("compatibilidad");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Productos compatibles");
@@ -243,15 +432,7 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/incompatibilidad")
     public ResponseEntity<?> getAnalisisIncompatibilidad() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?producto1 ?producto2\n" +
-            "WHERE {\n" +
-            "  ?producto1 :esIncompatibleCon ?producto2 .\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("incompatibilidad");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Productos incompatibles");
@@ -266,15 +447,7 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/recomendaciones-activas")
     public ResponseEntity<?> getRecomendacionesActivas() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?cliente ?producto\n" +
-            "WHERE {\n" +
-            "  ?cliente :productoRecomendado ?producto .\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("recomendaciones-activas");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Recomendaciones activas");
@@ -289,19 +462,8 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/smartphones")
     public ResponseEntity<?> getSmartphones() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" +
-            "\n" +
-            "SELECT ?producto ?nombre ?precio ?marca\n" +
-            "WHERE {\n" +
-            "  ?producto rdf:type :Smartphone .\n" +
-            "  OPTIONAL { ?producto :nombre ?nombre }\n" +
-            "  OPTIONAL { ?producto :precio ?precio }\n" +
-            "  OPTIONAL { ?producto :tieneMarca ?marca }\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("productos-de-clase",
+                Map.of("clase", NodeFactory.createURI(NAMESPACE + "Smartphone")));
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Todos los smartphones");
@@ -315,19 +477,8 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/laptops")
     public ResponseEntity<?> getLaptops() {
-        String query = 
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" +
-            "\n" +
-            "SELECT ?producto ?nombre ?precio ?marca\n" +
-            "WHERE {\n" +
-            "  ?producto rdf:type :Laptop .\n" +
-            "  OPTIONAL { ?producto :nombre ?nombre }\n" +
-            "  OPTIONAL { ?producto :precio ?precio }\n" +
-            "  OPTIONAL { ?producto :tieneMarca ?marca }\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("productos-de-clase",
+                Map.of("clase", NodeFactory.createURI(NAMESPACE + "Laptop")));
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Todos los laptops");
@@ -341,20 +492,7 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/clientes")
     public ResponseEntity<?> getClientes() {
-        String query = 
-            "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" +
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?cliente ?nombre ?email ?marca ?so\n" +
-            "WHERE {\n" +
-            "  ?cliente rdf:type :Cliente .\n" +
-            "  OPTIONAL { ?cliente :nombre ?nombre }\n" +
-            "  OPTIONAL { ?cliente :email ?email }\n" +
-            "  OPTIONAL { ?cliente :tieneMarcaPreferida ?marca }\n" +
-            "  OPTIONAL { ?cliente :tienePreferencia ?so }\n" +
-            "}";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("clientes");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Información de clientes");
@@ -368,22 +506,7 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
      */
     @GetMapping("/analytics/pedidos")
     public ResponseEntity<?> getPedidos() {
-        String query = 
-            "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" +
-            "PREFIX : <http://www.semanticshop.com/ontology#>\n" +
-            "\n" +
-            "SELECT ?pedido ?producto ?cantidad ?monto ?estado ?fecha\n" +
-            "WHERE {\n" +
-            "  ?pedido rdf:type :Pedido .\n" +
-            "  OPTIONAL { ?pedido :contieneProducto ?producto }\n" +
-            "  OPTIONAL { ?pedido :cantidadProducto ?cantidad }\n" +
-            "  OPTIONAL { ?pedido :montoTotal ?monto }\n" +
-            "  OPTIONAL { ?pedido :estadoPedido ?estado }\n" +
-            "  OPTIONAL { ?pedido :fechaPedido ?fecha }\n" +
-            "}\n" +
-            "ORDER BY ?pedido";
-        
-        List<Map<String, String>> results = ontologyService.executeSparqlQuery(query);
+        List<Map<String, String>> results = ejecutarAnalitica("pedidos");
         
         Map<String, Object> response = new HashMap<>();
         response.put("analysis", "Análisis de pedidos");
@@ -400,12 +523,15 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
         Map<String, Object> info = new HashMap<>();
         info.put("message", "Endpoint SPARQL para SemanticShop");
         info.put("namespace", "http://www.semanticshop.com/ontology#");
-        info.put("jenaTriples", ontologyService.getJenaModel().size());
+        info.put("jenaTriples", ontologyService.getTriplesJena());
         info.put("owlIndividuals", ontologyService.getOntology().getIndividualsInSignature().size());
+        info.put("cacheSparql", cacheSparql.getEstadisticas());
+        info.put("guardiaConsultas", guardiaConsultas.getEstadisticas());
         
         Map<String, String> endpoints = new HashMap<>();
         endpoints.put("POST /api/sparql/sync", "✅ Sincronizar modelos OWL → Jena");
         endpoints.put("POST /api/sparql/query", "Ejecutar consulta SPARQL personalizada");
+        endpoints.put("POST /api/sparql/query/stream", "Consulta SELECT en streaming (?formato=filas|sparql-json)");
         endpoints.put("GET /api/sparql/analytics/todos-productos", "✅ Todos los productos (usando jerarquía rdfs:subClassOf)");
         endpoints.put("GET /api/sparql/analytics/productos-por-marca", "✅ Análisis de productos por marca");
         endpoints.put("GET /api/sparql/analytics/productos-por-categoria", "✅ Análisis de productos por categoría");
@@ -434,4 +560,16 @@ public ResponseEntity<?> getProductosPorRangoPrecio(
         
         return ResponseEntity.ok(info);
     }
-}
\ No newline at end of file
+
+    /**
+     * Ejecuta una analítica preparada sobre el modelo Jena vigente
+     */
+    private List<Map<String, String>> ejecutarAnalitica(String nombre) {
+        return ejecutarAnalitica(nombre, Map.of());
+    }
+
+    private List<Map<String, String>> ejecutarAnalitica(String nombre, Map<String, ?> parametros) {
+        return ontologyService.consultarModeloJena(nombre, parametros,
+                modelo -> consultasPreparadas.ejecutar(nombre, modelo, parametros));
+    }
+}
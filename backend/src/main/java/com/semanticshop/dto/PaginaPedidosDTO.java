@@ -0,0 +1,27 @@
+package com.semanticshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO para una página de pedidos con paginación por cursor (fechaPedido, id)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaPedidosDTO {
+    
+    private List<PedidoDTO> pedidos;
+    private Integer tamanioPagina;
+    private Boolean hayMas;
+    
+    /**
+     * Cursor para pedir la página siguiente; null si es la última
+     */
+    private String siguienteCursor;
+}
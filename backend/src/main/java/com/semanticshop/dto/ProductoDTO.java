@@ -11,7 +11,7 @@ import java.util.Set;
 
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductoDTO {
@@ -0,0 +1,39 @@
+package com.semanticshop.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock persistido de un producto del catálogo.
+ * Es la copia durable del libro de inventario en memoria, que la escribe en segundo plano;
+ * el valor del data property stock de la ontología solo se usa para inicializar productos nuevos
+ */
+@Entity
+@Table(name = "inventario")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventarioProducto {
+
+    @Id
+    @Column(name = "producto_id", length = 100)
+    private String productoId;
+
+    @Column(nullable = false)
+    private Integer stock;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+}
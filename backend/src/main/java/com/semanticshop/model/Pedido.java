@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -14,7 +15,12 @@ import java.util.List;
  * Entidad que representa un pedido realizado por un usuario
  */
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+        @Index(name = "idx_pedidos_usuario_fecha", columnList = "usuario_id, fecha_pedido, id"),
+        @Index(name = "idx_pedidos_usuario_estado_fecha", columnList = "usuario_id, estado, fecha_pedido, id"),
+        @Index(name = "idx_pedidos_estado_fecha", columnList = "estado, fecha_pedido, id"),
+        @Index(name = "idx_pedidos_fecha", columnList = "fecha_pedido, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -48,7 +54,9 @@ public class Pedido {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
     
+    // Al convertir una página, los detalles de hasta 100 pedidos se cargan con un solo IN
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @Builder.Default
     private List<DetallePedido> detalles = new ArrayList<>();
     
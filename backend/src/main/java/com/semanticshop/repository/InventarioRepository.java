@@ -0,0 +1,12 @@
+package com.semanticshop.repository;
+
+import com.semanticshop.model.InventarioProducto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio para el stock persistido de los productos
+ */
+@Repository
+public interface InventarioRepository extends JpaRepository<InventarioProducto, String> {
+}
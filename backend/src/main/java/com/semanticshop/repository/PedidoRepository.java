@@ -3,10 +3,14 @@ package com.semanticshop.repository;
 import com.semanticshop.model.Pedido;
 import com.semanticshop.model.EstadoPedido;
 import com.semanticshop.model.Usuario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,39 +21,76 @@ import java.util.Optional;
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     
     /**
-     * Buscar pedidos por usuario ordenados por fecha descendente
+     * Página de pedidos anteriores a (fecha, id), del más reciente al más antiguo.
+     * La condición {@code fechaPedido <= :fecha} acota el rango del índice y el OR desempata por id
      */
-    List<Pedido> findByUsuarioOrderByFechaPedidoDesc(Usuario usuario);
+    @EntityGraph(attributePaths = "usuario")
+    @Query("SELECT p FROM Pedido p WHERE p.fechaPedido <= :fecha AND (p.fechaPedido < :fecha OR p.id < :id) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    List<Pedido> findPaginaAnteriorA(LocalDateTime fecha, Long id, Pageable pageable);
     
     /**
-     * Buscar pedidos por estado
+     * Página de pedidos de un usuario anteriores a (fecha, id); usa el índice (usuario_id, fecha_pedido)
      */
-    List<Pedido> findByEstadoOrderByFechaPedidoDesc(EstadoPedido estado);
+    @Query("SELECT p FROM Pedido p WHERE p.usuario = :usuario " +
+           "AND p.fechaPedido <= :fecha AND (p.fechaPedido < :fecha OR p.id < :id) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    List<Pedido> findPaginaPorUsuarioAnteriorA(Usuario usuario, LocalDateTime fecha, Long id, Pageable pageable);
     
     /**
-     * Buscar pedido por ID y usuario (para verificar permisos)
+     * Página de pedidos de un usuario en un estado anteriores a (fecha, id); usa el índice
+     * (usuario_id, estado, fecha_pedido)
      */
-    Optional<Pedido> findByIdAndUsuario(Long id, Usuario usuario);
+    @Query("SELECT p FROM Pedido p WHERE p.usuario = :usuario AND p.estado = :estado " +
+           "AND p.fechaPedido <= :fecha AND (p.fechaPedido < :fecha OR p.id < :id) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    List<Pedido> findPaginaPorUsuarioYEstadoAnteriorA(Usuario usuario, EstadoPedido estado, LocalDateTime fecha,
+                                                      Long id, Pageable pageable);
+    
+    /**
+     * Página de pedidos de un estado anteriores a (fecha, id); usa el índice (estado, fecha_pedido)
+     */
+    @EntityGraph(attributePaths = "usuario")
+    @Query("SELECT p FROM Pedido p WHERE p.estado = :estado " +
+           "AND p.fechaPedido <= :fecha AND (p.fechaPedido < :fecha OR p.id < :id) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    List<Pedido> findPaginaPorEstadoAnteriorA(EstadoPedido estado, LocalDateTime fecha, Long id, Pageable pageable);
     
     /**
-     * Contar pedidos por usuario
+     * Cambia el estado solo si el pedido sigue en {@code anterior}; devuelve las filas modificadas (0 o 1).
+     * Hace de compare-and-set: de dos cambios simultáneos sobre el mismo pedido solo uno modifica la fila
      */
-    long countByUsuario(Usuario usuario);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.estado = :nuevo, p.fechaActualizacion = :fecha " +
+           "WHERE p.id = :id AND p.estado = :anterior")
+    int actualizarEstadoSi(Long id, EstadoPedido anterior, EstadoPedido nuevo, LocalDateTime fecha);
+    
+    /**
+     * Buscar pedido por ID y usuario (para verificar permisos)
+     */
+    Optional<Pedido> findByIdAndUsuario(Long id, Usuario usuario);
     
     /**
-     * Contar pedidos por estado
+     * Cantidad de pedidos y total de ventas de cada estado en una sola consulta
      */
-    long countByEstado(EstadoPedido estado);
+    @Query("SELECT p.estado AS estado, COUNT(p) AS cantidad, SUM(p.total) AS ventas FROM Pedido p GROUP BY p.estado")
+    List<ResumenEstado> resumirPorEstado();
     
     /**
-     * Obtener total de ventas por estado
+     * Cantidad de pedidos y total gastado de un usuario por estado, en una sola consulta
      */
-    @Query("SELECT SUM(p.total) FROM Pedido p WHERE p.estado = :estado")
-    Double sumTotalByEstado(EstadoPedido estado);
+    @Query("SELECT p.estado AS estado, COUNT(p) AS cantidad, SUM(p.total) AS ventas FROM Pedido p " +
+           "WHERE p.usuario = :usuario GROUP BY p.estado")
+    List<ResumenEstado> resumirPorEstadoDeUsuario(Usuario usuario);
     
     /**
-     * Obtener total de ventas de un usuario
+     * Fila de {@link #resumirPorEstado()} y {@link #resumirPorEstadoDeUsuario(Usuario)}
      */
-    @Query("SELECT SUM(p.total) FROM Pedido p WHERE p.usuario = :usuario")
-    Double sumTotalByUsuario(Usuario usuario);
+    interface ResumenEstado {
+        EstadoPedido getEstado();
+        
+        long getCantidad();
+        
+        Double getVentas();
+    }
 }
\ No newline at end of file
@@ -47,6 +47,7 @@ public class SecurityConfig {
                         
                         // ✅ Ontología - PÚBLICOS para diagnóstico
                         .requestMatchers("/api/ontology/info").permitAll()
+                        .requestMatchers("/api/ontology/estado").permitAll()
                         .requestMatchers("/api/ontology/estadisticas").permitAll()
                         .requestMatchers("/api/ontology/consistencia").permitAll()
                         .requestMatchers("/api/ontology/clases").permitAll()
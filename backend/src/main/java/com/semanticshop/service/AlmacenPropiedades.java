@@ -0,0 +1,287 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import java.util.*;
+
+/**
+ * Valores de propiedades materializados para una generación de razonamiento.
+ * Las data properties afirmadas y las object properties inferidas por HermiT quedan en índices
+ * (individuo, propiedad) → valor por nombre corto, y el precio y stock de los productos en columnas
+ * primitivas indexadas por un ordinal denso, ya convertidos a número. Se reemplaza completo cuando
+ * cambia la generación, o se parchea para los individuos tocados por una escritura ABox,
+ * igual que {@link CacheRealizacion}.
+ */
+@Slf4j
+public final class AlmacenPropiedades {
+
+    private final long generacion;
+    private final Map<String, Map<String, String>> datos;
+    private final Map<String, Map<String, Set<OWLNamedIndividual>>> objetos;
+
+    // Columnas de productos: ordinal → valor (NaN / -1 cuando el producto no tiene la propiedad)
+    private final Map<String, Integer> ordinales;
+    private final String[] productos;
+    private final double[] precio;
+    private final int[] stock;
+
+    private AlmacenPropiedades(long generacion,
+                               Map<String, Map<String, String>> datos,
+                               Map<String, Map<String, Set<OWLNamedIndividual>>> objetos,
+                               Map<String, Integer> ordinales,
+                               String[] productos,
+                               double[] precio,
+                               int[] stock) {
+        this.generacion = generacion;
+        this.datos = datos;
+        this.objetos = objetos;
+        this.ordinales = ordinales;
+        this.productos = productos;
+        this.precio = precio;
+        this.stock = stock;
+    }
+
+    /**
+     * Materializa las propiedades de todos los individuos del namespace.
+     * Debe invocarse con el lock del razonador tomado.
+     *
+     * @param productos nombres cortos de los individuos que reciben columnas de precio y stock
+     */
+    public static AlmacenPropiedades construir(long generacion,
+                                               OWLOntology ontologia,
+                                               OWLReasoner reasoner,
+                                               String namespace,
+                                               Collection<String> productos) {
+        // Object properties: se precomputan todas las asserciones inferidas de una vez,
+        // lo que resulta mucho más barato que consultar al razonador par por par
+        reasoner.precomputeInferences(InferenceType.OBJECT_PROPERTY_ASSERTIONS);
+        List<OWLObjectProperty> propiedades = ontologia.getObjectPropertiesInSignature(Imports.INCLUDED).stream()
+                .filter(p -> nombreCorto(p.getIRI(), namespace) != null)
+                .toList();
+
+        Map<String, Map<String, Set<OWLNamedIndividual>>> objetos = new HashMap<>();
+        for (OWLNamedIndividual individuo : ontologia.getIndividualsInSignature(Imports.INCLUDED)) {
+            String nombre = nombreCorto(individuo.getIRI(), namespace);
+            if (nombre == null) {
+                continue;
+            }
+            for (OWLObjectProperty propiedad : propiedades) {
+                Set<OWLNamedIndividual> valores = reasoner.getObjectPropertyValues(individuo, propiedad).getFlattened();
+                if (!valores.isEmpty()) {
+                    objetos.computeIfAbsent(nombre, i -> new HashMap<>())
+                            .put(nombreCorto(propiedad.getIRI(), namespace), Collections.unmodifiableSet(valores));
+                }
+            }
+        }
+
+        return construir(generacion, ontologia, objetos, namespace, productos);
+    }
+
+    /**
+     * Igual que {@link #construir(long, OWLOntology, OWLReasoner, String, Collection)} pero con las
+     * object properties ya inferidas (por ejemplo, leídas de un {@link SnapshotInferencias})
+     *
+     * @param objetos individuo → propiedad → valores, por nombre corto
+     */
+    public static AlmacenPropiedades construir(long generacion,
+                                               OWLOntology ontologia,
+                                               Map<String, Map<String, Set<OWLNamedIndividual>>> objetos,
+                                               String namespace,
+                                               Collection<String> productos) {
+        // Data properties: solo afirmadas, como se leían de los axiomas
+        Map<String, Map<String, String>> datos = new HashMap<>();
+        for (OWLDataPropertyAssertionAxiom ax : ontologia.getAxioms(AxiomType.DATA_PROPERTY_ASSERTION, Imports.INCLUDED)) {
+            if (!ax.getSubject().isNamed() || ax.getProperty().isAnonymous()) {
+                continue;
+            }
+            String individuo = nombreCorto(ax.getSubject().asOWLNamedIndividual().getIRI(), namespace);
+            String propiedad = nombreCorto(ax.getProperty().asOWLDataProperty().getIRI(), namespace);
+            if (individuo != null && propiedad != null) {
+                datos.computeIfAbsent(individuo, i -> new HashMap<>())
+                        .putIfAbsent(propiedad, ax.getObject().getLiteral());
+            }
+        }
+
+        return conColumnas(generacion, datos, objetos, productos);
+    }
+
+    /**
+     * Copia de este almacén para otra generación con los valores de algunos individuos
+     * vueltos a leer de la ontología y el razonador; el resto se comparte con la generación anterior.
+     * Las columnas de productos solo se rehacen si cambió algún producto o el conjunto de productos.
+     * Debe invocarse con el lock del razonador tomado.
+     */
+    public AlmacenPropiedades conIndividuos(long generacion,
+                                            OWLOntology ontologia,
+                                            OWLReasoner reasoner,
+                                            String namespace,
+                                            Collection<OWLNamedIndividual> afectados,
+                                            Collection<String> productosActuales) {
+        List<OWLObjectProperty> propiedades = ontologia.getObjectPropertiesInSignature(Imports.INCLUDED).stream()
+                .filter(p -> nombreCorto(p.getIRI(), namespace) != null)
+                .toList();
+
+        Map<String, Map<String, String>> nuevosDatos = new HashMap<>(datos);
+        Map<String, Map<String, Set<OWLNamedIndividual>>> nuevosObjetos = new HashMap<>(objetos);
+        boolean columnasAfectadas = false;
+
+        for (OWLNamedIndividual individuo : afectados) {
+            String nombre = nombreCorto(individuo.getIRI(), namespace);
+            if (nombre == null) {
+                continue;
+            }
+            columnasAfectadas |= ordinales.containsKey(nombre) || productosActuales.contains(nombre);
+
+            Map<String, String> valoresDato = new HashMap<>();
+            ontologia.importsClosure()
+                    .flatMap(o -> o.dataPropertyAssertionAxioms(individuo))
+                    .filter(ax -> !ax.getProperty().isAnonymous())
+                    .forEach(ax -> {
+                        String propiedad = nombreCorto(ax.getProperty().asOWLDataProperty().getIRI(), namespace);
+                        if (propiedad != null) {
+                            valoresDato.putIfAbsent(propiedad, ax.getObject().getLiteral());
+                        }
+                    });
+            if (valoresDato.isEmpty()) {
+                nuevosDatos.remove(nombre);
+            } else {
+                nuevosDatos.put(nombre, valoresDato);
+            }
+
+            Map<String, Set<OWLNamedIndividual>> valoresObjeto = new HashMap<>();
+            for (OWLObjectProperty propiedad : propiedades) {
+                Set<OWLNamedIndividual> valores = reasoner.getObjectPropertyValues(individuo, propiedad).getFlattened();
+                if (!valores.isEmpty()) {
+                    valoresObjeto.put(nombreCorto(propiedad.getIRI(), namespace), Collections.unmodifiableSet(valores));
+                }
+            }
+            if (valoresObjeto.isEmpty()) {
+                nuevosObjetos.remove(nombre);
+            } else {
+                nuevosObjetos.put(nombre, valoresObjeto);
+            }
+        }
+
+        if (!columnasAfectadas && productosActuales.size() == productos.length) {
+            return new AlmacenPropiedades(generacion, nuevosDatos, nuevosObjetos, ordinales, productos, precio, stock);
+        }
+        return conColumnas(generacion, nuevosDatos, nuevosObjetos, productosActuales);
+    }
+
+    private static AlmacenPropiedades conColumnas(long generacion,
+                                                  Map<String, Map<String, String>> datos,
+                                                  Map<String, Map<String, Set<OWLNamedIndividual>>> objetos,
+                                                  Collection<String> productos) {
+        String[] ids = productos.stream().sorted().toArray(String[]::new);
+        Map<String, Integer> ordinales = new HashMap<>(ids.length * 2);
+        double[] precio = new double[ids.length];
+        int[] stock = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ordinales.put(ids[i], i);
+            Map<String, String> valores = datos.getOrDefault(ids[i], Map.of());
+            precio[i] = parsearDouble(ids[i], valores.get("precio"));
+            stock[i] = parsearEntero(ids[i], valores.get("stock"));
+        }
+
+        return new AlmacenPropiedades(generacion, datos, objetos, ordinales, ids, precio, stock);
+    }
+
+    private static String nombreCorto(IRI iri, String namespace) {
+        String texto = iri.toString();
+        if (!texto.startsWith(namespace) || texto.length() == namespace.length()) {
+            return null;
+        }
+        return texto.substring(namespace.length()).intern();
+    }
+
+    private static double parsearDouble(String individuo, String valor) {
+        if (valor == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            log.warn("⚠️ Precio inválido para {}: {}", individuo, valor);
+            return Double.NaN;
+        }
+    }
+
+    private static int parsearEntero(String individuo, String valor) {
+        if (valor == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            log.warn("⚠️ Stock inválido para {}: {}", individuo, valor);
+            return -1;
+        }
+    }
+
+    public long getGeneracion() {
+        return generacion;
+    }
+
+    /**
+     * Primer valor afirmado de una data property
+     */
+    public Optional<String> getValorDato(String individuo, String propiedad) {
+        Map<String, String> valores = datos.get(individuo);
+        return valores == null ? Optional.empty() : Optional.ofNullable(valores.get(propiedad));
+    }
+
+    /**
+     * Valores (afirmados e inferidos) de una object property
+     */
+    public Set<OWLNamedIndividual> getValoresObjeto(String individuo, String propiedad) {
+        Map<String, Set<OWLNamedIndividual>> valores = objetos.get(individuo);
+        return valores == null ? Set.of() : valores.getOrDefault(propiedad, Set.of());
+    }
+
+    /**
+     * Individuo → propiedad → valores de todas las object properties, para volcarlo en un snapshot
+     */
+    public Map<String, Map<String, Set<OWLNamedIndividual>>> getValoresObjeto() {
+        return Collections.unmodifiableMap(objetos);
+    }
+
+    // ========== COLUMNAS DE PRODUCTOS ==========
+
+    /**
+     * Ordinal denso del producto en las columnas, o -1 si no es un producto
+     */
+    public int getOrdinal(String producto) {
+        Integer ordinal = ordinales.get(producto);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public String getProducto(int ordinal) {
+        return productos[ordinal];
+    }
+
+    public int getTotalProductos() {
+        return productos.length;
+    }
+
+    public double getPrecio(int ordinal) {
+        return precio[ordinal];
+    }
+
+    public int getStock(int ordinal) {
+        return stock[ordinal];
+    }
+
+    public OptionalDouble getPrecio(String producto) {
+        int ordinal = getOrdinal(producto);
+        return ordinal < 0 || Double.isNaN(precio[ordinal]) ? OptionalDouble.empty() : OptionalDouble.of(precio[ordinal]);
+    }
+
+    public OptionalInt getStock(String producto) {
+        int ordinal = getOrdinal(producto);
+        return ordinal < 0 || stock[ordinal] < 0 ? OptionalInt.empty() : OptionalInt.of(stock[ordinal]);
+    }
+}
@@ -0,0 +1,122 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Almacén de triples del modelo Jena. Con un directorio configurado es un dataset TDB2
+ * persistente: el grafo por defecto guarda los triples asertados de la ontología, incluidos
+ * los agregados en tiempo de ejecución por el PuenteOwlJena, y un grafo nombrado guarda de
+ * qué archivo fuente (hash SHA-256) se pobló. Al reiniciar con el mismo archivo fuente el
+ * almacén se reutiliza tal cual, sin reconstruir Jena, y la OWL API se carga desde él para
+ * que los axiomas agregados en ejecución sobrevivan. Sin directorio es un dataset
+ * transaccional en memoria, como antes.
+ */
+@Slf4j
+public final class AlmacenTriples implements AutoCloseable {
+
+    private static final String NS = "urn:semanticshop:almacen#";
+    private static final String GRAFO_METADATOS = "urn:semanticshop:almacen";
+    private static final Resource ORIGEN = ResourceFactory.createResource(NS + "origen");
+    private static final Property HASH_ORIGEN = ResourceFactory.createProperty(NS, "hashOrigen");
+    private static final Property ACTUALIZADO = ResourceFactory.createProperty(NS, "actualizado");
+
+    private final Dataset dataset;
+    private final Path directorio;
+
+    private AlmacenTriples(Dataset dataset, Path directorio) {
+        this.dataset = dataset;
+        this.directorio = directorio;
+    }
+
+    /**
+     * Abre (o crea) el almacén TDB2 del directorio; si está vacío usa un dataset en memoria
+     */
+    public static AlmacenTriples abrir(String directorio) {
+        if (directorio == null || directorio.isBlank()) {
+            return new AlmacenTriples(DatasetFactory.createTxnMem(), null);
+        }
+
+        Path ruta = Path.of(directorio).toAbsolutePath();
+        try {
+            Files.createDirectories(ruta);
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo crear el directorio del almacén TDB2: " + ruta, e);
+        }
+        log.info("💾 Abriendo almacén TDB2 en {}", ruta);
+        return new AlmacenTriples(TDB2Factory.connectDataset(ruta.toString()), ruta);
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public boolean esPersistente() {
+        return directorio != null;
+    }
+
+    /**
+     * Hash del archivo fuente con el que se pobló el almacén, si se registró alguno
+     */
+    public Optional<String> getHashOrigen() {
+        return Txn.calculateRead(dataset, () -> {
+            Statement st = dataset.getNamedModel(GRAFO_METADATOS).getProperty(ORIGEN, HASH_ORIGEN);
+            return Optional.ofNullable(st).map(Statement::getString);
+        });
+    }
+
+    /**
+     * Indica si el almacén ya contiene la ontología poblada desde este archivo fuente
+     */
+    public boolean contieneOrigen(String hash) {
+        return getHashOrigen().filter(hash::equals).isPresent()
+                && Txn.calculateRead(dataset, () -> !dataset.getDefaultModel().isEmpty());
+    }
+
+    /**
+     * Registra el archivo fuente del que se pobló el grafo por defecto
+     */
+    public void registrarOrigen(String hash) {
+        Txn.executeWrite(dataset, () -> {
+            Model metadatos = dataset.getNamedModel(GRAFO_METADATOS);
+            metadatos.removeAll();
+            metadatos.add(ORIGEN, HASH_ORIGEN, hash);
+            metadatos.add(ORIGEN, ACTUALIZADO, Instant.now().toString());
+        });
+    }
+
+    /**
+     * Serializa el grafo por defecto en Binary RDF, para cargarlo con la OWL API
+     */
+    public byte[] exportarOntologia() {
+        return Txn.calculateRead(dataset, () -> FormatoRdfBinario.desdeGrafoJena(dataset.getDefaultModel().getGraph()));
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tipo", esPersistente() ? "TDB2" : "memoria");
+        if (esPersistente()) {
+            stats.put("directorio", directorio.toString());
+            stats.put("hashOrigen", getHashOrigen().orElse(null));
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        dataset.close();
+    }
+}
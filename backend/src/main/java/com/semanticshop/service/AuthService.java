@@ -64,14 +64,15 @@ public class AuthService {
         usuario = usuarioRepository.save(usuario);
         log.info("✅ Usuario guardado en BD con ID: {}", usuario.getId());
 
-        // 🔥 SINCRONIZAR CON ONTOLOGÍA
-        try {
-            ontologySyncService.sincronizarUsuarioConOntologia(usuario);
-            log.info("✅ Usuario sincronizado con ontología: {}", usuario.getClienteIdOntologia());
-        } catch (Exception e) {
-            log.error("❌ Error al sincronizar con ontología: {}", e.getMessage());
-            // Continuar aunque falle la sincronización
-        }
+        // 🔥 SINCRONIZAR CON ONTOLOGÍA (en el próximo lote, sin esperar al razonador)
+        String clienteId = usuario.getClienteIdOntologia();
+        ontologySyncService.encolarSincronizacion(usuario).whenComplete((ok, e) -> {
+            if (e != null) {
+                log.error("❌ Error al sincronizar con ontología: {}", e.getMessage());
+            } else {
+                log.info("✅ Usuario sincronizado con ontología: {}", clienteId);
+            }
+        });
 
         // Generar token
         String token = jwtUtil.generateToken(usuario);
@@ -102,15 +103,19 @@ public class AuthService {
         Usuario usuario = usuarioRepository.findByUsername(request.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        // 🔥 VERIFICAR Y SINCRONIZAR SI NO EXISTE EN ONTOLOGÍA
-        if (!ontologySyncService.clienteExisteEnOntologia(usuario.getClienteIdOntologia())) {
-            log.info("Cliente no existe en ontología. Sincronizando...");
-            try {
-                ontologySyncService.sincronizarUsuarioConOntologia(usuario);
-                log.info("✅ Usuario sincronizado con ontología en login");
-            } catch (Exception e) {
-                log.error("❌ Error al sincronizar en login: {}", e.getMessage());
-            }
+        // 🔥 VERIFICAR Y SINCRONIZAR SI NO EXISTE EN ONTOLOGÍA (salvo que ya esté encolado)
+        boolean pendiente = ontologySyncService.getEstadoSincronizacion(usuario.getClienteIdOntologia())
+                .map(estado -> estado.estado() == ColaEscrituraOntologia.Estado.PENDIENTE)
+                .orElse(false);
+        if (!pendiente && !ontologySyncService.clienteExisteEnOntologia(usuario.getClienteIdOntologia())) {
+            log.info("Cliente no existe en ontología. Encolando sincronización...");
+            ontologySyncService.encolarSincronizacion(usuario).whenComplete((ok, e) -> {
+                if (e != null) {
+                    log.error("❌ Error al sincronizar en login: {}", e.getMessage());
+                } else {
+                    log.info("✅ Usuario sincronizado con ontología en login");
+                }
+            });
         }
 
         // Generar token
@@ -181,13 +186,14 @@ public class AuthService {
         usuario = usuarioRepository.save(usuario);
         log.info("✅ Perfil actualizado para usuario: {}", username);
 
-        // 🔥 RE-SINCRONIZAR CON ONTOLOGÍA
-        try {
-            ontologySyncService.sincronizarUsuarioConOntologia(usuario);
-            log.info("✅ Preferencias actualizadas en ontología");
-        } catch (Exception e) {
-            log.error("❌ Error al actualizar ontología: {}", e.getMessage());
-        }
+        // 🔥 RE-SINCRONIZAR CON ONTOLOGÍA (asíncrono, por lotes)
+        ontologySyncService.encolarSincronizacion(usuario).whenComplete((ok, e) -> {
+            if (e != null) {
+                log.error("❌ Error al actualizar ontología: {}", e.getMessage());
+            } else {
+                log.info("✅ Preferencias actualizadas en ontología");
+            }
+        });
 
         return convertirAUsuarioDTO(usuario);
     }
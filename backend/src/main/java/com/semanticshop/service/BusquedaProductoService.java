@@ -8,7 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Servicio para búsqueda y filtrado avanzado de productos
@@ -19,6 +19,10 @@ import java.util.stream.Collectors;
 public class BusquedaProductoService {
 
     private final ProductoService productoService;
+    private final InventarioService inventarioService;
+
+    // Índice del catálogo vigente; se reconstruye cuando cambia la generación del catálogo
+    private final AtomicReference<IndiceBusqueda> indice = new AtomicReference<>();
 
     /**
      * Búsqueda avanzada con filtros, ordenamiento y paginación
@@ -28,196 +32,42 @@ public class BusquedaProductoService {
                 request.getQ(), request.getCategoria(), request.getMarca(), 
                 request.getPrecioMin(), request.getPrecioMax());
 
-        // Obtener todos los productos (con retry en caso de error del razonador)
-        List<ProductoDTO> todosProductos = obtenerProductosConRetry();
-
-        // Aplicar filtros
-        List<ProductoDTO> productosFiltrados = aplicarFiltros(todosProductos, request);
-
-        // Aplicar ordenamiento
-        List<ProductoDTO> productosOrdenados = aplicarOrdenamiento(productosFiltrados, request);
-
-        // Aplicar paginación
-        List<ProductoDTO> productosPaginados = aplicarPaginacion(productosOrdenados, request);
+        IndiceBusqueda.Resultado resultado = obtenerIndice().buscar(request, inventarioService::disponible);
 
         // Construir respuesta
         BusquedaProductosResponse response = construirRespuesta(
-                productosPaginados,
-                productosOrdenados.size(),
+                resultado.pagina(),
+                resultado.total(),
                 request
         );
 
-        log.info("✅ Búsqueda completada: {} resultados encontrados", productosOrdenados.size());
+        log.info("✅ Búsqueda completada: {} resultados encontrados", resultado.total());
 
         return response;
     }
 
     /**
-     * Aplicar todos los filtros a la lista de productos
-     */
-    private List<ProductoDTO> aplicarFiltros(List<ProductoDTO> productos, BusquedaProductosRequest request) {
-        return productos.stream()
-                .filter(p -> filtrarPorTexto(p, request.getQ()))
-                .filter(p -> filtrarPorCategoria(p, request.getCategoria()))
-                .filter(p -> filtrarPorMarca(p, request.getMarca()))
-                .filter(p -> filtrarPorPrecio(p, request.getPrecioMin(), request.getPrecioMax()))
-                .filter(p -> filtrarPorDisponibilidad(p, request.getDisponible()))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Filtrar por texto de búsqueda (busca en nombre, marca, categoría, descripción)
-     */
-    private boolean filtrarPorTexto(ProductoDTO producto, String texto) {
-        if (texto == null || texto.trim().isEmpty()) {
-            return true;
-        }
-
-        String textoLower = texto.toLowerCase().trim();
-
-        // Buscar en nombre
-        if (producto.getNombre() != null && 
-            producto.getNombre().toLowerCase().contains(textoLower)) {
-            return true;
-        }
-
-        // Buscar en marca
-        if (producto.getMarca() != null && 
-            producto.getMarca().toLowerCase().contains(textoLower)) {
-            return true;
-        }
-
-        // Buscar en categoría
-        if (producto.getCategoria() != null && 
-            producto.getCategoria().toLowerCase().contains(textoLower)) {
-            return true;
-        }
-
-        // Buscar en descripción
-        if (producto.getDescripcion() != null && 
-            producto.getDescripcion().toLowerCase().contains(textoLower)) {
-            return true;
-        }
-
-        // Buscar en tipo
-        if (producto.getTipo() != null && 
-            producto.getTipo().toLowerCase().contains(textoLower)) {
-            return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * Filtrar por categoría
-     */
-    private boolean filtrarPorCategoria(ProductoDTO producto, String categoria) {
-        if (categoria == null || categoria.trim().isEmpty()) {
-            return true;
-        }
-        return producto.getCategoria() != null && 
-               producto.getCategoria().equalsIgnoreCase(categoria.trim());
-    }
-
-    /**
-     * Filtrar por marca
-     */
-    private boolean filtrarPorMarca(ProductoDTO producto, String marca) {
-        if (marca == null || marca.trim().isEmpty()) {
-            return true;
-        }
-        return producto.getMarca() != null && 
-               producto.getMarca().equalsIgnoreCase(marca.trim());
-    }
-
-    /**
-     * Filtrar por rango de precio
-     */
-    private boolean filtrarPorPrecio(ProductoDTO producto, Double precioMin, Double precioMax) {
-        if (producto.getPrecio() == null) {
-            return false;
-        }
-
-        boolean cumpleMin = precioMin == null || producto.getPrecio() >= precioMin;
-        boolean cumpleMax = precioMax == null || producto.getPrecio() <= precioMax;
-
-        return cumpleMin && cumpleMax;
-    }
-
-    /**
-     * Filtrar por disponibilidad
-     */
-    private boolean filtrarPorDisponibilidad(ProductoDTO producto, Boolean soloDisponibles) {
-        if (!soloDisponibles) {
-            return true;
-        }
-        return producto.getStock() != null && producto.getStock() > 0;
-    }
-
-    /**
-     * Aplicar ordenamiento
+     * Devuelve el índice de búsqueda del catálogo vigente, reconstruyéndolo
+     * solo cuando el snapshot del catálogo cambió de generación
      */
-    private List<ProductoDTO> aplicarOrdenamiento(List<ProductoDTO> productos, BusquedaProductosRequest request) {
-        String campo = request.getOrdenarPor();
-        String direccion = request.getDireccion();
-        boolean ascendente = "asc".equalsIgnoreCase(direccion);
-
-        List<ProductoDTO> productosOrdenados = new ArrayList<>(productos);
-
-        switch (campo.toLowerCase()) {
-            case "precio":
-                productosOrdenados.sort((p1, p2) -> {
-                    Double precio1 = p1.getPrecio() != null ? p1.getPrecio() : 0.0;
-                    Double precio2 = p2.getPrecio() != null ? p2.getPrecio() : 0.0;
-                    return ascendente ? precio1.compareTo(precio2) : precio2.compareTo(precio1);
-                });
-                break;
-
-            case "nombre":
-                productosOrdenados.sort((p1, p2) -> {
-                    String nombre1 = p1.getNombre() != null ? p1.getNombre() : "";
-                    String nombre2 = p2.getNombre() != null ? p2.getNombre() : "";
-                    return ascendente ? nombre1.compareTo(nombre2) : nombre2.compareTo(nombre1);
-                });
-                break;
-
-            case "popularidad":
-            case "stock":
-                productosOrdenados.sort((p1, p2) -> {
-                    Integer stock1 = p1.getStock() != null ? p1.getStock() : 0;
-                    Integer stock2 = p2.getStock() != null ? p2.getStock() : 0;
-                    return ascendente ? stock1.compareTo(stock2) : stock2.compareTo(stock1);
-                });
-                break;
-
-            default:
-                // Por defecto ordenar por nombre
-                productosOrdenados.sort((p1, p2) -> {
-                    String nombre1 = p1.getNombre() != null ? p1.getNombre() : "";
-                    String nombre2 = p2.getNombre() != null ? p2.getNombre() : "";
-                    return nombre1.compareTo(nombre2);
-                });
-                break;
+    public IndiceBusqueda obtenerIndice() {
+        CatalogoSnapshot catalogo = productoService.getCatalogo();
+        IndiceBusqueda actual = indice.get();
+        if (actual != null && actual.getGeneracion() == catalogo.getGeneracion()) {
+            return actual;
         }
 
-        return productosOrdenados;
-    }
-
-    /**
-     * Aplicar paginación
-     */
-    private List<ProductoDTO> aplicarPaginacion(List<ProductoDTO> productos, BusquedaProductosRequest request) {
-        int pagina = request.getPagina();
-        int tamanio = request.getTamanio();
-
-        int inicio = pagina * tamanio;
-        int fin = Math.min(inicio + tamanio, productos.size());
-
-        if (inicio >= productos.size()) {
-            return Collections.emptyList();
+        synchronized (indice) {
+            actual = indice.get();
+            if (actual == null || actual.getGeneracion() != catalogo.getGeneracion()) {
+                long inicio = System.currentTimeMillis();
+                actual = IndiceBusqueda.construir(catalogo);
+                indice.set(actual);
+                log.info("🗂️ Índice de búsqueda construido: {} términos en {} ms",
+                        actual.getTotalTerminos(), System.currentTimeMillis() - inicio);
+            }
+            return actual;
         }
-
-        return productos.subList(inicio, fin);
     }
 
     /**
@@ -254,105 +104,49 @@ public class BusquedaProductoService {
                 .build();
 
         return BusquedaProductosResponse.builder()
-                .productos(productosPaginados)
+                .productos(inventarioService.conExistencias(productosPaginados))
                 .paginacion(paginacion)
                 .filtrosAplicados(filtros)
                 .ordenamiento(ordenamiento)
                 .build();
     }
 
-    /**
-     * Obtener productos con retry en caso de error del razonador
-     */
-    private List<ProductoDTO> obtenerProductosConRetry() {
-        int intentos = 0;
-        int maxIntentos = 3;
-        
-        while (intentos < maxIntentos) {
-            try {
-                return productoService.getAllProductos();
-            } catch (Exception e) {
-                intentos++;
-                log.warn("⚠️ Error obteniendo productos (intento {}/{}): {}", 
-                        intentos, maxIntentos, e.getMessage());
-                
-                if (intentos >= maxIntentos) {
-                    log.error("❌ Error después de {} intentos, devolviendo lista vacía", maxIntentos);
-                    return new ArrayList<>();
-                }
-                
-                // Esperar un poco antes de reintentar
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }
-        
-        return new ArrayList<>();
-    }
-
     /**
      * Obtener todas las categorías disponibles
      */
     public List<String> obtenerCategorias() {
-        return obtenerProductosConRetry().stream()
-                .map(ProductoDTO::getCategoria)
-                .filter(Objects::nonNull)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return obtenerIndice().getCategorias();
     }
 
     /**
      * Obtener todas las marcas disponibles
      */
     public List<String> obtenerMarcas() {
-        return obtenerProductosConRetry().stream()
-                .map(ProductoDTO::getMarca)
-                .filter(Objects::nonNull)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return obtenerIndice().getMarcas();
     }
 
     /**
      * Obtener rango de precios (min y max)
      */
     public Map<String, Double> obtenerRangoPrecios() {
-        List<ProductoDTO> productos = obtenerProductosConRetry();
-
-        DoubleSummaryStatistics stats = productos.stream()
-                .map(ProductoDTO::getPrecio)
-                .filter(Objects::nonNull)
-                .mapToDouble(Double::doubleValue)
-                .summaryStatistics();
+        IndiceBusqueda indiceActual = obtenerIndice();
 
+        // Sin productos el rango queda vacío (+∞, -∞)
         Map<String, Double> rango = new HashMap<>();
-        rango.put("precioMin", stats.getMin());
-        rango.put("precioMax", stats.getMax());
+        rango.put("precioMin", indiceActual.getPrecioMinimo().orElse(Double.POSITIVE_INFINITY));
+        rango.put("precioMax", indiceActual.getPrecioMaximo().orElse(Double.NEGATIVE_INFINITY));
 
         return rango;
     }
 
     /**
-     * Obtener sugerencias de autocompletado
+     * Obtener sugerencias de autocompletado, ordenadas por relevancia
      */
     public List<String> obtenerSugerencias(String texto, int limite) {
         if (texto == null || texto.trim().isEmpty()) {
             return Collections.emptyList();
         }
 
-        String textoLower = texto.toLowerCase().trim();
-
-        return obtenerProductosConRetry().stream()
-                .map(ProductoDTO::getNombre)
-                .filter(Objects::nonNull)
-                .filter(nombre -> nombre.toLowerCase().contains(textoLower))
-                .distinct()
-                .limit(limite)
-                .sorted()
-                .collect(Collectors.toList());
+        return obtenerIndice().getSugerencias().sugerir(texto, limite);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,218 @@
+package com.semanticshop.service;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import java.util.*;
+
+/**
+ * Realización materializada de la ontología para una generación de razonamiento:
+ * clase → instancias e individuo → tipos inferidos, indexados por nombre corto.
+ * Se construye consultando al razonador una vez por individuo y se reemplaza completa
+ * cuando cambia la generación (o se parchea para los individuos tocados por una escritura ABox), así las lecturas no vuelven a pasar por HermiT
+ * ni a crear IRIs a partir de cadenas.
+ */
+public final class CacheRealizacion {
+
+    private final long generacion;
+    private final Map<String, Set<OWLNamedIndividual>> instanciasPorClase;
+    private final Map<String, Set<OWLClass>> tiposPorIndividuo;
+    private final Map<String, List<String>> nombresPorClase;
+    private final Map<String, Set<String>> nombresTiposPorIndividuo;
+
+    private CacheRealizacion(long generacion,
+                             Map<String, Set<OWLNamedIndividual>> instanciasPorClase,
+                             Map<String, Set<OWLClass>> tiposPorIndividuo,
+                             Map<String, List<String>> nombresPorClase,
+                             Map<String, Set<String>> nombresTiposPorIndividuo) {
+        this.generacion = generacion;
+        this.instanciasPorClase = instanciasPorClase;
+        this.tiposPorIndividuo = tiposPorIndividuo;
+        this.nombresPorClase = nombresPorClase;
+        this.nombresTiposPorIndividuo = nombresTiposPorIndividuo;
+    }
+
+    /**
+     * Realiza todos los individuos con el razonador; debe invocarse con el lock del razonador tomado
+     *
+     * @param namespace solo las entidades de este namespace se indexan por nombre corto
+     */
+    public static CacheRealizacion construir(long generacion,
+                                             OWLReasoner reasoner,
+                                             Collection<OWLNamedIndividual> individuos,
+                                             String namespace) {
+        Map<OWLNamedIndividual, Set<OWLClass>> tiposInferidos = new LinkedHashMap<>(individuos.size() * 2);
+        for (OWLNamedIndividual individuo : individuos) {
+            if (nombreCorto(individuo.getIRI().toString(), namespace) != null) {
+                tiposInferidos.put(individuo, reasoner.getTypes(individuo, false).getFlattened());
+            }
+        }
+        return indexar(generacion, tiposInferidos, namespace);
+    }
+
+    /**
+     * Indexa tipos ya inferidos (por ejemplo, leídos de un {@link SnapshotInferencias})
+     * sin consultar al razonador
+     */
+    public static CacheRealizacion indexar(long generacion,
+                                           Map<OWLNamedIndividual, Set<OWLClass>> tiposInferidos,
+                                           String namespace) {
+        Map<String, Set<OWLNamedIndividual>> instancias = new HashMap<>();
+        Map<String, Set<OWLClass>> tipos = new HashMap<>(tiposInferidos.size() * 2);
+        Map<String, Set<String>> nombresTipos = new HashMap<>(tiposInferidos.size() * 2);
+
+        for (Map.Entry<OWLNamedIndividual, Set<OWLClass>> entrada : tiposInferidos.entrySet()) {
+            OWLNamedIndividual individuo = entrada.getKey();
+            String nombre = nombreCorto(individuo.getIRI().toString(), namespace);
+            if (nombre == null) {
+                continue;
+            }
+
+            Set<OWLClass> clases = entrada.getValue();
+            tipos.put(nombre, Collections.unmodifiableSet(clases));
+
+            Set<String> nombresClases = new LinkedHashSet<>();
+            for (OWLClass clase : clases) {
+                nombresClases.add(clase.getIRI().getShortForm().intern());
+                String nombreClase = nombreCorto(clase.getIRI().toString(), namespace);
+                if (nombreClase != null) {
+                    instancias.computeIfAbsent(nombreClase, c -> new HashSet<>()).add(individuo);
+                }
+            }
+            nombresTipos.put(nombre, Collections.unmodifiableSet(nombresClases));
+        }
+
+        Map<String, Set<OWLNamedIndividual>> instanciasInmutables = new HashMap<>(instancias.size() * 2);
+        Map<String, List<String>> nombres = new HashMap<>(instancias.size() * 2);
+        instancias.forEach((clase, miembros) -> {
+            instanciasInmutables.put(clase, Collections.unmodifiableSet(miembros));
+            nombres.put(clase, miembros.stream()
+                    .map(ind -> ind.getIRI().getShortForm())
+                    .sorted()
+                    .toList());
+        });
+
+        return new CacheRealizacion(generacion, instanciasInmutables, tipos, nombres, nombresTipos);
+    }
+
+    /**
+     * Copia de esta realización para otra generación con los tipos de algunos individuos reemplazados.
+     * Solo se rehacen los índices de esos individuos y de las clases que ganan o pierden instancias;
+     * el resto se comparte con la generación anterior
+     *
+     * @param actualizados individuo → todas sus clases, recién consultadas al razonador
+     */
+    public CacheRealizacion conTipos(long generacion,
+                                     Map<OWLNamedIndividual, Set<OWLClass>> actualizados,
+                                     String namespace) {
+        Map<String, Set<OWLNamedIndividual>> instancias = new HashMap<>(instanciasPorClase);
+        Map<String, Set<OWLClass>> tipos = new HashMap<>(tiposPorIndividuo);
+        Map<String, Set<String>> nombresTipos = new HashMap<>(nombresTiposPorIndividuo);
+        Map<String, List<String>> nombres = new HashMap<>(nombresPorClase);
+        Map<String, Set<OWLNamedIndividual>> clasesTocadas = new HashMap<>();
+
+        for (Map.Entry<OWLNamedIndividual, Set<OWLClass>> entrada : actualizados.entrySet()) {
+            OWLNamedIndividual individuo = entrada.getKey();
+            String nombre = nombreCorto(individuo.getIRI().toString(), namespace);
+            if (nombre == null) {
+                continue;
+            }
+
+            for (OWLClass clase : tiposPorIndividuo.getOrDefault(nombre, Set.of())) {
+                String nombreClase = nombreCorto(clase.getIRI().toString(), namespace);
+                if (nombreClase != null) {
+                    clasesTocadas.computeIfAbsent(nombreClase, c -> new HashSet<>(getInstancias(c))).remove(individuo);
+                }
+            }
+
+            Set<OWLClass> clases = entrada.getValue();
+            Set<String> nombresClases = new LinkedHashSet<>();
+            for (OWLClass clase : clases) {
+                nombresClases.add(clase.getIRI().getShortForm().intern());
+                String nombreClase = nombreCorto(clase.getIRI().toString(), namespace);
+                if (nombreClase != null) {
+                    clasesTocadas.computeIfAbsent(nombreClase, c -> new HashSet<>(getInstancias(c))).add(individuo);
+                }
+            }
+            tipos.put(nombre, Collections.unmodifiableSet(clases));
+            nombresTipos.put(nombre, Collections.unmodifiableSet(nombresClases));
+        }
+
+        clasesTocadas.forEach((clase, miembros) -> {
+            if (miembros.isEmpty()) {
+                instancias.remove(clase);
+                nombres.remove(clase);
+                return;
+            }
+            instancias.put(clase, Collections.unmodifiableSet(miembros));
+            nombres.put(clase, miembros.stream()
+                    .map(ind -> ind.getIRI().getShortForm())
+                    .sorted()
+                    .toList());
+        });
+
+        return new CacheRealizacion(generacion, instancias, tipos, nombres, nombresTipos);
+    }
+
+    /**
+     * Nombre corto (internado) de una IRI del namespace, o null si pertenece a otro
+     */
+    private static String nombreCorto(String iri, String namespace) {
+        if (!iri.startsWith(namespace) || iri.length() == namespace.length()) {
+            return null;
+        }
+        return iri.substring(namespace.length()).intern();
+    }
+
+    public long getGeneracion() {
+        return generacion;
+    }
+
+    /**
+     * Instancias directas e inferidas de una clase
+     */
+    public Set<OWLNamedIndividual> getInstancias(String clase) {
+        return instanciasPorClase.getOrDefault(clase, Set.of());
+    }
+
+    /**
+     * Nombres cortos de las instancias de una clase, ordenados
+     */
+    public List<String> getNombresInstancias(String clase) {
+        return nombresPorClase.getOrDefault(clase, List.of());
+    }
+
+    /**
+     * Todas las clases (directas e inferidas) de un individuo
+     */
+    public Set<OWLClass> getTipos(String individuo) {
+        return tiposPorIndividuo.getOrDefault(individuo, Set.of());
+    }
+
+    /**
+     * Nombres cortos de todas las clases de un individuo
+     */
+    public Set<String> getNombresTipos(String individuo) {
+        return nombresTiposPorIndividuo.getOrDefault(individuo, Set.of());
+    }
+
+    public boolean esInstancia(String individuo, String clase) {
+        return getNombresTipos(individuo).contains(clase);
+    }
+
+    /**
+     * Individuo (nombre corto) → todas sus clases, para volcarlo en un snapshot
+     */
+    public Map<String, Set<OWLClass>> getTiposPorIndividuo() {
+        return Collections.unmodifiableMap(tiposPorIndividuo);
+    }
+
+    public int getTotalIndividuos() {
+        return tiposPorIndividuo.size();
+    }
+
+    public int getTotalClases() {
+        return instanciasPorClase.size();
+    }
+}
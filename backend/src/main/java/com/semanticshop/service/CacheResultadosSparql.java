@@ -0,0 +1,175 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Caché acotada de resultados SPARQL (SELECT y ASK).
+ * La clave incluye la versión del modelo sobre el que se ejecutó la consulta, así que
+ * cualquier sincronización o delta que publique una versión nueva deja inalcanzables los
+ * resultados anteriores; al observar una versión nueva de un modelo se purgan sus entradas
+ * viejas. El tamaño se controla por peso (celdas de resultado) con desalojo LRU.
+ */
+@Service
+@Slf4j
+public class CacheResultadosSparql {
+
+    /**
+     * Clave de un resultado
+     *
+     * @param modelo     modelo consultado ("ontologia", "analisis")
+     * @param version    versión del modelo al ejecutar
+     * @param consulta   texto normalizado o nombre de la consulta preparada
+     * @param parametros valores ligados, como texto
+     */
+    public record Clave(String modelo, long version, String consulta, Map<String, String> parametros) {
+    }
+
+    private record Entrada(Object valor, long peso) {
+    }
+
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final long pesoMaximo;
+    private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Long> versionesVigentes = new HashMap<>();
+    private long pesoActual;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public CacheResultadosSparql(@Value("${sparql.cache.peso-maximo:200000}") long pesoMaximo) {
+        this.pesoMaximo = pesoMaximo;
+    }
+
+    /**
+     * Clave para un texto SPARQL: espacios colapsados para que variantes de formato compartan entrada
+     */
+    public static Clave clave(String modelo, long version, String sparql) {
+        return new Clave(modelo, version, ESPACIOS.matcher(sparql.trim()).replaceAll(" "), Map.of());
+    }
+
+    /**
+     * Clave para una consulta preparada con sus parámetros
+     */
+    public static Clave clave(String modelo, long version, String nombre, Map<String, ?> parametros) {
+        Map<String, String> texto = new TreeMap<>();
+        parametros.forEach((variable, valor) -> texto.put(variable, String.valueOf(valor)));
+        return new Clave(modelo, version, nombre, Map.copyOf(texto));
+    }
+
+    /**
+     * Devuelve el resultado cacheado para la clave o lo calcula y lo guarda
+     */
+    public List<Map<String, String>> obtenerFilas(Clave clave, Supplier<List<Map<String, String>>> calculo) {
+        return obtener(clave, () -> inmutable(calculo.get()),
+                filas -> filas.stream().mapToLong(fila -> fila.size() + 1L).sum());
+    }
+
+    /**
+     * Devuelve el resultado ASK cacheado para la clave o lo calcula y lo guarda
+     */
+    public boolean obtenerBooleano(Clave clave, Supplier<Boolean> calculo) {
+        return obtener(clave, calculo, valor -> 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T obtener(Clave clave, Supplier<T> calculo, ToLongFunction<T> peso) {
+        if (pesoMaximo <= 0) {
+            return calculo.get();
+        }
+
+        synchronized (this) {
+            purgarVersionesAnteriores(clave.modelo(), clave.version());
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null) {
+                aciertos.incrementAndGet();
+                return (T) entrada.valor();
+            }
+        }
+
+        // Se calcula fuera del monitor: dos fallos simultáneos pueden calcular lo mismo dos veces
+        fallos.incrementAndGet();
+        T valor = calculo.get();
+        long pesoValor = peso.applyAsLong(valor);
+        if (pesoValor > pesoMaximo) {
+            return valor;
+        }
+
+        synchronized (this) {
+            if (versionesVigentes.getOrDefault(clave.modelo(), clave.version()) == clave.version()) {
+                Entrada anterior = entradas.put(clave, new Entrada(valor, pesoValor));
+                pesoActual += pesoValor - (anterior != null ? anterior.peso() : 0);
+                desalojar();
+            }
+        }
+        return valor;
+    }
+
+    private void purgarVersionesAnteriores(String modelo, long version) {
+        Long vigente = versionesVigentes.get(modelo);
+        if (vigente != null && vigente >= version) {
+            return;
+        }
+        versionesVigentes.put(modelo, version);
+        if (vigente == null) {
+            return;
+        }
+
+        int eliminadas = 0;
+        Iterator<Map.Entry<Clave, Entrada>> it = entradas.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Clave, Entrada> e = it.next();
+            if (e.getKey().modelo().equals(modelo) && e.getKey().version() < version) {
+                pesoActual -= e.getValue().peso();
+                it.remove();
+                eliminadas++;
+            }
+        }
+        invalidaciones.addAndGet(eliminadas);
+        log.debug("🧹 Caché SPARQL: modelo {} pasó a la versión {}, {} resultados invalidados", modelo, version, eliminadas);
+    }
+
+    private void desalojar() {
+        Iterator<Map.Entry<Clave, Entrada>> it = entradas.entrySet().iterator();
+        while (pesoActual > pesoMaximo && it.hasNext()) {
+            pesoActual -= it.next().getValue().peso();
+            it.remove();
+            desalojos.incrementAndGet();
+        }
+    }
+
+    private static List<Map<String, String>> inmutable(List<Map<String, String>> filas) {
+        List<Map<String, String>> copia = new ArrayList<>(filas.size());
+        for (Map<String, String> fila : filas) {
+            copia.add(Collections.unmodifiableMap(fila));
+        }
+        return Collections.unmodifiableList(copia);
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        long totalAciertos = aciertos.get();
+        long total = totalAciertos + fallos.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("entradas", entradas.size());
+            stats.put("peso", pesoActual);
+        }
+        stats.put("pesoMaximo", pesoMaximo);
+        stats.put("aciertos", totalAciertos);
+        stats.put("fallos", fallos.get());
+        stats.put("tasaAciertos", total == 0 ? 0.0 : (double) totalAciertos / total);
+        stats.put("desalojos", desalojos.get());
+        stats.put("invalidaciones", invalidaciones.get());
+        return stats;
+    }
+}
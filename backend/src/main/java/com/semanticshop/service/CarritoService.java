@@ -13,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -28,6 +29,7 @@ public class CarritoService {
 
     private final CarritoRepository carritoRepository;
     private final ProductoService productoService;
+    private final InventarioService inventarioService;
 
     /**
      * Agregar un producto al carrito
@@ -40,10 +42,10 @@ public class CarritoService {
         ProductoDTO producto = productoService.getProductoById(productoId)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado: " + productoId));
 
-        // Verificar stock disponible
-        if (producto.getStock() == null || producto.getStock() < cantidad) {
-            throw new RuntimeException("Stock insuficiente. Disponible: " + 
-                (producto.getStock() != null ? producto.getStock() : 0));
+        // Verificar stock disponible según el libro de inventario
+        int disponible = inventarioService.disponible(producto);
+        if (disponible < cantidad) {
+            throw new RuntimeException("Stock insuficiente. Disponible: " + disponible);
         }
 
         // Buscar si el producto ya está en el carrito
@@ -57,8 +59,8 @@ public class CarritoService {
             int nuevaCantidad = carrito.getCantidad() + cantidad;
             
             // Verificar stock para la nueva cantidad
-            if (producto.getStock() < nuevaCantidad) {
-                throw new RuntimeException("Stock insuficiente para la cantidad solicitada. Disponible: " + producto.getStock());
+            if (disponible < nuevaCantidad) {
+                throw new RuntimeException("Stock insuficiente para la cantidad solicitada. Disponible: " + disponible);
             }
             
             carrito.setCantidad(nuevaCantidad);
@@ -86,9 +88,7 @@ public class CarritoService {
 
         List<Carrito> items = carritoRepository.findByUsuarioOrderByFechaAgregadoDesc(usuario);
 
-        List<CarritoItemDTO> itemsDTO = items.stream()
-                .map(this::convertirACarritoItemDTOConProducto)
-                .collect(Collectors.toList());
+        List<CarritoItemDTO> itemsDTO = convertirACarritoItemsDTO(items);
 
         // Calcular totales
         int cantidadTotal = itemsDTO.stream()
@@ -130,9 +130,9 @@ public class CarritoService {
         ProductoDTO producto = productoService.getProductoById(productoId)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado: " + productoId));
 
-        if (producto.getStock() == null || producto.getStock() < nuevaCantidad) {
-            throw new RuntimeException("Stock insuficiente. Disponible: " + 
-                (producto.getStock() != null ? producto.getStock() : 0));
+        int disponible = inventarioService.disponible(producto);
+        if (disponible < nuevaCantidad) {
+            throw new RuntimeException("Stock insuficiente. Disponible: " + disponible);
         }
 
         carrito.actualizarCantidad(nuevaCantidad);
@@ -174,10 +174,12 @@ public class CarritoService {
     public Double calcularTotal(Usuario usuario) {
         List<Carrito> items = carritoRepository.findByUsuarioOrderByFechaAgregadoDesc(usuario);
 
+        Map<String, ProductoDTO> productos = productoService.getProductosByIds(idsDeProductos(items));
+
         return items.stream()
                 .mapToDouble(item -> {
-                    Optional<ProductoDTO> producto = productoService.getProductoById(item.getProductoId());
-                    return producto.map(p -> p.getPrecio() * item.getCantidad()).orElse(0.0);
+                    ProductoDTO producto = productos.get(item.getProductoId());
+                    return producto != null ? producto.getPrecio() * item.getCantidad() : 0.0;
                 })
                 .sum();
     }
@@ -200,21 +202,22 @@ public class CarritoService {
 
         List<Carrito> items = carritoRepository.findByUsuarioOrderByFechaAgregadoDesc(usuario);
         List<String> errores = new ArrayList<>();
+        Map<String, ProductoDTO> productos = productoService.getProductosByIds(idsDeProductos(items));
 
         for (Carrito item : items) {
-            Optional<ProductoDTO> productoOpt = productoService.getProductoById(item.getProductoId());
-            
-            if (productoOpt.isEmpty()) {
+            ProductoDTO producto = productos.get(item.getProductoId());
+
+            if (producto == null) {
                 errores.add("Producto no encontrado: " + item.getProductoId());
                 continue;
             }
 
-            ProductoDTO producto = productoOpt.get();
-            if (producto.getStock() == null || producto.getStock() < item.getCantidad()) {
+            int disponible = inventarioService.disponible(producto);
+            if (disponible < item.getCantidad()) {
                 errores.add(String.format("%s - Stock insuficiente. Solicitado: %d, Disponible: %d",
                         producto.getNombre(),
                         item.getCantidad(),
-                        producto.getStock() != null ? producto.getStock() : 0));
+                        disponible));
             }
         }
 
@@ -237,26 +240,16 @@ public class CarritoService {
         List<Carrito> items = carritoRepository.findByUsuarioOrderByFechaAgregadoDesc(usuario);
         List<String> advertencias = new ArrayList<>();
 
-        // Verificar incompatibilidades entre productos
-        for (int i = 0; i < items.size(); i++) {
-            for (int j = i + 1; j < items.size(); j++) {
-                String producto1 = items.get(i).getProductoId();
-                String producto2 = items.get(j).getProductoId();
-
-                // Verificar si son incompatibles usando el servicio de productos
-                boolean compatibles = productoService.sonCompatibles(producto1, producto2);
-                
-                if (!compatibles) {
-                    Optional<ProductoDTO> p1 = productoService.getProductoById(producto1);
-                    Optional<ProductoDTO> p2 = productoService.getProductoById(producto2);
-                    
-                    String nombre1 = p1.map(ProductoDTO::getNombre).orElse(producto1);
-                    String nombre2 = p2.map(ProductoDTO::getNombre).orElse(producto2);
-                    
-                    advertencias.add(String.format("⚠️ %s podría no ser compatible con %s", 
-                            nombre1, nombre2));
-                }
-            }
+        // Pares no compatibles según el grafo de compatibilidad del catálogo vigente
+        CatalogoSnapshot catalogo = productoService.getCatalogo();
+        List<String> productos = items.stream().map(Carrito::getProductoId).collect(Collectors.toList());
+
+        for (GrafoCompatibilidad.ParProductos par : catalogo.getCompatibilidad().paresNoCompatibles(productos)) {
+            String nombre1 = catalogo.getProducto(par.producto1()).map(ProductoDTO::getNombre).orElse(par.producto1());
+            String nombre2 = catalogo.getProducto(par.producto2()).map(ProductoDTO::getNombre).orElse(par.producto2());
+
+            advertencias.add(String.format("⚠️ %s podría no ser compatible con %s",
+                    nombre1, nombre2));
         }
 
         if (advertencias.isEmpty()) {
@@ -290,10 +283,36 @@ public class CarritoService {
     // MÉTODOS PRIVADOS DE CONVERSIÓN
     // ============================================
 
-    private CarritoItemDTO convertirACarritoItemDTOConProducto(Carrito carrito) {
-        Optional<ProductoDTO> productoOpt = productoService.getProductoById(carrito.getProductoId());
-        
-        if (productoOpt.isEmpty()) {
+    private static List<String> idsDeProductos(List<Carrito> items) {
+        return items.stream().map(Carrito::getProductoId).collect(Collectors.toList());
+    }
+
+    /**
+     * Convierte todos los items resolviendo sus productos en un solo lote
+     */
+    private List<CarritoItemDTO> convertirACarritoItemsDTO(List<Carrito> items) {
+        Map<String, ProductoDTO> productos;
+        try {
+            productos = productoService.getProductosByIds(idsDeProductos(items));
+        } catch (OntologiaNoDisponibleException e) {
+            // El carrito se puede leer mientras arranca la ontología: sin datos del producto ni subtotal
+            return items.stream()
+                    .map(carrito -> CarritoItemDTO.builder()
+                            .id(carrito.getId())
+                            .productoId(carrito.getProductoId())
+                            .cantidad(carrito.getCantidad())
+                            .fechaAgregado(carrito.getFechaAgregado())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+
+        return items.stream()
+                .map(carrito -> convertirACarritoItemDTOConProducto(carrito, productos.get(carrito.getProductoId())))
+                .collect(Collectors.toList());
+    }
+
+    private CarritoItemDTO convertirACarritoItemDTOConProducto(Carrito carrito, ProductoDTO producto) {
+        if (producto == null) {
             // Producto no encontrado - crear DTO con información limitada
             return CarritoItemDTO.builder()
                     .id(carrito.getId())
@@ -306,11 +325,12 @@ public class CarritoService {
                     .build();
         }
 
-        return convertirACarritoItemDTO(carrito, productoOpt.get());
+        return convertirACarritoItemDTO(carrito, producto);
     }
 
     private CarritoItemDTO convertirACarritoItemDTO(Carrito carrito, ProductoDTO producto) {
-        boolean disponible = producto.getStock() != null && producto.getStock() >= carrito.getCantidad();
+        int stock = inventarioService.disponible(producto);
+        boolean disponible = stock >= carrito.getCantidad();
         double subtotal = producto.getPrecio() * carrito.getCantidad();
 
         return CarritoItemDTO.builder()
@@ -321,7 +341,7 @@ public class CarritoService {
                 .productoCategoria(producto.getCategoria())
                 .precio(producto.getPrecio())
                 .cantidad(carrito.getCantidad())
-                .stock(producto.getStock())
+                .stock(stock)
                 .subtotal(subtotal)
                 .fechaAgregado(carrito.getFechaAgregado())
                 .disponible(disponible)
@@ -0,0 +1,135 @@
+package com.semanticshop.service;
+
+import com.semanticshop.dto.ProductoDTO;
+
+import java.util.*;
+
+/**
+ * Vista inmutable del catálogo de productos para una generación de razonamiento.
+ * Se construye una sola vez después de ejecutar HermiT y se reemplaza completa
+ * cuando la ontología cambia, de modo que las lecturas no consultan al razonador.
+ */
+public final class CatalogoSnapshot {
+
+    private final long generacion;
+    private final List<ProductoDTO> productos;
+    private final Map<String, ProductoDTO> porId;
+    private final Map<String, List<ProductoDTO>> porClase;
+    private final GrafoCompatibilidad compatibilidad;
+
+    private CatalogoSnapshot(long generacion,
+                             List<ProductoDTO> productos,
+                             Map<String, ProductoDTO> porId,
+                             Map<String, List<ProductoDTO>> porClase) {
+        this.generacion = generacion;
+        this.productos = productos;
+        this.porId = porId;
+        this.porClase = porClase;
+        this.compatibilidad = GrafoCompatibilidad.construir(productos);
+    }
+
+    /**
+     * Construye el snapshot a partir de los productos convertidos y sus clases inferidas
+     *
+     * @param generacion generación del catálogo ({@link OntologyService#getGeneracionCatalogo()}) usada para construirlo
+     * @param clasesPorProducto id de producto → nombres cortos de todas sus clases inferidas
+     */
+    public static CatalogoSnapshot construir(long generacion,
+                                             Collection<ProductoDTO> productos,
+                                             Map<String, Set<String>> clasesPorProducto) {
+        List<ProductoDTO> ordenados = new ArrayList<>(productos);
+        ordenados.sort(Comparator.comparing(ProductoDTO::getNombre));
+
+        Map<String, ProductoDTO> porId = new HashMap<>();
+        Map<String, List<ProductoDTO>> porClase = new HashMap<>();
+
+        for (ProductoDTO producto : ordenados) {
+            porId.put(producto.getId(), producto);
+            for (String clase : clasesPorProducto.getOrDefault(producto.getId(), Set.of())) {
+                porClase.computeIfAbsent(clase, c -> new ArrayList<>()).add(producto);
+            }
+        }
+
+        // Cada clase queda ordenada por precio, igual que getProductosByCategoria
+        Map<String, List<ProductoDTO>> porClaseInmutable = new HashMap<>();
+        porClase.forEach((clase, lista) -> {
+            lista.sort(Comparator.comparing(ProductoDTO::getPrecio));
+            porClaseInmutable.put(clase, List.copyOf(lista));
+        });
+
+        return new CatalogoSnapshot(
+                generacion,
+                Collections.unmodifiableList(ordenados),
+                Collections.unmodifiableMap(porId),
+                Collections.unmodifiableMap(porClaseInmutable));
+    }
+
+    /**
+     * Catálogo sin productos, usado cuando la ontología no está disponible
+     */
+    public static CatalogoSnapshot vacio() {
+        return new CatalogoSnapshot(-1, List.of(), Map.of(), Map.of());
+    }
+
+    public long getGeneracion() {
+        return generacion;
+    }
+
+    /**
+     * Todos los productos ordenados por nombre
+     */
+    public List<ProductoDTO> getProductos() {
+        return productos;
+    }
+
+    public Optional<ProductoDTO> getProducto(String id) {
+        return Optional.ofNullable(porId.get(id));
+    }
+
+    /**
+     * Productos que pertenecen (directa o inferidamente) a una clase, ordenados por precio
+     */
+    public List<ProductoDTO> getProductosDeClase(String clase) {
+        return porClase.getOrDefault(clase, List.of());
+    }
+
+    /**
+     * Resuelve una colección de IDs a productos, ignorando los que no existen
+     */
+    public List<ProductoDTO> resolver(Collection<String> ids) {
+        List<ProductoDTO> resultado = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ProductoDTO producto = porId.get(id);
+            if (producto != null) {
+                resultado.add(producto);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Grafo de compatibilidad de los productos de esta generación
+     */
+    public GrafoCompatibilidad getCompatibilidad() {
+        return compatibilidad;
+    }
+
+    /**
+     * Resuelve una colección de IDs en un mapa ID → producto, en el orden de la colección;
+     * los IDs que no existen no aparecen
+     */
+    public Map<String, ProductoDTO> resolverPorId(Collection<String> ids) {
+        Map<String, ProductoDTO> resultado = new LinkedHashMap<>(ids.size() * 2);
+        for (String id : ids) {
+            ProductoDTO producto = porId.get(id);
+            if (producto != null) {
+                resultado.put(id, producto);
+            }
+        }
+        return resultado;
+    }
+
+    public int size() {
+        return productos.size();
+    }
+}
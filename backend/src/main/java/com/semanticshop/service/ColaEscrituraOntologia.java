@@ -0,0 +1,284 @@
+package com.semanticshop.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola asíncrona de escrituras sobre la ontología.
+ * Las solicitudes (por ejemplo la sincronización de un usuario recién registrado) se encolan
+ * y vuelven de inmediato con un {@link CompletableFuture}; un hilo de fondo junta las pendientes
+ * hasta {@code tamanoLote} o hasta que pasan {@code esperaMaximaMs} desde la primera, y las aplica
+ * todas con una sola pasada del razonador. Así una ráfaga de registros cuesta un razonamiento por lote
+ * y no uno por usuario. Si un lote falla, OntologyService deshace sus axiomas y las solicitudes
+ * se reintentan de a una para aislar la que falla.
+ * El último estado de cada clave se guarda como máximo {@code retencionEstadosMinutos} después
+ * de aplicarse o fallar, y nunca más de {@code maximoEstados} claves.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ColaEscrituraOntologia {
+
+    public enum Estado { PENDIENTE, APLICADO, ERROR }
+
+    /**
+     * Último estado conocido de las escrituras de una clave (normalmente el clienteId)
+     */
+    public record EstadoEscritura(Estado estado, Date actualizado, String error) {
+    }
+
+    private record Solicitud(long secuencia, String clave, List<OWLAxiom> axiomas, CompletableFuture<Void> resultado) {
+    }
+
+    /**
+     * Estado de una clave junto con la secuencia de la solicitud que lo produjo
+     */
+    private record Registro(long secuencia, EstadoEscritura estado) {
+    }
+
+    private final OntologyService ontologyService;
+
+    @Value("${ontology.escritura.tamano-lote:100}")
+    private int tamanoLote;
+
+    @Value("${ontology.escritura.espera-maxima-ms:200}")
+    private long esperaMaximaMs;
+
+    @Value("${ontology.escritura.espera-apagado-ms:10000}")
+    private long esperaApagadoMs;
+
+    @Value("${ontology.escritura.retencion-estados-minutos:60}")
+    private long retencionEstadosMinutos;
+
+    @Value("${ontology.escritura.maximo-estados:10000}")
+    private int maximoEstados;
+
+    private final BlockingQueue<Solicitud> pendientes = new LinkedBlockingQueue<>();
+    private final Map<String, Registro> estados = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    private final AtomicLong solicitudesEncoladas = new AtomicLong();
+    private final AtomicLong solicitudesAplicadas = new AtomicLong();
+    private final AtomicLong solicitudesFallidas = new AtomicLong();
+    private final AtomicLong lotesAplicados = new AtomicLong();
+    private volatile int tamanoUltimoLote;
+    private volatile long duracionUltimoLoteMs;
+
+    private Thread hiloLotes;
+    private volatile boolean activo;
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        hiloLotes = new Thread(this::procesar, "ontology-batcher");
+        hiloLotes.setDaemon(true);
+        hiloLotes.start();
+        log.info("📥 Cola de escritura de ontología iniciada (lote {} / {} ms)", tamanoLote, esperaMaximaMs);
+    }
+
+    /**
+     * Deja de aceptar solicitudes y espera hasta {@code esperaApagadoMs} a que se apliquen las encoladas.
+     * Las que no alcanzan a aplicarse se informan en el log; esos clientes se vuelven a sincronizar
+     * en su próximo login porque no quedaron en la ontología
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        if (hiloLotes == null) {
+            return;
+        }
+        try {
+            hiloLotes.join(esperaApagadoMs);
+            if (hiloLotes.isAlive()) {
+                log.warn("⏳ La cola de escritura no terminó en {} ms, se interrumpe", esperaApagadoMs);
+                hiloLotes.interrupt();
+                hiloLotes.join(esperaApagadoMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encola axiomas para aplicarlos en el próximo lote
+     *
+     * @param clave identificador usado para consultar el estado (por ejemplo el clienteId)
+     * @return future que se completa cuando los axiomas quedaron razonados
+     */
+    public CompletableFuture<Void> encolar(String clave, Collection<? extends OWLAxiom> axiomas) {
+        CompletableFuture<Void> resultado = new CompletableFuture<>();
+        if (!activo) {
+            resultado.completeExceptionally(new IllegalStateException("La cola de escritura está detenida"));
+            return resultado;
+        }
+
+        long numero = secuencia.incrementAndGet();
+        registrarEstado(numero, clave, new EstadoEscritura(Estado.PENDIENTE, new Date(), null));
+        pendientes.add(new Solicitud(numero, clave, List.copyOf(axiomas), resultado));
+        solicitudesEncoladas.incrementAndGet();
+        return resultado;
+    }
+
+    /**
+     * Estado de la última escritura encolada para una clave, si hubo alguna
+     */
+    public Optional<EstadoEscritura> getEstado(String clave) {
+        return Optional.ofNullable(estados.get(clave)).map(Registro::estado);
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendientes", pendientes.size());
+        stats.put("estadosRetenidos", estados.size());
+        stats.put("solicitudesEncoladas", solicitudesEncoladas.get());
+        stats.put("solicitudesAplicadas", solicitudesAplicadas.get());
+        stats.put("solicitudesFallidas", solicitudesFallidas.get());
+        stats.put("lotesAplicados", lotesAplicados.get());
+        stats.put("tamanoUltimoLote", tamanoUltimoLote);
+        stats.put("duracionUltimoLoteMs", duracionUltimoLoteMs);
+        stats.put("tamanoLote", tamanoLote);
+        stats.put("esperaMaximaMs", esperaMaximaMs);
+        return stats;
+    }
+
+    // ========== PROCESAMIENTO ==========
+
+    private void procesar() {
+        // Al detenerse se sigue hasta vaciar lo encolado
+        while (activo || !pendientes.isEmpty()) {
+            try {
+                List<Solicitud> lote = siguienteLote();
+                if (lote.isEmpty()) {
+                    continue;
+                }
+                aplicarLote(lote);
+                depurarEstados();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("❌ Error inesperado en la cola de escritura: {}", e.getMessage(), e);
+            }
+        }
+
+        // Lo que quedó sin aplicar no se completará nunca
+        List<Solicitud> restantes = new ArrayList<>();
+        pendientes.drainTo(restantes);
+        if (restantes.isEmpty()) {
+            return;
+        }
+        log.warn("⚠️ La cola de escritura se detuvo con {} solicitudes sin aplicar: {}", restantes.size(),
+                restantes.stream().map(Solicitud::clave).distinct().toList());
+        restantes.forEach(s -> registrarFallo(s, new IllegalStateException("La cola de escritura se detuvo")));
+    }
+
+    /**
+     * Espera la primera solicitud y junta las que lleguen hasta llenar el lote o agotar la espera.
+     * Devuelve un lote vacío si no llegó nada, para volver a mirar si la cola se detuvo
+     */
+    private List<Solicitud> siguienteLote() throws InterruptedException {
+        Solicitud primera = pendientes.poll(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        if (primera == null) {
+            return List.of();
+        }
+        List<Solicitud> lote = new ArrayList<>();
+        lote.add(primera);
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+        while (lote.size() < tamanoLote) {
+            pendientes.drainTo(lote, tamanoLote - lote.size());
+            long restante = limite - System.nanoTime();
+            if (lote.size() >= tamanoLote || restante <= 0) {
+                break;
+            }
+            Solicitud siguiente = pendientes.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+        }
+        return lote;
+    }
+
+    private void aplicarLote(List<Solicitud> lote) {
+        long inicio = System.currentTimeMillis();
+        Set<OWLAxiom> axiomas = new LinkedHashSet<>();
+        lote.forEach(s -> axiomas.addAll(s.axiomas()));
+
+        try {
+            ontologyService.aplicarAxiomas(axiomas);
+        } catch (Exception e) {
+            log.error("❌ Error aplicando lote de {} solicitudes: {}", lote.size(), e.getMessage());
+            if (lote.size() > 1) {
+                // Se reintenta de a una para aislar la solicitud que falla
+                lote.forEach(s -> aplicarLote(List.of(s)));
+                return;
+            }
+            registrarFallo(lote.get(0), e);
+            return;
+        }
+
+        Date ahora = new Date();
+        for (Solicitud s : lote) {
+            registrarEstado(s.secuencia(), s.clave(), new EstadoEscritura(Estado.APLICADO, ahora, null));
+            s.resultado().complete(null);
+        }
+
+        solicitudesAplicadas.addAndGet(lote.size());
+        lotesAplicados.incrementAndGet();
+        tamanoUltimoLote = lote.size();
+        duracionUltimoLoteMs = System.currentTimeMillis() - inicio;
+        log.info("✅ Lote de {} solicitudes ({} axiomas) aplicado en {} ms",
+                lote.size(), axiomas.size(), duracionUltimoLoteMs);
+    }
+
+    private void registrarFallo(Solicitud solicitud, Exception e) {
+        registrarEstado(solicitud.secuencia(), solicitud.clave(),
+                new EstadoEscritura(Estado.ERROR, new Date(), e.getMessage()));
+        solicitudesFallidas.incrementAndGet();
+        solicitud.resultado().completeExceptionally(e);
+    }
+
+    /**
+     * Guarda el estado de una clave solo si viene de una solicitud igual o más nueva que la registrada:
+     * el APLICADO de un lote viejo no pisa el PENDIENTE de un reintento encolado después
+     */
+    private void registrarEstado(long numero, String clave, EstadoEscritura estado) {
+        estados.compute(clave, (c, actual) ->
+                actual == null || actual.secuencia() <= numero ? new Registro(numero, estado) : actual);
+    }
+
+    /**
+     * Quita los estados terminados hace más de la retención y, si aún se supera el máximo,
+     * los terminados más viejos. Los PENDIENTE se conservan hasta resolverse
+     */
+    private void depurarEstados() {
+        long limite = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retencionEstadosMinutos);
+        estados.entrySet().removeIf(e -> terminado(e.getValue()) && e.getValue().estado().actualizado().getTime() < limite);
+
+        int excedente = estados.size() - maximoEstados;
+        if (excedente <= 0) {
+            return;
+        }
+        estados.entrySet().stream()
+                .filter(e -> terminado(e.getValue()))
+                .sorted(Comparator.comparingLong(e -> e.getValue().secuencia()))
+                .limit(excedente)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(clave -> estados.computeIfPresent(clave, (c, r) -> terminado(r) ? null : r));
+    }
+
+    private static boolean terminado(Registro registro) {
+        return registro.estado().estado() != Estado.PENDIENTE;
+    }
+}
@@ -0,0 +1,358 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Substitute;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingRoot;
+import org.apache.jena.sparql.engine.main.QC;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de las consultas SPARQL fijas de analítica.
+ * Cada consulta se parsea, compila a álgebra y optimiza una sola vez al arrancar; en cada
+ * petición solo se sustituyen los parámetros en el Op compilado y se ejecuta, sin volver a
+ * parsear. Los parámetros son variables de la consulta ({@code $precioMin}) que se ligan a
+ * literales tipados, nunca texto concatenado en la consulta.
+ */
+@Service
+@Slf4j
+public class ConsultasSparqlPreparadas {
+
+    private static final String PREFIJOS = """
+            PREFIX : <http://www.semanticshop.com/ontology#>
+            PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>
+            PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>
+            """;
+
+    /**
+     * Consulta compilada: Op optimizado, variables proyectadas y parámetros que exige
+     */
+    private record ConsultaPreparada(String nombre, Op op, List<Var> variables, Set<String> parametros) {
+    }
+
+    private final Map<String, ConsultaPreparada> consultas = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void inicializar() {
+        long inicio = System.currentTimeMillis();
+
+        // ========== ANÁLISIS DE VENTAS (AnalisisController) ==========
+
+        registrar("ventas-por-categoria", """
+                SELECT ?categoria (COUNT(?pedido) as ?totalPedidos) (SUM(?monto) as ?montoTotal)
+                WHERE {
+                    ?producto :perteneceACategoria ?cat .
+                    ?cat rdfs:label ?categoria .
+                    ?pedido :contieneProducto ?producto .
+                    ?pedido :montoTotal ?monto .
+                }
+                GROUP BY ?categoria
+                ORDER BY DESC(?montoTotal)
+                """);
+
+        registrar("productos-mas-vendidos", """
+                SELECT ?nombreProducto (COUNT(?pedido) as ?totalVentas)
+                WHERE {
+                    ?producto :nombre ?nombreProducto .
+                    ?pedido :contieneProducto ?producto .
+                }
+                GROUP BY ?nombreProducto
+                ORDER BY DESC(?totalVentas)
+                LIMIT 10
+                """);
+
+        registrar("clientes-premium", """
+                SELECT ?nombreCliente (COUNT(?pedido) as ?totalPedidos) (SUM(?monto) as ?totalGastado)
+                WHERE {
+                    ?cliente a :ClientePremium .
+                    ?cliente :nombre ?nombreCliente .
+                    ?cliente :realizoPedido ?pedido .
+                    ?pedido :montoTotal ?monto .
+                }
+                GROUP BY ?nombreCliente
+                ORDER BY DESC(?totalGastado)
+                """);
+
+        registrar("productos-rango-precio-marca", """
+                SELECT ?nombre ?precio ?marca
+                WHERE {
+                    ?producto :nombre ?nombre .
+                    ?producto :precio ?precio .
+                    OPTIONAL {
+                        ?producto :tieneMarca ?m .
+                        ?m rdfs:label ?marca
+                    }
+                    FILTER(?precio >= $precioMin && ?precio <= $precioMax)
+                }
+                ORDER BY ?precio
+                """, "precioMin", "precioMax");
+
+        // Stock del catálogo (ontología): no refleja reservas ni ventas del libro de inventario
+        registrar("productos-bajo-stock", """
+                SELECT ?nombre ?stock ?precio
+                WHERE {
+                    ?producto :nombre ?nombre .
+                    ?producto :stock ?stock .
+                    ?producto :precio ?precio .
+                    FILTER(?stock <= $stockMinimo && ?stock > 0)
+                }
+                ORDER BY ?stock
+                """, "stockMinimo");
+
+        registrar("marcas-populares", """
+                SELECT ?marca (COUNT(?producto) as ?totalProductos) (COUNT(?pedido) as ?totalVentas)
+                WHERE {
+                    ?producto :tieneMarca ?m .
+                    ?m rdfs:label ?marca .
+                    OPTIONAL {
+                        ?pedido :contieneProducto ?producto .
+                    }
+                }
+                GROUP BY ?marca
+                ORDER BY DESC(?totalVentas)
+                """);
+
+        registrar("pedidos-por-estado", """
+                SELECT ?estado (COUNT(?pedido) as ?cantidad)
+                WHERE {
+                    ?pedido a :Pedido .
+                    ?pedido :estadoPedido ?estado .
+                }
+                GROUP BY ?estado
+                ORDER BY DESC(?cantidad)
+                """);
+
+        // ========== ANALÍTICA DEL ENDPOINT SPARQL (SparqlController) ==========
+
+        registrar("todos-productos", """
+                SELECT DISTINCT ?producto ?tipo
+                WHERE {
+                  ?producto rdf:type ?tipo .
+                  ?tipo rdfs:subClassOf* :Producto .
+                  FILTER (?tipo != :Producto)
+                  FILTER (!isBlank(?producto))
+                }
+                ORDER BY ?producto
+                """);
+
+        registrar("productos-por-marca", """
+                SELECT ?marca (COUNT(DISTINCT ?producto) as ?cantidad)
+                WHERE {
+                  ?producto :tieneMarca ?marca .
+                }
+                GROUP BY ?marca
+                ORDER BY DESC(?cantidad)
+                """);
+
+        registrar("productos-por-categoria", """
+                SELECT ?categoria (COUNT(DISTINCT ?producto) as ?cantidad)
+                WHERE {
+                  ?producto rdf:type ?categoria .
+                  ?categoria rdfs:subClassOf+ :Producto .
+                  FILTER (?categoria NOT IN (:Producto, :Computadora, :Accesorio))
+                }
+                GROUP BY ?categoria
+                ORDER BY DESC(?cantidad)
+                """);
+
+        registrar("preferencias-clientes", """
+                SELECT ?cliente ?marcaPreferida ?soPreferido
+                WHERE {
+                  ?cliente :tieneMarcaPreferida ?marcaPreferida .
+                  OPTIONAL { ?cliente :tienePreferencia ?soPreferido }
+                }
+                """);
+
+        registrar("productos-precio-rango", """
+                SELECT ?producto ?nombre ?precio
+                WHERE {
+                  ?producto :precio ?precio .
+                  OPTIONAL { ?producto :nombre ?nombre }
+                  FILTER (?precio >= $precioMin && ?precio <= $precioMax)
+                }
+                ORDER BY ?precio
+                """, "precioMin", "precioMax");
+
+        registrar("compatibilidad", """
+                SELECT ?producto1 ?producto2
+                WHERE {
+                  ?producto1 :esCompatibleCon ?producto2 .
+                }
+                """);
+
+        registrar("incompatibilidad", """
+                SELECT ?producto1 ?producto2
+                WHERE {
+                  ?producto1 :esIncompatibleCon ?producto2 .
+                }
+                """);
+
+        registrar("recomendaciones-activas", """
+                SELECT ?cliente ?producto
+                WHERE {
+                  ?cliente :productoRecomendado ?producto .
+                }
+                """);
+
+        registrar("productos-de-clase", """
+                SELECT ?producto ?nombre ?precio ?marca
+                WHERE {
+                  ?producto rdf:type $clase .
+                  OPTIONAL { ?producto :nombre ?nombre }
+                  OPTIONAL { ?producto :precio ?precio }
+                  OPTIONAL { ?producto :tieneMarca ?marca }
+                }
+                """, "clase");
+
+        registrar("clientes", """
+                SELECT ?cliente ?nombre ?email ?marca ?so
+                WHERE {
+                  ?cliente rdf:type :Cliente .
+                  OPTIONAL { ?cliente :nombre ?nombre }
+                  OPTIONAL { ?cliente :email ?email }
+                  OPTIONAL { ?cliente :tieneMarcaPreferida ?marca }
+                  OPTIONAL { ?cliente :tienePreferencia ?so }
+                }
+                """);
+
+        registrar("pedidos", """
+                SELECT ?pedido ?producto ?cantidad ?monto ?estado ?fecha
+                WHERE {
+                  ?pedido rdf:type :Pedido .
+                  OPTIONAL { ?pedido :contieneProducto ?producto }
+                  OPTIONAL { ?pedido :cantidadProducto ?cantidad }
+                  OPTIONAL { ?pedido :montoTotal ?monto }
+                  OPTIONAL { ?pedido :estadoPedido ?estado }
+                  OPTIONAL { ?pedido :fechaPedido ?fecha }
+                }
+                ORDER BY ?pedido
+                """);
+
+        log.info("📑 {} consultas SPARQL preparadas en {} ms", consultas.size(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Parsea, compila y optimiza una consulta SELECT y la deja registrada con su nombre
+     *
+     * @param parametros variables que deben ligarse en cada ejecución
+     */
+    public void registrar(String nombre, String sparql, String... parametros) {
+        Query query = QueryFactory.create(PREFIJOS + sparql);
+        if (!query.isSelectType()) {
+            throw new IllegalArgumentException("Solo se preparan consultas SELECT: " + nombre);
+        }
+        Op op = Algebra.optimize(Algebra.compile(query));
+        consultas.put(nombre, new ConsultaPreparada(nombre, op, List.copyOf(query.getProjectVars()),
+                Set.of(parametros)));
+    }
+
+    /**
+     * Ejecuta una consulta sin parámetros
+     */
+    public List<Map<String, String>> ejecutar(String nombre, Model modelo) {
+        return ejecutar(nombre, modelo, Map.of());
+    }
+
+    /**
+     * Ejecuta una consulta preparada sobre el modelo dado.
+     * El llamador es responsable de la sección crítica de lectura sobre el modelo.
+     *
+     * @param parametros valores de los parámetros: números, cadenas o {@link Node} (p. ej. IRIs)
+     */
+    public List<Map<String, String>> ejecutar(String nombre, Model modelo, Map<String, ?> parametros) {
+        ConsultaPreparada consulta = consultas.get(nombre);
+        if (consulta == null) {
+            throw new IllegalArgumentException("Consulta SPARQL no registrada: " + nombre);
+        }
+        if (!parametros.keySet().equals(consulta.parametros())) {
+            throw new IllegalArgumentException("Parámetros inválidos para " + nombre + ": se esperaban "
+                    + consulta.parametros() + " y se recibieron " + parametros.keySet());
+        }
+
+        Op op = consulta.op();
+        if (!parametros.isEmpty()) {
+            BindingBuilder builder = Binding.builder();
+            parametros.forEach((variable, valor) -> builder.add(Var.alloc(variable), aNodo(valor)));
+            op = Substitute.substitute(op, builder.build());
+        }
+
+        DatasetGraph dataset = DatasetGraphFactory.wrap(modelo.getGraph());
+        List<Map<String, String>> resultados = new ArrayList<>();
+        QueryIterator iterador = QC.execute(op, BindingRoot.create(), new ExecutionContext(dataset));
+        try {
+            while (iterador.hasNext()) {
+                Map<String, String> fila = aFila(iterador.next(), consulta.variables());
+                if (!fila.isEmpty()) {
+                    resultados.add(fila);
+                }
+            }
+        } finally {
+            iterador.close();
+        }
+        return resultados;
+    }
+
+    public Set<String> getNombres() {
+        return Collections.unmodifiableSet(consultas.keySet());
+    }
+
+    private static Node aNodo(Object valor) {
+        if (valor instanceof Node nodo) {
+            return nodo;
+        }
+        if (valor instanceof Double || valor instanceof Float) {
+            return NodeFactory.createLiteral(valor.toString(), XSDDatatype.XSDdouble);
+        }
+        if (valor instanceof Integer || valor instanceof Long) {
+            return NodeFactory.createLiteral(valor.toString(), XSDDatatype.XSDinteger);
+        }
+        if (valor instanceof String texto) {
+            return NodeFactory.createLiteral(texto);
+        }
+        throw new IllegalArgumentException("Tipo de parámetro no soportado: " + valor.getClass().getSimpleName());
+    }
+
+    /**
+     * Convierte una fila a nombres cortos: literales por su forma léxica e IRIs por su fragmento
+     */
+    static Map<String, String> aFila(Binding binding, List<Var> variables) {
+        Map<String, String> fila = new HashMap<>();
+        for (Var variable : variables) {
+            Node nodo = binding.get(variable);
+            if (nodo != null) {
+                fila.put(variable.getVarName(), aTexto(nodo));
+            }
+        }
+        return fila;
+    }
+
+    public static String aTexto(Node nodo) {
+        if (nodo.isLiteral()) {
+            return nodo.getLiteralLexicalForm();
+        }
+        if (nodo.isURI()) {
+            String uri = nodo.getURI();
+            int almohadilla = uri.indexOf('#');
+            return almohadilla >= 0 ? uri.substring(almohadilla + 1) : uri;
+        }
+        return nodo.toString();
+    }
+}
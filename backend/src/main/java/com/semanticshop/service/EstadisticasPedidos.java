@@ -0,0 +1,234 @@
+package com.semanticshop.service;
+
+import com.semanticshop.model.EstadoPedido;
+import com.semanticshop.repository.PedidoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cantidad de pedidos y ventas por estado, mantenidas en memoria.
+ * Se cargan con una sola consulta agrupada la primera vez que se piden y después se actualizan
+ * cuando se crea un pedido o cambia su estado (tras el commit), así el panel de administración
+ * no vuelve a recorrer la tabla de pedidos. Cada {@code recalcularMinutos} se recargan desde la base
+ * para corregir lo que se haya escrito por fuera de {@link PedidoService}.
+ * Para que la recarga no se cruce con los cambios que llegan tras el commit, se cuentan las
+ * transacciones que empezaron a confirmar y las que terminaron: el resultado de la consulta solo
+ * se publica si ninguna estaba en vuelo ni empezó mientras corría, y se publica con el mismo lock
+ * que aplica los cambios; si no, se reintenta.
+ * Con {@code pedidos.estadisticas.en-memoria=false} cada lectura ejecuta la consulta agrupada.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EstadisticasPedidos {
+
+    private final PedidoRepository pedidoRepository;
+
+    @Value("${pedidos.estadisticas.en-memoria:true}")
+    private boolean enMemoria;
+
+    @Value("${pedidos.estadisticas.recalcular-minutos:10}")
+    private long recalcularMinutos;
+
+    private static final int INTENTOS_RECALCULO = 5;
+
+    private final AtomicReference<Resumen> actual = new AtomicReference<>();
+
+    // Transacciones con cambios registrados que empezaron a confirmar / que ya terminaron
+    private final AtomicLong confirmacionesIniciadas = new AtomicLong();
+    private final AtomicLong confirmacionesTerminadas = new AtomicLong();
+    private final Object cambiosLock = new Object();
+
+    private ScheduledExecutorService recalculador;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!enMemoria || recalcularMinutos <= 0) {
+            return;
+        }
+        recalculador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pedidos-estadisticas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        recalculador.scheduleWithFixedDelay(() -> {
+            try {
+                // Solo si ya se cargaron: si nadie las pidió no hace falta mantenerlas
+                if (actual.get() != null) {
+                    recalcular();
+                }
+            } catch (Exception e) {
+                log.error("❌ Error recalculando estadísticas de pedidos: {}", e.getMessage());
+            }
+        }, recalcularMinutos, recalcularMinutos, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (recalculador != null) {
+            recalculador.shutdownNow();
+        }
+    }
+
+    /**
+     * Cantidades y ventas vigentes por estado
+     */
+    public Resumen obtener() {
+        if (!enMemoria) {
+            return consultar();
+        }
+        Resumen resumen = actual.get();
+        return resumen != null ? resumen : recalcular();
+    }
+
+    /**
+     * Vuelve a cargar el resumen con la consulta agrupada. Si no logra una lectura sin transacciones
+     * en vuelo devuelve la última consulta sin publicarla y se conserva el resumen vigente
+     */
+    public Resumen recalcular() {
+        Resumen resumen = null;
+        for (int intento = 0; intento < INTENTOS_RECALCULO; intento++) {
+            long iniciadas = confirmacionesIniciadas.get();
+            if (confirmacionesTerminadas.get() != iniciadas) {
+                // Alguna transacción confirmó y todavía no aplicó su cambio: la consulta podría contarlo dos veces
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+
+            resumen = consultar();
+            synchronized (cambiosLock) {
+                if (confirmacionesIniciadas.get() == iniciadas) {
+                    actual.set(resumen);
+                    log.debug("📊 Estadísticas de pedidos recalculadas: {} pedidos", resumen.getTotalPedidos());
+                    return resumen;
+                }
+            }
+        }
+
+        log.debug("📊 Recálculo de estadísticas pospuesto: pedidos confirmándose durante la consulta");
+        return resumen != null ? resumen : consultar();
+    }
+
+    /**
+     * Registra un pedido nuevo al confirmarse la transacción en curso
+     */
+    public void registrarPedido(EstadoPedido estado, double total) {
+        despuesDelCommit(r -> r.con(estado, 1, total));
+    }
+
+    /**
+     * Mueve un pedido de un estado a otro al confirmarse la transacción en curso
+     */
+    public void registrarCambioEstado(EstadoPedido anterior, EstadoPedido nuevo, double total) {
+        if (anterior == nuevo) {
+            return;
+        }
+        despuesDelCommit(r -> r.con(anterior, -1, -total).con(nuevo, 1, total));
+    }
+
+    private Resumen consultar() {
+        long[] cantidades = new long[EstadoPedido.values().length];
+        double[] ventas = new double[cantidades.length];
+        for (PedidoRepository.ResumenEstado fila : pedidoRepository.resumirPorEstado()) {
+            cantidades[fila.getEstado().ordinal()] = fila.getCantidad();
+            ventas[fila.getEstado().ordinal()] = fila.getVentas() != null ? fila.getVentas() : 0.0;
+        }
+        return new Resumen(cantidades, ventas);
+    }
+
+    private void aplicar(UnaryOperator<Resumen> cambio) {
+        // Sin resumen cargado no hay nada que actualizar: la primera lectura lo trae de la base
+        synchronized (cambiosLock) {
+            actual.updateAndGet(r -> r != null ? cambio.apply(r) : null);
+        }
+    }
+
+    /**
+     * Aplica el cambio cuando la transacción en curso confirma, contando desde que empieza a
+     * confirmar hasta que el cambio quedó aplicado (o la transacción terminó sin confirmar)
+     */
+    private void despuesDelCommit(UnaryOperator<Resumen> cambio) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            confirmacionesIniciadas.incrementAndGet();
+            try {
+                aplicar(cambio);
+            } finally {
+                confirmacionesTerminadas.incrementAndGet();
+            }
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean iniciada;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                iniciada = true;
+                confirmacionesIniciadas.incrementAndGet();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!iniciada) {
+                    return;
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        aplicar(cambio);
+                    }
+                } finally {
+                    confirmacionesTerminadas.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Foto inmutable de cantidades y ventas indexadas por estado
+     */
+    public static final class Resumen {
+
+        private final long[] cantidades;
+        private final double[] ventas;
+
+        private Resumen(long[] cantidades, double[] ventas) {
+            this.cantidades = cantidades;
+            this.ventas = ventas;
+        }
+
+        public long getCantidad(EstadoPedido estado) {
+            return cantidades[estado.ordinal()];
+        }
+
+        public double getVentas(EstadoPedido estado) {
+            return ventas[estado.ordinal()];
+        }
+
+        public long getTotalPedidos() {
+            return Arrays.stream(cantidades).sum();
+        }
+
+        private Resumen con(EstadoPedido estado, long cantidad, double total) {
+            long[] nuevasCantidades = cantidades.clone();
+            double[] nuevasVentas = ventas.clone();
+            nuevasCantidades[estado.ordinal()] += cantidad;
+            nuevasVentas[estado.ordinal()] += total;
+            return new Resumen(nuevasCantidades, nuevasVentas);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.XSD;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.semanticweb.owlapi.formats.BinaryRDFDocumentFormat;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Codificación binaria de RDF (Binary RDF de RDF4J) para mover la ontología sin pasar por
+ * RDF/XML ni Turtle. Es el único formato binario que la OWL API sabe leer y escribir, y del
+ * lado de Jena se decodifica con el parser de RDF4J directo a triples, así que la misma
+ * codificación sirve para:
+ * <ul>
+ *   <li>la copia binaria del archivo fuente que se genera en el primer arranque y se usa en
+ *       los siguientes mientras el archivo fuente no cambie;</li>
+ *   <li>las transferencias OWL API → Jena (reconstrucción completa y deltas del PuenteOwlJena);</li>
+ *   <li>la exportación del almacén TDB2 hacia la OWL API en el arranque en caliente.</li>
+ * </ul>
+ * La copia en disco lleva cabecera con el hash SHA-256 del archivo fuente del que proviene y
+ * un checksum SHA-256 de su contenido; si alguno no coincide se ignora y se vuelve al fuente.
+ */
+@Slf4j
+public final class FormatoRdfBinario {
+
+    private static final int MAGICO = 0x53534252;
+    private static final int VERSION_FORMATO = 1;
+    // Base para los IRIs relativos; la ontología se guarda con IRIs absolutos
+    private static final String BASE = "urn:semanticshop:binario";
+
+    private FormatoRdfBinario() {
+    }
+
+    // ========== OWL API ==========
+
+    /**
+     * Serializa la ontología en Binary RDF
+     */
+    public static byte[] desdeOntologia(OWLOntologyManager manager, OWLOntology ontologia) throws OWLException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        manager.saveOntology(ontologia, new BinaryRDFDocumentFormat(), salida);
+        return salida.toByteArray();
+    }
+
+    /**
+     * Carga en el manager una ontología codificada en Binary RDF
+     */
+    public static OWLOntology cargarOntologia(OWLOntologyManager manager, byte[] binario) throws OWLException {
+        return manager.loadOntologyFromOntologyDocument(new StreamDocumentSource(
+                new ByteArrayInputStream(binario), IRI.create(BASE), new BinaryRDFDocumentFormat(), null));
+    }
+
+    // ========== JENA ==========
+
+    /**
+     * Decodifica Binary RDF a un modelo Jena nuevo
+     */
+    public static Model aModeloJena(byte[] binario) throws IOException {
+        Model modelo = ModelFactory.createDefaultModel();
+        Graph grafo = modelo.getGraph();
+        // Los blank nodes solo tienen sentido dentro de un mismo documento
+        Map<String, Node> blancos = new HashMap<>();
+
+        RDFParser parser = Rio.createParser(RDFFormat.BINARY);
+        parser.setRDFHandler(new AbstractRDFHandler() {
+            @Override
+            public void handleStatement(Statement st) {
+                // La OWL API tipa cada nodo de lista; RDF/XML no lo hacía y ninguna consulta lo usa
+                if (RDF.type.getURI().equals(st.getPredicate().stringValue())
+                        && RDF.List.getURI().equals(st.getObject().stringValue())) {
+                    return;
+                }
+                grafo.add(Triple.create(aNodo(st.getSubject(), blancos), aNodo(st.getPredicate(), blancos),
+                        aNodo(st.getObject(), blancos)));
+            }
+
+            @Override
+            public void handleNamespace(String prefijo, String uri) {
+                modelo.setNsPrefix(prefijo, uri);
+            }
+        });
+        parser.parse(new ByteArrayInputStream(binario), BASE);
+        return modelo;
+    }
+
+    /**
+     * Codifica el grafo Jena en Binary RDF
+     */
+    public static byte[] desdeGrafoJena(Graph grafo) {
+        ValueFactory vf = SimpleValueFactory.getInstance();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // Etiquetas cortas: RDF4J rehashea las de más de 32 caracteres (las de Jena) con JAXB
+        Map<Node, BNode> blancos = new HashMap<>();
+
+        RDFWriter escritor = Rio.createWriter(RDFFormat.BINARY, salida);
+        escritor.startRDF();
+        grafo.getPrefixMapping().getNsPrefixMap().forEach(escritor::handleNamespace);
+        Iterator<Triple> triples = grafo.find();
+        while (triples.hasNext()) {
+            Triple t = triples.next();
+            escritor.handleStatement(vf.createStatement(
+                    (org.eclipse.rdf4j.model.Resource) aValor(t.getSubject(), vf, blancos),
+                    (org.eclipse.rdf4j.model.IRI) aValor(t.getPredicate(), vf, blancos),
+                    aValor(t.getObject(), vf, blancos)));
+        }
+        escritor.endRDF();
+        return salida.toByteArray();
+    }
+
+    private static Node aNodo(Value valor, Map<String, Node> blancos) {
+        if (valor instanceof BNode bnode) {
+            return blancos.computeIfAbsent(bnode.getID(), id -> NodeFactory.createBlankNode());
+        }
+        if (valor instanceof Literal literal) {
+            if (literal.getLanguage().isPresent()) {
+                return NodeFactory.createLiteral(literal.getLabel(), literal.getLanguage().get());
+            }
+            String tipo = literal.getDatatype().stringValue();
+            return XSD.xstring.getURI().equals(tipo)
+                    ? NodeFactory.createLiteral(literal.getLabel())
+                    : NodeFactory.createLiteral(literal.getLabel(), TypeMapper.getInstance().getSafeTypeByName(tipo));
+        }
+        return NodeFactory.createURI(valor.stringValue());
+    }
+
+    private static Value aValor(Node nodo, ValueFactory vf, Map<Node, BNode> blancos) {
+        if (nodo.isBlank()) {
+            return blancos.computeIfAbsent(nodo, n -> vf.createBNode("b" + blancos.size()));
+        }
+        if (nodo.isLiteral()) {
+            String idioma = nodo.getLiteralLanguage();
+            if (idioma != null && !idioma.isEmpty()) {
+                return vf.createLiteral(nodo.getLiteralLexicalForm(), idioma);
+            }
+            return vf.createLiteral(nodo.getLiteralLexicalForm(), vf.createIRI(nodo.getLiteralDatatypeURI()));
+        }
+        return vf.createIRI(nodo.getURI());
+    }
+
+    // ========== COPIA EN DISCO ==========
+
+    /**
+     * Escribe la copia binaria del archivo fuente en un temporal y la mueve sobre el destino
+     */
+    public static void escribirCopia(Path archivo, String hashFuente, byte[] binario) throws Exception {
+        if (archivo.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(archivo.toAbsolutePath().getParent());
+        }
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION_FORMATO);
+            salida.writeUTF(hashFuente);
+            salida.writeUTF(sha256(binario));
+            salida.writeInt(binario.length);
+            salida.write(binario);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee la copia binaria si existe, proviene de este archivo fuente y su checksum es
+     * correcto; cualquier otro caso devuelve vacío
+     */
+    public static Optional<byte[]> leerCopia(Path archivo, String hashFuente) {
+        if (!Files.isRegularFile(archivo)) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION_FORMATO) {
+                log.warn("⚠️ Copia binaria de la ontología {} con formato desconocido, se ignora", archivo);
+                return Optional.empty();
+            }
+            if (!entrada.readUTF().equals(hashFuente)) {
+                log.info("📦 Copia binaria de otra versión del archivo fuente, se regenera");
+                return Optional.empty();
+            }
+            String checksum = entrada.readUTF();
+            byte[] binario = new byte[entrada.readInt()];
+            entrada.readFully(binario);
+            if (!sha256(binario).equals(checksum)) {
+                log.warn("⚠️ Copia binaria de la ontología {} dañada (checksum distinto), se regenera", archivo);
+                return Optional.empty();
+            }
+            return Optional.of(binario);
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo leer la copia binaria de la ontología {}: {}", archivo, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public static String sha256(byte[] contenido) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+    }
+}
@@ -0,0 +1,118 @@
+package com.semanticshop.service;
+
+import com.semanticshop.dto.ProductoDTO;
+
+import java.util.*;
+
+/**
+ * Grafo de compatibilidad del catálogo de una generación, como matriz de adyacencia en bits.
+ * Cada producto recibe un ordinal denso (su posición en el catálogo) y la fila de un producto
+ * es el BitSet de los ordinales que son compatibles con él según HermiT. Verificar un carrito
+ * completo es, por producto, un AND de su fila con los productos del carrito y una resta
+ * sobre las posiciones posteriores, en lugar de comparar cada par buscando en conjuntos de IDs.
+ * <p>
+ * La relación es dirigida, igual que {@code esCompatibleCon}: el par (a, b) es compatible si
+ * b aparece entre los compatibles de a.
+ */
+public final class GrafoCompatibilidad {
+
+    /**
+     * Par de productos de un carrito que no figuran como compatibles, en el orden del carrito
+     */
+    public record ParProductos(String producto1, String producto2) {
+    }
+
+    private final Map<String, Integer> ordinales;
+    private final BitSet[] compatibles;
+
+    private GrafoCompatibilidad(Map<String, Integer> ordinales, BitSet[] compatibles) {
+        this.ordinales = ordinales;
+        this.compatibles = compatibles;
+    }
+
+    /**
+     * Construye el grafo a partir de los productos del catálogo; los ordinales siguen el orden de la lista
+     */
+    public static GrafoCompatibilidad construir(List<ProductoDTO> productos) {
+        Map<String, Integer> ordinales = new HashMap<>(productos.size() * 2);
+        for (ProductoDTO producto : productos) {
+            ordinales.putIfAbsent(producto.getId(), ordinales.size());
+        }
+
+        BitSet[] compatibles = new BitSet[ordinales.size()];
+        for (ProductoDTO producto : productos) {
+            int ordinal = ordinales.get(producto.getId());
+            BitSet fila = compatibles[ordinal] != null ? compatibles[ordinal] : new BitSet(ordinales.size());
+            if (producto.getProductosCompatibles() != null) {
+                for (String compatible : producto.getProductosCompatibles()) {
+                    Integer destino = ordinales.get(compatible);
+                    if (destino != null) {
+                        fila.set(destino);
+                    }
+                }
+            }
+            compatibles[ordinal] = fila;
+        }
+
+        return new GrafoCompatibilidad(Collections.unmodifiableMap(ordinales), compatibles);
+    }
+
+    /**
+     * Indica si producto2 está entre los compatibles de producto1; un producto desconocido no es compatible
+     */
+    public boolean sonCompatibles(String producto1, String producto2) {
+        Integer origen = ordinales.get(producto1);
+        Integer destino = ordinales.get(producto2);
+        return origen != null && destino != null && compatibles[origen].get(destino);
+    }
+
+    /**
+     * Pares (i, j) con i antes que j en la lista que no son compatibles, en el mismo orden
+     * en que los produciría el recorrido de todos los pares. Los productos que no están en
+     * el catálogo no son compatibles con ninguno.
+     */
+    public List<ParProductos> paresNoCompatibles(List<String> productos) {
+        int n = productos.size();
+        int[] ordinalPorPosicion = new int[n];
+        BitSet enLista = new BitSet(compatibles.length);
+        // Posiciones de cada ordinal en la lista, encadenadas (un producto puede repetirse)
+        int[] primeraPosicion = new int[compatibles.length];
+        int[] siguientePosicion = new int[n];
+        Arrays.fill(primeraPosicion, -1);
+
+        for (int i = n - 1; i >= 0; i--) {
+            Integer ordinal = ordinales.get(productos.get(i));
+            ordinalPorPosicion[i] = ordinal == null ? -1 : ordinal;
+            if (ordinal != null) {
+                siguientePosicion[i] = primeraPosicion[ordinal];
+                primeraPosicion[ordinal] = i;
+                enLista.set(ordinal);
+            }
+        }
+
+        List<ParProductos> pares = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            // Posiciones posteriores menos las de los compatibles con el producto i
+            BitSet faltantes = new BitSet(n);
+            faltantes.set(i + 1, n);
+            if (ordinalPorPosicion[i] >= 0) {
+                BitSet vecinos = (BitSet) compatibles[ordinalPorPosicion[i]].clone();
+                vecinos.and(enLista);
+                for (int o = vecinos.nextSetBit(0); o >= 0; o = vecinos.nextSetBit(o + 1)) {
+                    for (int posicion = primeraPosicion[o]; posicion >= 0; posicion = siguientePosicion[posicion]) {
+                        faltantes.clear(posicion);
+                    }
+                }
+            }
+
+            for (int j = faltantes.nextSetBit(0); j >= 0; j = faltantes.nextSetBit(j + 1)) {
+                pares.add(new ParProductos(productos.get(i), productos.get(j)));
+            }
+        }
+        return pares;
+    }
+
+    public int size() {
+        return compatibles.length;
+    }
+}
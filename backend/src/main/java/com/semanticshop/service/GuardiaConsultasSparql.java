@@ -0,0 +1,362 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.path.*;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Guardia para las consultas SPARQL escritas por usuarios (POST /api/sparql/query y /api/analisis/sparql).
+ * <p>
+ * Antes de ejecutar, un estimador estático de costo recorre los patrones de la consulta: las
+ * clausuras de caminos ({@code *}, {@code +}) con ambos extremos libres, los patrones sin ningún
+ * término fijo y los productos cartesianos entre grupos de patrones sin variables en común son
+ * lo que convierte una consulta en un recorrido de todo el grafo. Las consultas que superan
+ * {@code costo-maximo} se rechazan; las que superan {@code costo-pesado} pasan a un carril
+ * propio de un solo hilo para que no compitan con las livianas. Ambos carriles tienen colas
+ * acotadas y cada ejecución lleva el timeout de Jena, así el tráfico del catálogo nunca espera
+ * detrás de la analítica ad hoc.
+ * <p>
+ * Las consultas en streaming no pasan por los carriles: escribir al cliente puede tardar mucho más
+ * que la consulta, así que se recorren en el hilo de la respuesta asíncrona y la guardia solo
+ * las admite ({@link #admitir}) con cupos propios del mismo tamaño que cada carril.
+ */
+@Service
+@Slf4j
+public class GuardiaConsultasSparql {
+
+    private static final int COSTO_PATRON = 1;
+    private static final int COSTO_PATRON_LIBRE = 50;
+    private static final int COSTO_CLAUSURA_ANCLADA = 100;
+    private static final int COSTO_CLAUSURA_LIBRE = 500;
+    private static final int FACTOR_PRODUCTO_CARTESIANO = 10;
+
+    /**
+     * Resultado del análisis estático
+     *
+     * @param pesada se ejecuta en el carril de consultas pesadas
+     */
+    public record Evaluacion(long costo, boolean pesada) {
+    }
+
+    private final long timeoutMs;
+    private final long costoPesado;
+    private final long costoMaximo;
+    private final ThreadPoolExecutor livianas;
+    private final ThreadPoolExecutor pesadas;
+    private final Semaphore streamsLivianos;
+    private final Semaphore streamsPesados;
+
+    private final AtomicLong ejecutadas = new AtomicLong();
+    private final AtomicLong rechazadasPorCosto = new AtomicLong();
+    private final AtomicLong rechazadasPorCapacidad = new AtomicLong();
+    private final AtomicLong expiradas = new AtomicLong();
+
+    public GuardiaConsultasSparql(@Value("${sparql.adhoc.timeout-ms:10000}") long timeoutMs,
+                                  @Value("${sparql.adhoc.costo-pesado:200}") long costoPesado,
+                                  @Value("${sparql.adhoc.costo-maximo:2000}") long costoMaximo,
+                                  @Value("${sparql.adhoc.hilos:2}") int hilos,
+                                  @Value("${sparql.adhoc.cola:16}") int cola) {
+        this.timeoutMs = timeoutMs;
+        this.costoPesado = costoPesado;
+        this.costoMaximo = costoMaximo;
+        this.livianas = crearPool("sparql-adhoc", hilos, cola);
+        this.pesadas = crearPool("sparql-adhoc-pesada", 1, Math.max(1, cola / 4));
+        this.streamsLivianos = new Semaphore(hilos);
+        this.streamsPesados = new Semaphore(1);
+    }
+
+    private static ThreadPoolExecutor crearPool(String nombre, int hilos, int cola) {
+        AtomicInteger contador = new AtomicInteger();
+        return new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    Thread hilo = new Thread(r, nombre + "-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Parsea la consulta y estima su costo; rechaza (IllegalArgumentException) las patológicas
+     */
+    public Evaluacion evaluar(String sparql) {
+        Query query = QueryFactory.create(sparql);
+        long costo = estimarCosto(query);
+        if (costo > costoMaximo) {
+            rechazadasPorCosto.incrementAndGet();
+            log.warn("🚫 Consulta SPARQL rechazada por costo estimado {} (máximo {})", costo, costoMaximo);
+            throw new IllegalArgumentException("Consulta demasiado costosa (costo estimado " + costo
+                    + ", máximo " + costoMaximo + "): evite caminos * o + entre variables libres y"
+                    + " patrones sin variables compartidas");
+        }
+        return new Evaluacion(costo, costo > costoPesado);
+    }
+
+    /**
+     * Ejecuta la consulta en el carril que le corresponde y espera su resultado.
+     *
+     * @throws RejectedExecutionException si el carril está saturado
+     * @throws QueryCancelledException    si se agotó el tiempo
+     */
+    public <T> T ejecutar(Evaluacion evaluacion, Supplier<T> consulta) {
+        ThreadPoolExecutor carril = evaluacion.pesada() ? pesadas : livianas;
+        Future<T> futuro;
+        try {
+            futuro = carril.submit(consulta::get);
+        } catch (RejectedExecutionException e) {
+            rechazadasPorCapacidad.incrementAndGet();
+            throw new RejectedExecutionException("Demasiadas consultas SPARQL en curso, intente más tarde");
+        }
+
+        try {
+            // Margen sobre el timeout de Jena por si la consulta no llega a revisar su cancelación
+            T resultado = futuro.get(timeoutMs + 1000, TimeUnit.MILLISECONDS);
+            ejecutadas.incrementAndGet();
+            return resultado;
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            expiradas.incrementAndGet();
+            throw new QueryCancelledException();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new QueryCancelledException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryCancelledException cancelada) {
+                expiradas.incrementAndGet();
+                throw cancelada;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Admite una consulta en streaming que se recorre en el hilo que llama; el permiso se
+     * cierra al terminar de escribir la respuesta.
+     *
+     * @throws RejectedExecutionException si no quedan cupos de streaming en su carril
+     */
+    public Permiso admitir(Evaluacion evaluacion) {
+        Semaphore cupos = evaluacion.pesada() ? streamsPesados : streamsLivianos;
+        if (!cupos.tryAcquire()) {
+            rechazadasPorCapacidad.incrementAndGet();
+            throw new RejectedExecutionException("Demasiadas consultas SPARQL en curso, intente más tarde");
+        }
+        ejecutadas.incrementAndGet();
+        return new Permiso(cupos);
+    }
+
+    /**
+     * Cupo de streaming tomado por {@link #admitir}; cerrarlo más de una vez no tiene efecto
+     */
+    public static final class Permiso implements AutoCloseable {
+
+        private final Semaphore cupos;
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        private Permiso(Semaphore cupos) {
+            this.cupos = cupos;
+        }
+
+        @Override
+        public void close() {
+            if (liberado.compareAndSet(false, true)) {
+                cupos.release();
+            }
+        }
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    // ========== ESTIMACIÓN DE COSTO ==========
+
+    static long estimarCosto(Query query) {
+        if (query.getQueryPattern() == null) {
+            return 0;
+        }
+
+        long[] costo = {0};
+        ElementWalker.walk(query.getQueryPattern(), new ElementVisitorBase() {
+            @Override
+            public void visit(ElementPathBlock bloque) {
+                costo[0] = Math.min(Long.MAX_VALUE / 2, costo[0] + costoBloque(bloque.getPattern().getList()));
+            }
+        });
+        return costo[0];
+    }
+
+    /**
+     * Costo de un bloque de patrones: suma de sus patrones, multiplicada por cada grupo adicional
+     * de patrones desconectados (producto cartesiano)
+     */
+    private static long costoBloque(List<TriplePath> patrones) {
+        long costo = 0;
+        for (TriplePath patron : patrones) {
+            costo += costoPatron(patron);
+        }
+
+        int componentes = contarComponentes(patrones);
+        for (int i = 1; i < componentes && costo < Long.MAX_VALUE / (2 * FACTOR_PRODUCTO_CARTESIANO); i++) {
+            costo *= FACTOR_PRODUCTO_CARTESIANO;
+        }
+        return costo;
+    }
+
+    private static long costoPatron(TriplePath patron) {
+        boolean sujetoLibre = patron.getSubject().isVariable();
+        boolean objetoLibre = patron.getObject().isVariable();
+
+        if (patron.isTriple()) {
+            boolean predicadoLibre = patron.getPredicate().isVariable();
+            return sujetoLibre && predicadoLibre && objetoLibre ? COSTO_PATRON_LIBRE : COSTO_PATRON;
+        }
+
+        if (!tieneClausura(patron.getPath())) {
+            return COSTO_PATRON;
+        }
+        return sujetoLibre && objetoLibre ? COSTO_CLAUSURA_LIBRE : COSTO_CLAUSURA_ANCLADA;
+    }
+
+    /**
+     * Agrupa los patrones que comparten variables; más de un grupo es un producto cartesiano
+     */
+    private static int contarComponentes(List<TriplePath> patrones) {
+        List<Set<Node>> grupos = new ArrayList<>();
+        for (TriplePath patron : patrones) {
+            Set<Node> variables = new HashSet<>();
+            for (Node nodo : new Node[]{patron.getSubject(), patron.getPredicate(), patron.getObject()}) {
+                if (nodo != null && nodo.isVariable()) {
+                    variables.add(nodo);
+                }
+            }
+
+            Set<Node> fusionado = new HashSet<>(variables);
+            Iterator<Set<Node>> it = grupos.iterator();
+            while (it.hasNext()) {
+                Set<Node> grupo = it.next();
+                if (!Collections.disjoint(grupo, variables)) {
+                    fusionado.addAll(grupo);
+                    it.remove();
+                }
+            }
+            grupos.add(fusionado);
+        }
+        return grupos.size();
+    }
+
+    private static boolean tieneClausura(Path camino) {
+        boolean[] encontrada = {false};
+        camino.visit(new PathVisitorBase() {
+            @Override
+            public void visit(P_ZeroOrMore1 p) {
+                encontrada[0] = true;
+            }
+
+            @Override
+            public void visit(P_ZeroOrMoreN p) {
+                encontrada[0] = true;
+            }
+
+            @Override
+            public void visit(P_OneOrMore1 p) {
+                encontrada[0] = true;
+            }
+
+            @Override
+            public void visit(P_OneOrMoreN p) {
+                encontrada[0] = true;
+            }
+
+            @Override
+            public void visit(P_Mod p) {
+                encontrada[0] |= p.getMax() < 0;
+                p.getSubPath().visit(this);
+            }
+
+            @Override
+            public void visit(P_Inverse p) {
+                p.getSubPath().visit(this);
+            }
+
+            @Override
+            public void visit(P_ZeroOrOne p) {
+                p.getSubPath().visit(this);
+            }
+
+            @Override
+            public void visit(P_Distinct p) {
+                p.getSubPath().visit(this);
+            }
+
+            @Override
+            public void visit(P_Multi p) {
+                p.getSubPath().visit(this);
+            }
+
+            @Override
+            public void visit(P_Shortest p) {
+                p.getSubPath().visit(this);
+            }
+
+            @Override
+            public void visit(P_Alt p) {
+                p.getLeft().visit(this);
+                p.getRight().visit(this);
+            }
+
+            @Override
+            public void visit(P_Seq p) {
+                p.getLeft().visit(this);
+                p.getRight().visit(this);
+            }
+        });
+        return encontrada[0];
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("timeoutMs", timeoutMs);
+        stats.put("costoPesado", costoPesado);
+        stats.put("costoMaximo", costoMaximo);
+        stats.put("enCursoLivianas", livianas.getActiveCount());
+        stats.put("enColaLivianas", livianas.getQueue().size());
+        stats.put("enCursoPesadas", pesadas.getActiveCount());
+        stats.put("enColaPesadas", pesadas.getQueue().size());
+        stats.put("streamsLivianosLibres", streamsLivianos.availablePermits());
+        stats.put("streamsPesadosLibres", streamsPesados.availablePermits());
+        stats.put("ejecutadas", ejecutadas.get());
+        stats.put("rechazadasPorCosto", rechazadasPorCosto.get());
+        stats.put("rechazadasPorCapacidad", rechazadasPorCapacidad.get());
+        stats.put("expiradas", expiradas.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void detener() {
+        livianas.shutdownNow();
+        pesadas.shutdownNow();
+    }
+}
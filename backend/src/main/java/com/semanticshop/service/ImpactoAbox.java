@@ -0,0 +1,173 @@
+package com.semanticshop.service;
+
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Alcance de una escritura ABox según las restricciones de la TBox: qué individuos, además de
+ * los que aparecen en los axiomas, pueden cambiar de tipo inferido.
+ * <p>
+ * Una restricción de propiedad de objeto ({@code ∃R.F}, {@code ∀R.F}, {@code ≥n R.F}, ...) hace
+ * que el tipo de un individuo dependa del de sus vecinos por R: en
+ * {@code ClientePremium ≡ Cliente ⊓ ≥5 realizoPedido.Pedido}, afirmar {@code Pedido(p)} puede
+ * cambiar la clasificación de un cliente que no aparece en el axioma. Si la escritura menciona
+ * algo del relleno F (o algo que implique F: subclases, subpropiedades, dominios y rangos), los
+ * vecinos inversos por R de los individuos del axioma también se recalculan.
+ * <p>
+ * Hay casos en los que la propagación no se acota a un salto y la escritura exige reconstruir todo:
+ * rellenos que a su vez tienen restricciones de objeto, clases cuya definición impone
+ * {@code ∀} o cardinalidades máximas a sus vecinos, propiedades funcionales o claves (pueden igualar
+ * individuos) y las afirmaciones de igualdad o diferencia de individuos. Las propiedades
+ * transitivas y las cadenas de propiedades las resuelve {@link OntologyService} antes de llegar aquí.
+ * <p>
+ * Depende solo de la TBox, así que se calcula una vez por razonamiento completo.
+ */
+public final class ImpactoAbox {
+
+    private final Map<OWLObjectPropertyExpression, Set<OWLEntity>> rellenosPorPropiedad;
+    private final Set<OWLEntity> sinLimite;
+
+    private ImpactoAbox(Map<OWLObjectPropertyExpression, Set<OWLEntity>> rellenosPorPropiedad,
+                        Set<OWLEntity> sinLimite) {
+        this.rellenosPorPropiedad = rellenosPorPropiedad;
+        this.sinLimite = sinLimite;
+    }
+
+    /**
+     * Analiza la TBox; debe invocarse con el lock del razonador tomado
+     */
+    public static ImpactoAbox analizar(OWLOntology ontologia, OWLReasoner reasoner) {
+        Map<OWLObjectPropertyExpression, Set<OWLEntity>> rellenos = new HashMap<>();
+        Set<OWLEntity> sinLimite = new HashSet<>();
+
+        ontologia.tboxAxioms(Imports.INCLUDED).forEach(axioma -> {
+            axioma.nestedClassExpressions()
+                    .filter(ImpactoAbox::esRestriccionDeObjeto)
+                    .map(OWLQuantifiedObjectRestriction.class::cast)
+                    .forEach(restriccion -> {
+                        OWLClassExpression relleno = restriccion.getFiller();
+                        if (relleno.isOWLThing()) {
+                            return;
+                        }
+                        Set<OWLEntity> firma = relleno.signature().collect(Collectors.toSet());
+                        if (relleno.nestedClassExpressions().anyMatch(ImpactoAbox::esRestriccionDeObjeto)) {
+                            sinLimite.addAll(firma);
+                        } else {
+                            rellenos.computeIfAbsent(restriccion.getProperty(), p -> new HashSet<>()).addAll(firma);
+                        }
+                    });
+
+            if (axioma instanceof OWLSubClassOfAxiom subclase) {
+                if (restringeVecinos(subclase.getSuperClass())) {
+                    sinLimite.addAll(subclase.getSubClass().signature().collect(Collectors.toSet()));
+                }
+            } else if (axioma instanceof OWLEquivalentClassesAxiom equivalentes) {
+                List<OWLClassExpression> operandos = equivalentes.classExpressions().toList();
+                for (OWLClassExpression operando : operandos) {
+                    if (!operando.isAnonymous() && operandos.stream()
+                            .anyMatch(otro -> otro != operando && restringeVecinos(otro))) {
+                        sinLimite.add(operando.asOWLClass());
+                    }
+                }
+            }
+        });
+
+        ontologia.axioms(AxiomType.FUNCTIONAL_OBJECT_PROPERTY, Imports.INCLUDED)
+                .forEach(ax -> sinLimite.addAll(ax.getProperty().signature().collect(Collectors.toSet())));
+        ontologia.axioms(AxiomType.INVERSE_FUNCTIONAL_OBJECT_PROPERTY, Imports.INCLUDED)
+                .forEach(ax -> sinLimite.addAll(ax.getProperty().signature().collect(Collectors.toSet())));
+        ontologia.axioms(AxiomType.FUNCTIONAL_DATA_PROPERTY, Imports.INCLUDED)
+                .forEach(ax -> sinLimite.addAll(ax.getProperty().signature().collect(Collectors.toSet())));
+        ontologia.axioms(AxiomType.HAS_KEY, Imports.INCLUDED)
+                .forEach(ax -> ax.signature().filter(e -> !e.isOWLClass()).forEach(sinLimite::add));
+
+        rellenos.replaceAll((propiedad, firma) -> cerrar(firma, ontologia, reasoner));
+        return new ImpactoAbox(rellenos, cerrar(sinLimite, ontologia, reasoner));
+    }
+
+    /**
+     * Individuos cuyo tipo inferido puede cambiar por los axiomas además de los que aparecen en ellos,
+     * o vacío si la propagación no se puede acotar y hay que reconstruir todo
+     */
+    public Optional<Set<OWLNamedIndividual>> vecinosAfectados(Collection<OWLAxiom> axiomas,
+                                                              Set<OWLNamedIndividual> individuos,
+                                                              OWLReasoner reasoner) {
+        if (axiomas.stream().anyMatch(ax -> ax.isOfType(AxiomType.SAME_INDIVIDUAL, AxiomType.DIFFERENT_INDIVIDUALS))) {
+            return Optional.empty();
+        }
+
+        Set<OWLEntity> firma = axiomas.stream()
+                .flatMap(OWLAxiom::signature)
+                .filter(entidad -> !entidad.isOWLNamedIndividual())
+                .collect(Collectors.toSet());
+        if (!Collections.disjoint(firma, sinLimite)) {
+            return Optional.empty();
+        }
+
+        Set<OWLNamedIndividual> vecinos = new HashSet<>();
+        rellenosPorPropiedad.forEach((propiedad, relleno) -> {
+            if (!Collections.disjoint(firma, relleno)) {
+                OWLObjectPropertyExpression inversa = propiedad.getInverseProperty();
+                individuos.forEach(individuo ->
+                        vecinos.addAll(reasoner.getObjectPropertyValues(individuo, inversa).getFlattened()));
+            }
+        });
+        vecinos.removeAll(individuos);
+        return Optional.of(vecinos);
+    }
+
+    private static boolean esRestriccionDeObjeto(OWLClassExpression expresion) {
+        return expresion instanceof OWLQuantifiedObjectRestriction;
+    }
+
+    /**
+     * Impone algo a los vecinos de sus instancias: ∀, ≤n o =n sobre una propiedad de objeto
+     */
+    private static boolean restringeVecinos(OWLClassExpression expresion) {
+        return expresion.nestedClassExpressions().anyMatch(ce ->
+                ce instanceof OWLObjectAllValuesFrom
+                        || ce instanceof OWLObjectMaxCardinality
+                        || ce instanceof OWLObjectExactCardinality);
+    }
+
+    /**
+     * Agrega las entidades cuya afirmación implica alguna de las dadas: subclases y clases
+     * equivalentes, subpropiedades, y propiedades con dominio o rango en esas clases
+     */
+    private static Set<OWLEntity> cerrar(Set<OWLEntity> entidades, OWLOntology ontologia, OWLReasoner reasoner) {
+        Set<OWLEntity> cierre = new HashSet<>(entidades);
+        for (OWLEntity entidad : entidades) {
+            if (entidad.isOWLClass() && !entidad.isTopEntity()) {
+                OWLClass clase = entidad.asOWLClass();
+                reasoner.getSubClasses(clase, false).entities().forEach(cierre::add);
+                reasoner.getEquivalentClasses(clase).entities().forEach(cierre::add);
+            } else if (entidad.isOWLObjectProperty() && !entidad.isTopEntity()) {
+                reasoner.getSubObjectProperties(entidad.asOWLObjectProperty(), false).entities()
+                        .filter(p -> !p.isAnonymous())
+                        .forEach(p -> cierre.add(p.asOWLObjectProperty()));
+            } else if (entidad.isOWLDataProperty() && !entidad.isTopEntity()) {
+                reasoner.getSubDataProperties(entidad.asOWLDataProperty(), false).entities().forEach(cierre::add);
+            }
+        }
+        cierre.removeIf(OWLEntity::isBottomEntity);
+
+        ontologia.axioms(AxiomType.OBJECT_PROPERTY_DOMAIN, Imports.INCLUDED)
+                .filter(ax -> implica(ax.getDomain(), cierre))
+                .forEach(ax -> cierre.addAll(ax.getProperty().signature().collect(Collectors.toSet())));
+        ontologia.axioms(AxiomType.OBJECT_PROPERTY_RANGE, Imports.INCLUDED)
+                .filter(ax -> implica(ax.getRange(), cierre))
+                .forEach(ax -> cierre.addAll(ax.getProperty().signature().collect(Collectors.toSet())));
+        ontologia.axioms(AxiomType.DATA_PROPERTY_DOMAIN, Imports.INCLUDED)
+                .filter(ax -> implica(ax.getDomain(), cierre))
+                .forEach(ax -> cierre.addAll(ax.getProperty().signature().collect(Collectors.toSet())));
+        return cierre;
+    }
+
+    private static boolean implica(OWLClassExpression expresion, Set<OWLEntity> clases) {
+        return expresion.classesInSignature().anyMatch(clases::contains);
+    }
+}
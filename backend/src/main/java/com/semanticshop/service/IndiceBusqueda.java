@@ -0,0 +1,434 @@
+package com.semanticshop.service;
+
+import com.semanticshop.dto.BusquedaProductosRequest;
+import com.semanticshop.dto.ProductoDTO;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda construido sobre un {@link CatalogoSnapshot}.
+ * Cada producto recibe un ordinal denso (su posición en el catálogo) y el índice guarda:
+ * un índice invertido de términos normalizados (sin acentos, minúsculas) con listas de
+ * ordinales, un índice de n-gramas (1 a 3 caracteres) sobre ese diccionario para las búsquedas
+ * por subcadena, bitsets por categoría y marca, y permutaciones preordenadas por precio y nombre.
+ * Una búsqueda se resuelve intersectando bitsets y recorriendo la permutación pedida hasta llenar
+ * la página. El stock no se indexa: cambia con cada venta, así que el filtro de disponibilidad y el
+ * orden por stock se resuelven en cada búsqueda con las existencias que recibe {@link #buscar}.
+ */
+public final class IndiceBusqueda {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{Alnum}]+");
+    private static final int LARGO_GRAMA = 3;
+    private static final int[] SIN_TERMINOS = new int[0];
+
+    private final long generacion;
+    private final ProductoDTO[] productos;
+
+    // Diccionario ordenado de términos y sus listas de ordinales (ordenadas ascendentemente)
+    private final String[] terminos;
+    private final int[][] postings;
+
+    // N-gramas de hasta LARGO_GRAMA caracteres → términos que los contienen (ordenados ascendentemente)
+    private final Map<String, int[]> terminosPorGrama;
+
+    // Facetas
+    private final Map<String, BitSet> porCategoria;
+    private final Map<String, BitSet> porMarca;
+    private final BitSet conPrecio;
+    private final List<String> categorias;
+    private final List<String> marcas;
+
+    // Precios ordenados ascendentemente junto a su ordinal, para escaneos por rango
+    private final double[] preciosOrdenados;
+    private final int[] ordinalesPorPrecio;
+
+    // Autocompletado sobre los nombres del mismo catálogo
+    private final IndiceSugerencias sugerencias;
+
+    // Permutaciones de ordinales para cada criterio de ordenamiento
+    private final int[] nombreAsc;
+    private final int[] nombreDesc;
+    private final int[] precioAsc;
+    private final int[] precioDesc;
+
+    private IndiceBusqueda(CatalogoSnapshot catalogo) {
+        this.generacion = catalogo.getGeneracion();
+        this.productos = catalogo.getProductos().toArray(new ProductoDTO[0]);
+        int n = productos.length;
+
+        TreeMap<String, BitSet> invertido = new TreeMap<>();
+        Map<String, BitSet> categoriasIdx = new HashMap<>();
+        Map<String, BitSet> marcasIdx = new HashMap<>();
+        TreeSet<String> categoriasDistintas = new TreeSet<>();
+        TreeSet<String> marcasDistintas = new TreeSet<>();
+        this.conPrecio = new BitSet(n);
+
+        for (int i = 0; i < n; i++) {
+            final int ordinal = i;
+            ProductoDTO p = productos[i];
+            indexarTexto(invertido, i, p.getNombre());
+            indexarTexto(invertido, i, p.getMarca());
+            indexarTexto(invertido, i, p.getCategoria());
+            indexarTexto(invertido, i, p.getDescripcion());
+            indexarTexto(invertido, i, p.getTipo());
+            if (p.getCaracteristicas() != null) {
+                p.getCaracteristicas().forEach(c -> indexarTexto(invertido, ordinal, c));
+            }
+
+            if (p.getCategoria() != null) {
+                categoriasDistintas.add(p.getCategoria());
+                categoriasIdx.computeIfAbsent(p.getCategoria().toLowerCase(), k -> new BitSet(n)).set(i);
+            }
+            if (p.getMarca() != null) {
+                marcasDistintas.add(p.getMarca());
+                marcasIdx.computeIfAbsent(p.getMarca().toLowerCase(), k -> new BitSet(n)).set(i);
+            }
+            if (p.getPrecio() != null) {
+                conPrecio.set(i);
+            }
+        }
+
+        this.terminos = invertido.keySet().toArray(new String[0]);
+        this.postings = new int[terminos.length][];
+        for (int t = 0; t < terminos.length; t++) {
+            postings[t] = invertido.get(terminos[t]).stream().toArray();
+        }
+        this.terminosPorGrama = indexarGramas(terminos);
+
+        this.porCategoria = categoriasIdx;
+        this.porMarca = marcasIdx;
+        this.categorias = List.copyOf(categoriasDistintas);
+        this.marcas = List.copyOf(marcasDistintas);
+
+        Comparator<Integer> porPrecio = Comparator.comparingDouble(i -> precio(productos[i]));
+        Comparator<Integer> porNombre = Comparator.comparing(i -> nombre(productos[i]));
+
+        this.nombreAsc = permutacion(n, porNombre);
+        this.nombreDesc = permutacion(n, porNombre.reversed());
+        this.precioAsc = permutacion(n, porPrecio);
+        this.precioDesc = permutacion(n, porPrecio.reversed());
+
+        this.sugerencias = IndiceSugerencias.construir(catalogo.getProductos());
+
+        this.ordinalesPorPrecio = precioAsc;
+        this.preciosOrdenados = new double[n];
+        for (int k = 0; k < n; k++) {
+            preciosOrdenados[k] = precio(productos[precioAsc[k]]);
+        }
+    }
+
+    /**
+     * Construye el índice para un snapshot del catálogo
+     */
+    public static IndiceBusqueda construir(CatalogoSnapshot catalogo) {
+        return new IndiceBusqueda(catalogo);
+    }
+
+    /**
+     * Resultado de una búsqueda: la página pedida y el total de coincidencias
+     */
+    public record Resultado(List<ProductoDTO> pagina, int total) {
+    }
+
+    /**
+     * Ejecuta una búsqueda completa: filtros, ordenamiento y paginación
+     *
+     * @param existencias unidades vendibles ahora de cada producto (el libro de inventario),
+     *                    para el filtro de disponibilidad y el orden por stock
+     */
+    public Resultado buscar(BusquedaProductosRequest request, ToIntFunction<ProductoDTO> existencias) {
+        BitSet candidatos = filtrar(request);
+        if (request.getDisponible()) {
+            // Se revisa solo el conjunto ya filtrado por los índices, no el catálogo completo
+            for (int ordinal = candidatos.nextSetBit(0); ordinal >= 0; ordinal = candidatos.nextSetBit(ordinal + 1)) {
+                if (existencias.applyAsInt(productos[ordinal]) <= 0) {
+                    candidatos.clear(ordinal);
+                }
+            }
+        }
+        int total = candidatos.cardinality();
+
+        int inicio = request.getPagina() * request.getTamanio();
+        if (inicio >= total) {
+            return new Resultado(Collections.emptyList(), total);
+        }
+        int fin = Math.min(inicio + request.getTamanio(), total);
+
+        String campo = request.getOrdenarPor().toLowerCase();
+        if (campo.equals("stock") || campo.equals("popularidad")) {
+            return new Resultado(paginaPorStock(candidatos, existencias,
+                    "asc".equalsIgnoreCase(request.getDireccion()), inicio, fin), total);
+        }
+
+        List<ProductoDTO> pagina = new ArrayList<>(fin - inicio);
+        int posicion = 0;
+        for (int ordinal : permutacion(campo, request.getDireccion())) {
+            if (!candidatos.get(ordinal)) {
+                continue;
+            }
+            if (posicion >= inicio) {
+                pagina.add(productos[ordinal]);
+                if (pagina.size() == fin - inicio) {
+                    break;
+                }
+            }
+            posicion++;
+        }
+
+        return new Resultado(pagina, total);
+    }
+
+    /**
+     * Calcula el conjunto de ordinales que cumplen todos los filtros de la petición
+     */
+    private BitSet filtrar(BusquedaProductosRequest request) {
+        // Los productos sin precio nunca forman parte de los resultados
+        BitSet resultado = (BitSet) conPrecio.clone();
+
+        if (request.getQ() != null && !request.getQ().trim().isEmpty()) {
+            for (String token : tokenizar(request.getQ())) {
+                resultado.and(buscarTermino(token));
+                if (resultado.isEmpty()) {
+                    return resultado;
+                }
+            }
+        }
+
+        if (request.getCategoria() != null && !request.getCategoria().trim().isEmpty()) {
+            resultado.and(porCategoria.getOrDefault(
+                    request.getCategoria().trim().toLowerCase(), new BitSet()));
+        }
+
+        if (request.getMarca() != null && !request.getMarca().trim().isEmpty()) {
+            resultado.and(porMarca.getOrDefault(
+                    request.getMarca().trim().toLowerCase(), new BitSet()));
+        }
+
+        if (request.getPrecioMin() != null || request.getPrecioMax() != null) {
+            resultado.and(rangoPrecio(request.getPrecioMin(), request.getPrecioMax()));
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Ordena los candidatos por sus existencias actuales (desempate por nombre) y devuelve [inicio, fin)
+     */
+    private List<ProductoDTO> paginaPorStock(BitSet candidatos, ToIntFunction<ProductoDTO> existencias,
+                                             boolean ascendente, int inicio, int fin) {
+        int[] ordinales = candidatos.stream().toArray();
+        int[] stock = new int[productos.length];
+        for (int ordinal : ordinales) {
+            stock[ordinal] = existencias.applyAsInt(productos[ordinal]);
+        }
+
+        Comparator<Integer> porStock = Comparator.comparingInt(i -> stock[i]);
+        if (!ascendente) {
+            porStock = porStock.reversed();
+        }
+        Comparator<Integer> orden = porStock.thenComparing(i -> nombre(productos[i]));
+
+        return Arrays.stream(ordinales).boxed()
+                .sorted(orden)
+                .skip(inicio)
+                .limit(fin - inicio)
+                .map(i -> productos[i])
+                .toList();
+    }
+
+    /**
+     * Une las listas de todos los términos que contienen el token.
+     * Un token de hasta {@link #LARGO_GRAMA} caracteres es un n-grama indexado: sus términos salen
+     * directamente del índice. Uno más largo solo puede estar en términos que contengan todos sus
+     * trigramas, así que se verifican con {@code contains} únicamente los términos del trigrama
+     * menos frecuente, nunca el diccionario completo.
+     */
+    private BitSet buscarTermino(String token) {
+        BitSet coincidencias = new BitSet(productos.length);
+
+        if (token.length() <= LARGO_GRAMA) {
+            for (int t : terminosPorGrama.getOrDefault(token, SIN_TERMINOS)) {
+                agregar(coincidencias, postings[t]);
+            }
+            return coincidencias;
+        }
+
+        int[] candidatos = null;
+        for (int i = 0; i + LARGO_GRAMA <= token.length(); i++) {
+            int[] terminosGrama = terminosPorGrama.getOrDefault(token.substring(i, i + LARGO_GRAMA), SIN_TERMINOS);
+            if (candidatos == null || terminosGrama.length < candidatos.length) {
+                candidatos = terminosGrama;
+            }
+        }
+        for (int t : candidatos) {
+            if (terminos[t].contains(token)) {
+                agregar(coincidencias, postings[t]);
+            }
+        }
+        return coincidencias;
+    }
+
+    /**
+     * Ordinales cuyo precio está en [min, max], usando búsqueda binaria sobre los precios ordenados
+     */
+    private BitSet rangoPrecio(Double min, Double max) {
+        int desde = min == null ? 0 : primeraPosicionMayorOIgual(min);
+        int hasta = max == null ? preciosOrdenados.length : primeraPosicionMayor(max);
+
+        BitSet rango = new BitSet(productos.length);
+        for (int k = desde; k < hasta; k++) {
+            rango.set(ordinalesPorPrecio[k]);
+        }
+        return rango;
+    }
+
+    private int primeraPosicionMayorOIgual(double valor) {
+        int lo = 0, hi = preciosOrdenados.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (preciosOrdenados[mid] < valor) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int primeraPosicionMayor(double valor) {
+        int lo = 0, hi = preciosOrdenados.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (preciosOrdenados[mid] <= valor) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int[] permutacion(String campo, String direccion) {
+        boolean ascendente = "asc".equalsIgnoreCase(direccion);
+        switch (campo) {
+            case "precio":
+                return ascendente ? precioAsc : precioDesc;
+            case "nombre":
+                return ascendente ? nombreAsc : nombreDesc;
+            default:
+                // Por defecto ordenar por nombre ascendente
+                return nombreAsc;
+        }
+    }
+
+    // ========== FACETAS ==========
+
+    public List<String> getCategorias() {
+        return categorias;
+    }
+
+    public List<String> getMarcas() {
+        return marcas;
+    }
+
+    public OptionalDouble getPrecioMinimo() {
+        return preciosOrdenados.length == 0 ? OptionalDouble.empty() : OptionalDouble.of(preciosOrdenados[0]);
+    }
+
+    public OptionalDouble getPrecioMaximo() {
+        return preciosOrdenados.length == 0
+                ? OptionalDouble.empty()
+                : OptionalDouble.of(preciosOrdenados[preciosOrdenados.length - 1]);
+    }
+
+    public IndiceSugerencias getSugerencias() {
+        return sugerencias;
+    }
+
+    public long getGeneracion() {
+        return generacion;
+    }
+
+    public int getTotalTerminos() {
+        return terminos.length;
+    }
+
+    // ========== NORMALIZACIÓN ==========
+
+    /**
+     * Pasa a minúsculas y elimina acentos ("Cámara" → "camara")
+     */
+    public static String normalizar(String texto) {
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS_DIACRITICAS.matcher(descompuesto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide un texto normalizado en términos alfanuméricos
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static void indexarTexto(Map<String, BitSet> invertido, int ordinal, String texto) {
+        if (texto == null) {
+            return;
+        }
+        for (String token : tokenizar(texto)) {
+            invertido.computeIfAbsent(token, k -> new BitSet()).set(ordinal);
+        }
+    }
+
+    /**
+     * Índice de todas las subcadenas de 1 a {@link #LARGO_GRAMA} caracteres de cada término
+     */
+    private static Map<String, int[]> indexarGramas(String[] terminos) {
+        Map<String, List<Integer>> porGrama = new HashMap<>();
+        for (int t = 0; t < terminos.length; t++) {
+            String termino = terminos[t];
+            for (int largo = 1; largo <= LARGO_GRAMA; largo++) {
+                for (int i = 0; i + largo <= termino.length(); i++) {
+                    List<Integer> lista = porGrama.computeIfAbsent(termino.substring(i, i + largo), k -> new ArrayList<>());
+                    // Los términos se recorren en orden: un grama repetido en el mismo término ya quedó al final
+                    if (lista.isEmpty() || lista.get(lista.size() - 1) != t) {
+                        lista.add(t);
+                    }
+                }
+            }
+        }
+
+        Map<String, int[]> resultado = new HashMap<>(porGrama.size() * 2);
+        porGrama.forEach((grama, lista) -> resultado.put(grama, lista.stream().mapToInt(Integer::intValue).toArray()));
+        return resultado;
+    }
+
+    private static void agregar(BitSet destino, int[] ordinales) {
+        for (int ordinal : ordinales) {
+            destino.set(ordinal);
+        }
+    }
+
+    private static int[] permutacion(int n, Comparator<Integer> comparador) {
+        Integer[] orden = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, comparador);
+        int[] resultado = new int[n];
+        for (int i = 0; i < n; i++) {
+            resultado[i] = orden[i];
+        }
+        return resultado;
+    }
+
+    private static double precio(ProductoDTO p) {
+        return p.getPrecio() != null ? p.getPrecio() : 0.0;
+    }
+
+    private static String nombre(ProductoDTO p) {
+        return p.getNombre() != null ? p.getNombre() : "";
+    }
+
+}
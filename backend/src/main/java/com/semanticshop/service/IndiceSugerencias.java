@@ -0,0 +1,338 @@
+package com.semanticshop.service;
+
+import com.semanticshop.dto.ProductoDTO;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Trie de autocompletado sobre los nombres de producto.
+ * Cada nombre se inserta a partir de cada inicio de palabra ("AirPods Pro" → "airpods pro", "pro"),
+ * normalizado sin acentos. Cada nodo guarda precalculados los mejores {@link #MAX_POR_NODO} nombres
+ * de su subárbol ordenados por peso (stock), así que una consulta exacta cuesta O(largo del prefijo + k).
+ * Si no alcanza, se agregan los nombres que contienen el texto en cualquier posición ("book" → "MacBook"),
+ * como hacía la búsqueda original, usando un índice de bigramas y trigramas; y por último coincidencias
+ * tolerantes a errores de tipeo (distancia de Damerau-Levenshtein acotada) recorriendo el trie fila por fila.
+ */
+public final class IndiceSugerencias {
+
+    /**
+     * Cantidad de sugerencias precalculadas por nodo y máximo que devuelve {@link #sugerir}
+     */
+    public static final int MAX_POR_NODO = 10;
+
+    private static final int[] VACIO = new int[0];
+    private static final int LARGO_MINIMO_GRAMA = 2;
+    private static final int LARGO_MAXIMO_GRAMA = 3;
+
+    private final String[] nombres;
+    private final int[] pesos;
+
+    // Nombres normalizados, nombres de mayor a menor peso y, por cada bigrama y trigrama,
+    // las posiciones (ascendentes) en ese orden de los nombres que lo contienen
+    private final String[] claves;
+    private final int[] porRelevancia;
+    private final Map<String, int[]> posicionesPorGrama;
+
+    // Nodo i: etiquetas ordenadas de sus hijos, índice de cada hijo y mejores nombres del subárbol
+    private final char[][] etiquetas;
+    private final int[][] hijos;
+    private final int[][] mejores;
+
+    private IndiceSugerencias(String[] nombres, int[] pesos, NodoConstruccion raiz, int totalNodos) {
+        this.nombres = nombres;
+        this.pesos = pesos;
+        this.etiquetas = new char[totalNodos][];
+        this.hijos = new int[totalNodos][];
+        this.mejores = new int[totalNodos][];
+        congelar(raiz);
+
+        this.claves = new String[nombres.length];
+        for (int i = 0; i < nombres.length; i++) {
+            claves[i] = normalizarClave(nombres[i]);
+        }
+        this.porRelevancia = IntStream.range(0, nombres.length).boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> -pesos[i]).thenComparing(i -> nombres[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.posicionesPorGrama = indexarGramas();
+    }
+
+    /**
+     * Construye el trie con los nombres del catálogo, usando el stock como popularidad
+     */
+    public static IndiceSugerencias construir(Collection<ProductoDTO> productos) {
+        Map<String, Integer> pesoPorNombre = new HashMap<>();
+        for (ProductoDTO p : productos) {
+            if (p.getNombre() == null) {
+                continue;
+            }
+            int peso = p.getStock() != null ? p.getStock() : 0;
+            pesoPorNombre.merge(p.getNombre(), peso, Math::max);
+        }
+
+        String[] nombres = pesoPorNombre.keySet().stream().sorted().toArray(String[]::new);
+        int[] pesos = new int[nombres.length];
+        for (int i = 0; i < nombres.length; i++) {
+            pesos[i] = pesoPorNombre.get(nombres[i]);
+        }
+
+        NodoConstruccion raiz = new NodoConstruccion();
+        int[] contador = {1};
+        for (int i = 0; i < nombres.length; i++) {
+            String clave = normalizarClave(nombres[i]);
+            for (int inicio = 0; inicio < clave.length(); inicio++) {
+                if (inicio == 0 || clave.charAt(inicio - 1) == ' ') {
+                    insertar(raiz, clave, inicio, i, contador);
+                }
+            }
+        }
+
+        return new IndiceSugerencias(nombres, pesos, raiz, contador[0]);
+    }
+
+    /**
+     * Devuelve hasta {@code limite} nombres (como máximo {@link #MAX_POR_NODO}): primero los que tienen
+     * una palabra que empieza con el texto, después los que lo contienen en otra posición y,
+     * si todavía no alcanzan, coincidencias aproximadas
+     *
+     * @throws IllegalArgumentException si el límite supera {@link #MAX_POR_NODO}
+     */
+    public List<String> sugerir(String texto, int limite) {
+        if (limite > MAX_POR_NODO) {
+            throw new IllegalArgumentException("El límite de sugerencias no puede superar " + MAX_POR_NODO);
+        }
+        String prefijo = normalizarClave(texto);
+        if (prefijo.isEmpty() || limite <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> resultado = new ArrayList<>(limite);
+        int nodo = descender(prefijo);
+        if (nodo >= 0) {
+            int[] top = mejores[nodo];
+            for (int k = 0; k < top.length && resultado.size() < limite; k++) {
+                resultado.add(nombres[top[k]]);
+            }
+        }
+
+        if (resultado.size() < limite) {
+            agregarSubcadenas(prefijo, limite, resultado);
+        }
+
+        int distanciaMaxima = distanciaPermitida(prefijo);
+        if (resultado.size() < limite && distanciaMaxima > 0) {
+            agregarAproximadas(prefijo, distanciaMaxima, limite, resultado);
+        }
+        return resultado;
+    }
+
+    public int size() {
+        return nombres.length;
+    }
+
+    // ========== BÚSQUEDA ==========
+
+    private int descender(String prefijo) {
+        int nodo = 0;
+        for (int i = 0; i < prefijo.length(); i++) {
+            int pos = Arrays.binarySearch(etiquetas[nodo], prefijo.charAt(i));
+            if (pos < 0) {
+                return -1;
+            }
+            nodo = hijos[nodo][pos];
+        }
+        return nodo;
+    }
+
+    /**
+     * Agrega, de mayor a menor peso, los nombres que contienen el texto en cualquier posición.
+     * Con dos o más caracteres solo se verifican los nombres del grama menos frecuente del texto;
+     * con uno se recorren todos en orden de peso hasta completar, lo que termina enseguida salvo
+     * para letras casi ausentes del catálogo
+     */
+    private void agregarSubcadenas(String texto, int limite, List<String> resultado) {
+        int[] posiciones = null;
+        if (texto.length() >= LARGO_MINIMO_GRAMA) {
+            int largo = Math.min(texto.length(), LARGO_MAXIMO_GRAMA);
+            for (int i = 0; i + largo <= texto.length(); i++) {
+                int[] candidatas = posicionesPorGrama.getOrDefault(texto.substring(i, i + largo), VACIO);
+                if (posiciones == null || candidatas.length < posiciones.length) {
+                    posiciones = candidatas;
+                }
+            }
+        }
+
+        Set<String> incluidos = new HashSet<>(resultado);
+        int total = posiciones != null ? posiciones.length : porRelevancia.length;
+        for (int k = 0; k < total && resultado.size() < limite; k++) {
+            int nombre = porRelevancia[posiciones != null ? posiciones[k] : k];
+            if (claves[nombre].contains(texto) && incluidos.add(nombres[nombre])) {
+                resultado.add(nombres[nombre]);
+            }
+        }
+    }
+
+    /**
+     * Recorre el trie calculando la distancia de edición entre el prefijo y cada camino;
+     * un nodo coincide cuando el prefijo completo está a distancia acotada de su camino
+     */
+    private void agregarAproximadas(String prefijo, int distanciaMaxima, int limite, List<String> resultado) {
+        int n = prefijo.length();
+        int[] filaInicial = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            filaInicial[j] = j;
+        }
+
+        // Candidatos (nombre, distancia); se ordenan por distancia y luego por peso
+        List<int[]> candidatos = new ArrayList<>();
+        Set<Integer> vistos = new HashSet<>();
+        for (String s : resultado) {
+            vistos.add(Arrays.binarySearch(nombres, s));
+        }
+
+        for (int c = 0; c < hijos[0].length; c++) {
+            recorrerAproximado(hijos[0][c], etiquetas[0][c], '\0', prefijo, filaInicial, null,
+                    distanciaMaxima, candidatos, vistos, n + distanciaMaxima);
+        }
+
+        candidatos.sort(Comparator.<int[]>comparingInt(c -> c[1])
+                .thenComparing(c -> -pesos[c[0]])
+                .thenComparing(c -> nombres[c[0]]));
+        for (int[] candidato : candidatos) {
+            if (resultado.size() >= limite) {
+                break;
+            }
+            resultado.add(nombres[candidato[0]]);
+        }
+    }
+
+    private void recorrerAproximado(int nodo, char letra, char letraAnterior, String prefijo,
+                                    int[] filaAnterior, int[] filaPrevia,
+                                    int distanciaMaxima, List<int[]> candidatos, Set<Integer> vistos,
+                                    int profundidadRestante) {
+        int n = prefijo.length();
+        int[] fila = new int[n + 1];
+        fila[0] = filaAnterior[0] + 1;
+        int minimo = fila[0];
+        for (int j = 1; j <= n; j++) {
+            int costo = prefijo.charAt(j - 1) == letra ? 0 : 1;
+            fila[j] = Math.min(Math.min(fila[j - 1] + 1, filaAnterior[j] + 1), filaAnterior[j - 1] + costo);
+            // Transposición de dos letras adyacentes ("ipohne" → "iphone") cuenta como un solo error
+            if (filaPrevia != null && j > 1
+                    && prefijo.charAt(j - 1) == letraAnterior && prefijo.charAt(j - 2) == letra) {
+                fila[j] = Math.min(fila[j], filaPrevia[j - 2] + 1);
+            }
+            minimo = Math.min(minimo, fila[j]);
+        }
+
+        if (fila[n] <= distanciaMaxima) {
+            // Todo el subárbol coincide: basta con sus mejores nombres precalculados
+            for (int candidato : mejores[nodo]) {
+                if (vistos.add(candidato)) {
+                    candidatos.add(new int[]{candidato, fila[n]});
+                }
+            }
+            return;
+        }
+
+        if (minimo > distanciaMaxima || profundidadRestante <= 1) {
+            return;
+        }
+        for (int c = 0; c < hijos[nodo].length; c++) {
+            recorrerAproximado(hijos[nodo][c], etiquetas[nodo][c], letra, prefijo, fila, filaAnterior,
+                    distanciaMaxima, candidatos, vistos, profundidadRestante - 1);
+        }
+    }
+
+    /**
+     * Prefijos cortos no toleran errores; 1 error desde 4 letras y 2 desde 8
+     */
+    private static int distanciaPermitida(String prefijo) {
+        if (prefijo.length() >= 8) {
+            return 2;
+        }
+        return prefijo.length() >= 4 ? 1 : 0;
+    }
+
+    // ========== CONSTRUCCIÓN ==========
+
+    private static final class NodoConstruccion {
+        final TreeMap<Character, NodoConstruccion> hijos = new TreeMap<>();
+        final Set<Integer> terminales = new HashSet<>();
+        int id;
+    }
+
+    private static void insertar(NodoConstruccion raiz, String clave, int inicio, int nombre, int[] contador) {
+        NodoConstruccion actual = raiz;
+        for (int i = inicio; i < clave.length(); i++) {
+            actual = actual.hijos.computeIfAbsent(clave.charAt(i), c -> {
+                NodoConstruccion nuevo = new NodoConstruccion();
+                nuevo.id = contador[0]++;
+                return nuevo;
+            });
+        }
+        actual.terminales.add(nombre);
+    }
+
+    /**
+     * Convierte el árbol de construcción a arreglos y calcula los mejores nombres de cada nodo
+     */
+    private int[] congelar(NodoConstruccion nodo) {
+        char[] letras = new char[nodo.hijos.size()];
+        int[] indices = new int[nodo.hijos.size()];
+
+        // Candidatos del subárbol: terminales propios más los mejores de cada hijo
+        Set<Integer> candidatos = new HashSet<>(nodo.terminales);
+        int k = 0;
+        for (Map.Entry<Character, NodoConstruccion> hijo : nodo.hijos.entrySet()) {
+            letras[k] = hijo.getKey();
+            indices[k] = hijo.getValue().id;
+            for (int mejor : congelar(hijo.getValue())) {
+                candidatos.add(mejor);
+            }
+            k++;
+        }
+
+        int[] top = candidatos.isEmpty() ? VACIO : candidatos.stream()
+                .sorted(Comparator.<Integer>comparingInt(i -> -pesos[i]).thenComparing(i -> nombres[i]))
+                .limit(MAX_POR_NODO)
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        etiquetas[nodo.id] = letras;
+        hijos[nodo.id] = indices;
+        mejores[nodo.id] = top;
+        return top;
+    }
+
+    /**
+     * Índice de bigramas y trigramas de los nombres normalizados, con posiciones en orden de peso
+     */
+    private Map<String, int[]> indexarGramas() {
+        Map<String, List<Integer>> porGrama = new HashMap<>();
+        for (int posicion = 0; posicion < porRelevancia.length; posicion++) {
+            String clave = claves[porRelevancia[posicion]];
+            for (int largo = LARGO_MINIMO_GRAMA; largo <= LARGO_MAXIMO_GRAMA; largo++) {
+                for (int i = 0; i + largo <= clave.length(); i++) {
+                    List<Integer> lista = porGrama.computeIfAbsent(clave.substring(i, i + largo), k -> new ArrayList<>());
+                    // Las posiciones se recorren en orden: un grama repetido en el mismo nombre ya quedó al final
+                    if (lista.isEmpty() || lista.get(lista.size() - 1) != posicion) {
+                        lista.add(posicion);
+                    }
+                }
+            }
+        }
+
+        Map<String, int[]> resultado = new HashMap<>(porGrama.size() * 2);
+        porGrama.forEach((grama, lista) -> resultado.put(grama, lista.stream().mapToInt(Integer::intValue).toArray()));
+        return resultado;
+    }
+
+    /**
+     * Normaliza como el índice de búsqueda y colapsa los espacios
+     */
+    private static String normalizarClave(String texto) {
+        return String.join(" ", IndiceBusqueda.tokenizar(texto));
+    }
+}
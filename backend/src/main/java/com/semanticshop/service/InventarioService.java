@@ -0,0 +1,294 @@
+package com.semanticshop.service;
+
+import com.semanticshop.dto.ProductoDTO;
+import com.semanticshop.model.InventarioProducto;
+import com.semanticshop.repository.InventarioRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Libro de inventario: fuente de verdad del stock de cada producto.
+ * Cada producto tiene un contador en memoria con su stock y las unidades reservadas; reservar,
+ * confirmar y liberar son un compareAndSet sobre ese contador, sin locks ni filas bloqueadas, así
+ * muchos checkouts simultáneos no pueden vender más de lo que hay. Los cambios confirmados se
+ * escriben en la tabla {@code inventario} en segundo plano cada {@code intervaloEscrituraMs}.
+ * Un producto sin fila toma como stock inicial el data property stock de la ontología.
+ * El estado vive en esta instancia: con varias instancias de la aplicación cada una tendría su propio libro.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class InventarioService {
+
+    private final InventarioRepository inventarioRepository;
+
+    @Value("${inventario.escritura.intervalo-ms:1000}")
+    private long intervaloEscrituraMs;
+
+    private final Map<String, Existencia> existencias = new ConcurrentHashMap<>();
+    private final Set<String> pendientesDeEscritura = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService escritor;
+
+    @PostConstruct
+    public void iniciar() {
+        for (InventarioProducto fila : inventarioRepository.findAll()) {
+            existencias.put(fila.getProductoId(), new Existencia(fila.getStock()));
+        }
+
+        escritor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "inventario-writer");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        escritor.scheduleWithFixedDelay(this::escribirPendientes,
+                intervaloEscrituraMs, intervaloEscrituraMs, TimeUnit.MILLISECONDS);
+        log.info("📦 Libro de inventario iniciado: {} productos persistidos (escritura cada {} ms)",
+                existencias.size(), intervaloEscrituraMs);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (escritor != null) {
+            escritor.shutdown();
+            try {
+                escritor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Lo confirmado desde la última escritura no se pierde al apagar
+        escribirPendientes();
+    }
+
+    /**
+     * Unidades que se pueden reservar ahora: stock menos lo reservado por checkouts en curso.
+     * Solo lee: un producto que el libro todavía no registró devuelve el stock de la ontología
+     * sin crearle una fila (las búsquedas y listados lo consultan por cada producto)
+     */
+    public int disponible(ProductoDTO producto) {
+        Existencia existencia = existencias.get(producto.getId());
+        if (existencia != null) {
+            return existencia.disponible();
+        }
+        return producto.getStock() != null ? producto.getStock() : 0;
+    }
+
+    /**
+     * Copia del producto con el stock que hoy se puede vender según el libro, para las respuestas
+     * del catálogo (el snapshot del catálogo trae el valor de la ontología y no se modifica).
+     * Un producto que el libro todavía no registró se devuelve igual: su stock sigue siendo el de la ontología
+     */
+    public ProductoDTO conExistencias(ProductoDTO producto) {
+        if (producto == null || !existencias.containsKey(producto.getId())) {
+            return producto;
+        }
+        return producto.toBuilder().stock(disponible(producto)).build();
+    }
+
+    public List<ProductoDTO> conExistencias(List<ProductoDTO> productos) {
+        return productos != null ? productos.stream().map(this::conExistencias).toList() : null;
+    }
+
+    /**
+     * Inicia una reserva. Si hay una transacción activa, al terminar se confirma (commit)
+     * o se libera (rollback) sola; si no, el llamador debe invocar confirmar o liberar
+     */
+    public Reserva iniciarReserva() {
+        Reserva reserva = new Reserva();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        reserva.confirmar();
+                    } else {
+                        reserva.liberar();
+                    }
+                }
+            });
+        }
+        return reserva;
+    }
+
+    /**
+     * Devuelve unidades al stock (por ejemplo al cancelar un pedido); dentro de una transacción
+     * se aplica recién después del commit. Un producto que el libro nunca registró no se toca,
+     * porque su stock todavía es el de la ontología y nunca se descontó
+     */
+    public void reponer(String productoId, int cantidad) {
+        Runnable aplicar = () -> {
+            Existencia existencia = existencias.get(productoId);
+            if (existencia != null) {
+                existencia.reponer(cantidad);
+                pendientesDeEscritura.add(productoId);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar.run();
+                }
+            });
+        } else {
+            aplicar.run();
+        }
+    }
+
+    private Existencia existencia(ProductoDTO producto) {
+        return existencias.computeIfAbsent(producto.getId(), id -> {
+            pendientesDeEscritura.add(id);
+            return new Existencia(producto.getStock() != null ? producto.getStock() : 0);
+        });
+    }
+
+    /**
+     * Escribe en la tabla el stock actual de los productos modificados desde la última pasada.
+     * Cada ID se saca del conjunto antes de leer su contador: un cambio posterior lo vuelve a agregar
+     */
+    synchronized void escribirPendientes() {
+        if (pendientesDeEscritura.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(pendientesDeEscritura);
+        pendientesDeEscritura.removeAll(ids);
+
+        List<InventarioProducto> filas = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            filas.add(InventarioProducto.builder()
+                    .productoId(id)
+                    .stock(existencias.get(id).stock())
+                    .build());
+        }
+
+        try {
+            inventarioRepository.saveAll(filas);
+            log.debug("💾 Stock de {} productos escrito", filas.size());
+        } catch (Exception e) {
+            pendientesDeEscritura.addAll(ids);
+            log.error("❌ Error escribiendo el inventario ({} productos): {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Unidades apartadas por una operación, confirmadas o liberadas todas juntas
+     */
+    public final class Reserva {
+
+        private final Map<String, Integer> lineas = new LinkedHashMap<>();
+        private boolean cerrada;
+
+        /**
+         * Aparta unidades del producto; devuelve false sin apartar nada si no alcanza lo disponible
+         */
+        public boolean reservar(ProductoDTO producto, int cantidad) {
+            if (cerrada) {
+                throw new IllegalStateException("La reserva ya fue confirmada o liberada");
+            }
+            if (!existencia(producto).reservar(cantidad)) {
+                return false;
+            }
+            lineas.merge(producto.getId(), cantidad, Integer::sum);
+            return true;
+        }
+
+        /**
+         * Descuenta del stock las unidades reservadas
+         */
+        public void confirmar() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            lineas.forEach((id, cantidad) -> {
+                existencias.get(id).confirmar(cantidad);
+                pendientesDeEscritura.add(id);
+            });
+        }
+
+        /**
+         * Devuelve las unidades reservadas a lo disponible sin tocar el stock
+         */
+        public void liberar() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            lineas.forEach((id, cantidad) -> existencias.get(id).liberar(cantidad));
+        }
+    }
+
+    /**
+     * Stock y unidades reservadas de un producto empaquetados en un long (32 bits cada uno),
+     * para que cada operación sea un único compareAndSet
+     */
+    private static final class Existencia {
+
+        private final AtomicLong estado;
+
+        Existencia(int stock) {
+            estado = new AtomicLong(empaquetar(stock, 0));
+        }
+
+        boolean reservar(int cantidad) {
+            long actual;
+            long nuevo;
+            do {
+                actual = estado.get();
+                int stock = stock(actual);
+                int reservado = reservado(actual);
+                if (stock - reservado < cantidad) {
+                    return false;
+                }
+                nuevo = empaquetar(stock, reservado + cantidad);
+            } while (!estado.compareAndSet(actual, nuevo));
+            return true;
+        }
+
+        void confirmar(int cantidad) {
+            estado.getAndUpdate(e -> empaquetar(stock(e) - cantidad, reservado(e) - cantidad));
+        }
+
+        void liberar(int cantidad) {
+            estado.getAndUpdate(e -> empaquetar(stock(e), reservado(e) - cantidad));
+        }
+
+        void reponer(int cantidad) {
+            estado.getAndUpdate(e -> empaquetar(stock(e) + cantidad, reservado(e)));
+        }
+
+        int stock() {
+            return stock(estado.get());
+        }
+
+        int disponible() {
+            long actual = estado.get();
+            return stock(actual) - reservado(actual);
+        }
+
+        private static long empaquetar(int stock, int reservado) {
+            return ((long) stock << 32) | (reservado & 0xFFFFFFFFL);
+        }
+
+        private static int stock(long estado) {
+            return (int) (estado >>> 32);
+        }
+
+        private static int reservado(long estado) {
+            return (int) estado;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.semanticshop.service;
+
+/**
+ * La ontología todavía se está inicializando (o falló al hacerlo) y no puede atender la operación
+ */
+public class OntologiaNoDisponibleException extends RuntimeException {
+
+    private final OntologyService.FaseInicializacion fase;
+
+    public OntologiaNoDisponibleException(OntologyService.FaseInicializacion fase) {
+        super("La ontología aún no está disponible (fase " + fase + ")");
+        this.fase = fase;
+    }
+
+    public OntologyService.FaseInicializacion getFase() {
+        return fase;
+    }
+}
@@ -1,15 +1,15 @@
 package com.semanticshop.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.jena.ontology.*;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
+import org.apache.jena.system.Txn;
 import org.apache.jena.util.FileManager;
 import org.apache.jena.vocabulary.RDF;
 import org.semanticweb.HermiT.ReasonerFactory;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.reasoner.InferenceType;
@@ -21,12 +21,29 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Servicio principal para manejar la ontología OWL y el razonador HermiT
  * CON SOPORTE PARA CONSULTAS SPARQL
+ *
+ * Modelo de concurrencia: todas las modificaciones (axiomas, razonamiento, reconstrucción
+ * de Jena) se encolan en un único hilo escritor y se ejecutan con el lock del razonador
+ * tomado, de modo que nadie observa un estado a medio razonar. HermiT no es thread-safe,
+ * así que las consultas directas al razonador también pasan por ese lock; los lectores
+ * frecuentes trabajan sobre snapshots inmutables fijados a una generación. Los triples viven
+ * en un único Dataset transaccional (TDB2 persistente o en memoria, ver AlmacenTriples) que
+ * comparten las consultas SPARQL y el análisis: reconstrucciones y deltas se aplican en
+ * transacciones de escritura y cada lector trabaja sobre el snapshot de su transacción de
+ * lectura, sin esperar al escritor.
  */
 @Service
 public class OntologyService {
@@ -36,6 +53,7 @@ public class OntologyService {
 
 
     private final ResourceLoader resourceLoader;
+    private final CacheResultadosSparql cacheSparql;
     
     @Value("${ontology.file.path}")
     private String ontologyPath;
@@ -43,85 +61,383 @@ public class OntologyService {
     @Value("${ontology.namespace}")
     private String namespace;
 
+    // Directorio del almacén TDB2; vacío = dataset en memoria reconstruido en cada arranque
+    @Value("${ontology.almacen.directorio:}")
+    private String directorioAlmacen = "";
+
+    @Value("${ontology.inicializacion.asincrona:true}")
+    private boolean inicializacionAsincrona;
+
+    // Copia binaria (Binary RDF) del archivo fuente; vacío = siempre se parsea el RDF/XML
+    @Value("${ontology.binario.archivo:}")
+    private String archivoBinario = "";
+
+    // Snapshot binario de inferencias; vacío = siempre se razona al arrancar
+    @Value("${ontology.snapshot.archivo:}")
+    private String archivoSnapshot = "";
+
+    @Value("${ontology.jena.cambios-entre-reconstrucciones:500}")
+    private long cambiosEntreReconstrucciones = 500;
+
+    // Espera máxima al apagar para que el hilo escritor termine lo que tiene encolado
+    @Value("${ontology.escritura.espera-apagado-segundos:30}")
+    private long esperaApagadoSegundos = 30;
+
     private OWLOntologyManager manager;
     private OWLOntology ontology;
-    private OWLReasoner reasoner;
-    private OWLDataFactory dataFactory;
+    // Se publica ya razonado; puede ser null mientras se razona en segundo plano tras cargar un snapshot
+    private volatile OWLReasoner reasoner;
+    // Las data factories de la OWL API son intercambiables: disponible antes de cargar la ontología
+    private final OWLDataFactory dataFactory = OWLManager.getOWLDataFactory();
     
-    // Modelo Jena para SPARQL
-    private OntModel jenaModel;
+    // Dataset Jena compartido por SPARQL y análisis (grafo por defecto = ontología)
+    private volatile Dataset dataset;
+    private AlmacenTriples almacen;
+
+    // Versión del contenido del dataset: cambia con cada reconstrucción o delta confirmado
+    private final AtomicLong versionJena = new AtomicLong();
+
+    // Mantiene el dataset al día aplicando cada cambio de la OWL API como delta de triples
+    private PuenteOwlJena puenteJena;
+
+    /**
+     * Fases de la inicialización; solo en LISTA se pueden usar ontología, Jena y razonador
+     */
+    public enum FaseInicializacion {
+        PENDIENTE, CARGANDO_ONTOLOGIA, SINCRONIZANDO_JENA, RAZONANDO, LISTA, FALLIDA
+    }
+
+    // Se publica como LISTA después de asignar ontología, dataset y snapshot/razonador
+    private volatile FaseInicializacion fase = FaseInicializacion.PENDIENTE;
+    private volatile long inicioInicializacion;
+    private volatile long finInicializacion;
+    private volatile String errorInicializacion;
+
+    // Generación de razonamiento: se incrementa cada vez que cambian las inferencias
+    private final AtomicLong generacion = new AtomicLong();
+
+    // Generación del catálogo: solo avanza cuando cambia algo visible en los productos
+    private final AtomicLong generacionCatalogo = new AtomicLong();
+
+    // Realización materializada de la generación vigente (clase → instancias, individuo → tipos)
+    private final AtomicReference<CacheRealizacion> realizacion = new AtomicReference<>();
+
+    // Valores de data/object properties materializados para la generación vigente
+    private final AtomicReference<AlmacenPropiedades> propiedades = new AtomicReference<>();
+
+    // Alcance de las escrituras ABox según la TBox; se recalcula tras cada razonamiento completo
+    private volatile ImpactoAbox impactoAbox;
+
+    // Consistencia según el snapshot cargado, mientras HermiT aún no terminó en segundo plano
+    private volatile boolean consistenciaSnapshot = true;
+    // Hash de la ontología del último snapshot cargado o escrito
+    private volatile String hashSnapshot;
+
+    // Un solo escritor para la ontología; el lock protege al razonador frente a lectores
+    private final ReentrantLock razonadorLock = new ReentrantLock();
+    private final ExecutorService escritor = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "ontology-writer");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private volatile Thread hiloEscritor;
 
-    public OntologyService(ResourceLoader resourceLoader) {
+    public OntologyService(ResourceLoader resourceLoader, CacheResultadosSparql cacheSparql) {
         this.resourceLoader = resourceLoader;
+        this.cacheSparql = cacheSparql;
     }
 
     /**
-     * Inicializa la ontología y el razonador HermiT al inicio de la aplicación
+     * Arranca la inicialización de la ontología. Por defecto corre en el hilo escritor y el
+     * contexto de Spring queda disponible enseguida: los endpoints que no usan la ontología
+     * (auth, pedidos, lectura del carrito) atienden desde el primer momento y el resto
+     * responde 503 hasta que {@link #isLista()}. Las escrituras encoladas mientras tanto
+     * esperan detrás de la inicialización en el mismo hilo.
      */
     @PostConstruct
+    public void iniciar() {
+        if (inicializacionAsincrona) {
+            log.info("⏳ Inicialización de la ontología en segundo plano");
+            enSegundoPlano(this::initialize);
+        } else {
+            initialize();
+        }
+    }
+
+    /**
+     * Inicializa la ontología y el razonador HermiT (o su snapshot) de forma síncrona
+     */
     public void initialize() {
+        inicioInicializacion = System.currentTimeMillis();
         try {
+            fase = FaseInicializacion.CARGANDO_ONTOLOGIA;
             log.info("Inicializando ontología desde: {}", ontologyPath);
             
-            // Cargar ontología con OWL API
-            manager = OWLManager.createOWLOntologyManager();
             Resource resource = resourceLoader.getResource(ontologyPath);
-            ontology = manager.loadOntologyFromOntologyDocument(resource.getInputStream());
-            dataFactory = manager.getOWLDataFactory();
+            byte[] fuente;
+            try (InputStream in = resource.getInputStream()) {
+                fuente = in.readAllBytes();
+            }
+            String hashFuente = FormatoRdfBinario.sha256(fuente);
+
+            almacen = AlmacenTriples.abrir(directorioAlmacen);
+            dataset = almacen.getDataset();
+            boolean arranqueEnCaliente = almacen.contieneOrigen(hashFuente);
+
+            // Cargar ontología con OWL API: desde el almacén si ya tiene este archivo fuente
+            // (conserva los axiomas agregados en ejecución), si no desde el archivo
+            manager = OWLManager.createConcurrentOWLOntologyManager();
+            if (arranqueEnCaliente) {
+                log.info("💾 Almacén TDB2 vigente para este archivo fuente, se reutiliza sin reconstruir Jena");
+                ontology = FormatoRdfBinario.cargarOntologia(manager, almacen.exportarOntologia());
+            } else {
+                ontology = cargarDesdeFuente(fuente, hashFuente);
+            }
             
             log.info("Ontología cargada exitosamente. IRI: {}", ontology.getOntologyID());
             log.info("Número de axiomas: {}", ontology.getAxiomCount());
             
-            // ✅ Cargar modelo Jena para SPARQL
-            loadJenaModel();
-            
-            // ✅ IMPORTANTE: Sincronizar modelos al inicio
-            syncJenaModelFromOWL();
-            
-            // Inicializar razonador HermiT
-            OWLReasonerFactory reasonerFactory = new ReasonerFactory();
-            reasoner = reasonerFactory.createReasoner(ontology);
-            
-            // Realizar inferencias
-            log.info("Ejecutando razonamiento con HermiT...");
-            reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
-            reasoner.precomputeInferences(InferenceType.OBJECT_PROPERTY_HIERARCHY);
-            reasoner.precomputeInferences(InferenceType.CLASS_ASSERTIONS);
-            
-            // Verificar consistencia
-            boolean isConsistent = reasoner.isConsistent();
-            log.info("Ontología consistente: {}", isConsistent);
-            
-            if (!isConsistent) {
-                log.error("¡ALERTA! La ontología no es consistente");
+            fase = FaseInicializacion.SINCRONIZANDO_JENA;
+            if (arranqueEnCaliente) {
+                versionJena.incrementAndGet();
+            } else {
+                // ✅ Poblar el dataset Jena desde la ontología ya cargada (sin volver a leer el archivo)
+                if (almacen.esPersistente()) {
+                    log.info("💾 Almacén TDB2 vacío o de otro archivo fuente, se reconstruye; los datos sincronizados en ejecución se vuelven a sincronizar");
+                }
+                syncJenaModelFromOWL();
+                almacen.registrarOrigen(hashFuente);
             }
+
+            // Desde aquí los cambios de la ontología llegan a Jena por deltas
+            puenteJena = new PuenteOwlJena(ontology, dataset, cambiosEntreReconstrucciones,
+                    versionJena::incrementAndGet);
+            manager.addOntologyChangeListener(puenteJena);
             
-            log.info("Razonador HermiT inicializado correctamente");
+            // Con un snapshot de inferencias de esta misma ontología no hace falta esperar a HermiT
+            fase = FaseInicializacion.RAZONANDO;
+            String hashOntologia = archivoSnapshot.isBlank() ? null : SnapshotInferencias.hashContenido(ontology);
+            Optional<SnapshotInferencias> snapshot = hashOntologia == null
+                    ? Optional.empty()
+                    : SnapshotInferencias.leer(Path.of(archivoSnapshot), hashOntologia);
+
+            if (snapshot.isPresent()) {
+                instalarSnapshot(snapshot.get());
+                // El razonador real se prepara en el hilo escritor; las escrituras se encolan detrás
+                enSegundoPlano(this::inicializarRazonadorTrasSnapshot);
+            } else {
+                inicializarRazonador();
+                nuevaGeneracion();
+                if (hashOntologia != null) {
+                    enSegundoPlano(() -> guardarSnapshot(hashOntologia));
+                }
+            }
+
+            finInicializacion = System.currentTimeMillis();
+            fase = FaseInicializacion.LISTA;
+            if (errorInicializacion != null) {
+                // El razonador en segundo plano falló antes de llegar aquí
+                fase = FaseInicializacion.FALLIDA;
+            }
+            log.info("✅ Ontología lista en {} ms", finInicializacion - inicioInicializacion);
             
         } catch (Exception e) {
+            errorInicializacion = e.getMessage();
+            fase = FaseInicializacion.FALLIDA;
             log.error("Error al inicializar la ontología: {}", e.getMessage(), e);
             throw new RuntimeException("Error fatal al cargar la ontología", e);
         }
     }
 
     /**
-     * Cargar modelo Jena para consultas SPARQL
+     * Indica si la ontología terminó de cargarse y puede atender consultas
+     */
+    public boolean isLista() {
+        return fase == FaseInicializacion.LISTA;
+    }
+
+    /**
+     * Indica si la inicialización falló; es un estado terminal, reintentar no sirve hasta reiniciar
+     */
+    public boolean isFallida() {
+        return fase == FaseInicializacion.FALLIDA;
+    }
+
+    /**
+     * Lanza OntologiaNoDisponibleException si la ontología todavía no está lista
+     */
+    public void verificarDisponible() {
+        if (!isLista()) {
+            throw new OntologiaNoDisponibleException(fase);
+        }
+    }
+
+    /**
+     * Fase de la inicialización, tiempo transcurrido y error si lo hubo
+     */
+    public Map<String, Object> getEstadoInicializacion() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        FaseInicializacion actual = fase;
+        estado.put("fase", actual);
+        estado.put("lista", actual == FaseInicializacion.LISTA);
+        estado.put("fallida", actual == FaseInicializacion.FALLIDA);
+        if (inicioInicializacion > 0) {
+            long fin = finInicializacion > 0 ? finInicializacion : System.currentTimeMillis();
+            estado.put("duracionMs", fin - inicioInicializacion);
+        }
+        if (errorInicializacion != null) {
+            estado.put("error", errorInicializacion);
+        }
+        return estado;
+    }
+
+    /**
+     * Crea el razonador HermiT y precomputa sus inferencias; se publica ya razonado
      */
-    private void loadJenaModel() {
+    private void inicializarRazonador() {
+        long inicio = System.currentTimeMillis();
+        OWLReasonerFactory reasonerFactory = new ReasonerFactory();
+        OWLReasoner nuevo = reasonerFactory.createReasoner(ontology);
+        
+        // Realizar inferencias
+        log.info("Ejecutando razonamiento con HermiT...");
+        nuevo.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+        nuevo.precomputeInferences(InferenceType.OBJECT_PROPERTY_HIERARCHY);
+        nuevo.precomputeInferences(InferenceType.CLASS_ASSERTIONS);
+        
+        // Verificar consistencia
+        boolean isConsistent = nuevo.isConsistent();
+        log.info("Ontología consistente: {}", isConsistent);
+        
+        if (!isConsistent) {
+            log.error("¡ALERTA! La ontología no es consistente");
+        }
+        
+        reasoner = nuevo;
+        log.info("Razonador HermiT inicializado correctamente en {} ms", System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Publica la realización y las propiedades del snapshot como generación 1
+     */
+    private void instalarSnapshot(SnapshotInferencias snapshot) {
+        long inicio = System.currentTimeMillis();
+        long generacionActual = nuevaGeneracion();
+        CacheRealizacion cache = snapshot.realizacion(generacionActual, dataFactory);
+        realizacion.set(cache);
+        propiedades.set(snapshot.propiedades(generacionActual, ontology, dataFactory,
+                cache.getNombresInstancias("Producto")));
+        consistenciaSnapshot = snapshot.isConsistente();
+        hashSnapshot = snapshot.getHashOntologia();
+        log.info("🧊 Inferencias cargadas desde el snapshot ({} individuos) en {} ms; HermiT razona en segundo plano",
+                snapshot.getTotalIndividuos(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Materializa realización y propiedades de la generación vigente y las vuelca al snapshot
+     */
+    private void guardarSnapshot(String hashOntologia) {
         try {
-            log.info("Cargando modelo Jena para SPARQL...");
-            jenaModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-            
-            Resource resource = resourceLoader.getResource(ontologyPath);
-            InputStream in = resource.getInputStream();
-            
-            if (in != null) {
-                jenaModel.read(in, null);
-                log.info("✅ Modelo Jena base cargado");
+            long inicio = System.currentTimeMillis();
+            SnapshotInferencias snapshot = SnapshotInferencias.capturar(hashOntologia, namespace,
+                    isConsistent(), getRealizacion(), getPropiedades());
+            snapshot.escribir(Path.of(archivoSnapshot));
+            hashSnapshot = hashOntologia;
+            log.info("🧊 Snapshot de inferencias guardado en {} ({} ms)", archivoSnapshot,
+                    System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo guardar el snapshot de inferencias: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Al cerrar, vuelca las inferencias ya materializadas si la ontología cambió desde el último
+     * snapshot (individuos sincronizados en ejecución); nunca fuerza un razonamiento
+     */
+    private void guardarSnapshotSiVigente() {
+        CacheRealizacion cache = realizacion.get();
+        AlmacenPropiedades valores = propiedades.get();
+        long generacionActual = generacion.get();
+        if (archivoSnapshot.isBlank() || reasoner == null || cache == null || valores == null
+                || cache.getGeneracion() != generacionActual || valores.getGeneracion() != generacionActual) {
+            return;
+        }
+        try {
+            String hashOntologia = SnapshotInferencias.hashContenido(ontology);
+            if (!hashOntologia.equals(hashSnapshot)) {
+                guardarSnapshot(hashOntologia);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo guardar el snapshot de inferencias: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Prepara HermiT después de instalar un snapshot. Si falla la ontología queda FALLIDA:
+     * sin razonador las escrituras no pueden aplicarse y reintentar no sirve hasta reiniciar
+     */
+    private void inicializarRazonadorTrasSnapshot() {
+        try {
+            inicializarRazonador();
+        } catch (Exception | LinkageError e) {
+            errorInicializacion = "Error al inicializar el razonador: " + e.getMessage();
+            fase = FaseInicializacion.FALLIDA;
+            log.error("❌ No se pudo inicializar el razonador tras el snapshot, la ontología queda fallida: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Razonador activo; sin él (inicialización fallida) las escrituras no pueden aplicarse
+     */
+    private OWLReasoner razonador() {
+        OWLReasoner actual = reasoner;
+        if (actual == null) {
+            throw new OntologiaNoDisponibleException(fase);
+        }
+        return actual;
+    }
+
+    /**
+     * Encola una tarea en el hilo escritor sin esperarla
+     */
+    private void enSegundoPlano(Runnable tarea) {
+        escritor.submit(() -> {
+            hiloEscritor = Thread.currentThread();
+            try {
+                tarea.run();
+            } catch (Exception e) {
+                log.error("❌ Error en tarea de ontología en segundo plano: {}", e.getMessage(), e);
             }
+        });
+    }
+
+    /**
+     * Carga la ontología desde la copia binaria del archivo fuente si está vigente; si no,
+     * parsea el archivo fuente (RDF/XML) y deja generada la copia para el próximo arranque
+     */
+    private OWLOntology cargarDesdeFuente(byte[] fuente, String hashFuente) throws Exception {
+        if (archivoBinario.isBlank()) {
+            return manager.loadOntologyFromOntologyDocument(new ByteArrayInputStream(fuente));
+        }
+
+        Path copia = Path.of(archivoBinario);
+        Optional<byte[]> binario = FormatoRdfBinario.leerCopia(copia, hashFuente);
+        if (binario.isPresent()) {
+            log.info("📦 Cargando ontología desde la copia binaria {} ({} bytes)", copia, binario.get().length);
+            return FormatoRdfBinario.cargarOntologia(manager, binario.get());
+        }
+
+        OWLOntology cargada = manager.loadOntologyFromOntologyDocument(new ByteArrayInputStream(fuente));
+        try {
+            byte[] generado = FormatoRdfBinario.desdeOntologia(manager, cargada);
+            FormatoRdfBinario.escribirCopia(copia, hashFuente, generado);
+            log.info("📦 Copia binaria de la ontología generada en {} ({} bytes, fuente {} bytes)",
+                    copia, generado.length, fuente.length);
         } catch (Exception e) {
-            log.error("Error cargando modelo Jena: {}", e.getMessage());
+            log.warn("⚠️ No se pudo generar la copia binaria de la ontología: {}", e.getMessage());
         }
+        return cargada;
     }
 
     /**
@@ -129,20 +445,35 @@ public class OntologyService {
      * Este método copia los datos del modelo OWL API al modelo Jena
      */
     public void syncJenaModelFromOWL() {
+        ejecutarEscritura(this::reconstruirModeloJena);
+    }
+
+    private void reconstruirModeloJena() {
         try {
             log.info("🔄 Sincronizando modelo Jena desde OWL API...");
             
-            // Exportar ontología OWL a RDF/XML temporal
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            manager.saveOntology(ontology, new RDFXMLDocumentFormat(), outputStream);
-            
-            // Recargar en Jena
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            jenaModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-            jenaModel.read(inputStream, null);
+            // Exportar la ontología OWL en Binary RDF y decodificarla directo a triples Jena
+            Model reconstruido = FormatoRdfBinario.aModeloJena(FormatoRdfBinario.desdeOntologia(manager, ontology));
+
+            // Verificación del modelo mantenido por deltas contra la reconstrucción completa
+            long triplesPorDeltas = getTriplesJena();
+            if (puenteJena != null && triplesPorDeltas != reconstruido.size()) {
+                log.warn("⚠️ El modelo Jena por deltas divergió: {} triples vs {} en la reconstrucción",
+                        triplesPorDeltas, reconstruido.size());
+            }
+            // Los lectores con una transacción abierta terminan sobre el snapshot anterior
+            Txn.executeWrite(dataset, () -> {
+                Model modelo = dataset.getDefaultModel();
+                modelo.removeAll();
+                modelo.add(reconstruido);
+            });
+            versionJena.incrementAndGet();
+            if (puenteJena != null) {
+                puenteJena.reconstruccionRealizada();
+            }
             
             log.info("✅ Modelo Jena sincronizado");
-            log.info("   - Triples en Jena: {}", jenaModel.size());
+            log.info("   - Triples en Jena: {}", reconstruido.size());
             log.info("   - Individuos en OWL: {}", ontology.getIndividualsInSignature().size());
             
         } catch (Exception e) {
@@ -154,16 +485,22 @@ public class OntologyService {
      * Ejecuta el razonador para precomputar inferencias
      */
     public void runReasoner() {
+        ejecutarEscritura(this::razonarCompleto);
+    }
+
+    private void razonarCompleto() {
+        OWLReasoner activo = razonador();
         log.info("Ejecutando razonador HermiT...");
         try {
-            reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
-            reasoner.precomputeInferences(InferenceType.OBJECT_PROPERTY_HIERARCHY);
-            reasoner.precomputeInferences(InferenceType.DATA_PROPERTY_HIERARCHY);
-            reasoner.flush();
+            activo.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+            activo.precomputeInferences(InferenceType.OBJECT_PROPERTY_HIERARCHY);
+            activo.precomputeInferences(InferenceType.DATA_PROPERTY_HIERARCHY);
+            activo.flush();
             
-            // ✅ Sincronizar Jena después de razonar
-            syncJenaModelFromOWL();
+            // Jena ya refleja los axiomas por deltas; solo se reconstruye si el puente lo pide
+            verificarModeloJena();
             
+            nuevaGeneracion();
             log.info("✅ Razonador ejecutado exitosamente");
         } catch (Exception e) {
             log.error("❌ Error al ejecutar razonador: {}", e.getMessage());
@@ -172,21 +509,262 @@ public class OntologyService {
     }
 
     /**
-     * Limpia recursos al cerrar la aplicación
+     * Agrega axiomas a la ontología y actualiza las inferencias.
+     * HermiT no tiene modo incremental: flush() vuelve a cargar y preprocesar la ontología completa.
+     * Si todos los axiomas son ABox (asserciones sobre individuos) la jerarquía de clases
+     * y propiedades no cambia, así que se omite su precomputación explícita y la reconstrucción
+     * de Jena (el PuenteOwlJena ya agregó los triples); la realización se resuelve bajo demanda.
+     * Si algún axioma modifica la TBox se ejecuta el razonamiento completo.
+     * La escritura es atómica: si el razonador falla se quitan los axiomas agregados
+     * (el puente también los quita de Jena) y la generación no cambia.
+     */
+    public void aplicarAxiomas(Collection<? extends OWLAxiom> axiomas) {
+        ejecutarEscritura(() -> aplicarAxiomasInterno(axiomas));
+    }
+
+    private void aplicarAxiomasInterno(Collection<? extends OWLAxiom> axiomas) {
+        List<OWLAxiom> nuevos = axiomas.stream()
+                .filter(ax -> !ontology.containsAxiom(ax))
+                .collect(Collectors.toList());
+
+        if (nuevos.isEmpty()) {
+            log.debug("Sin axiomas nuevos para aplicar");
+            return;
+        }
+
+        OWLReasoner activo = razonador();
+        boolean soloABox = nuevos.stream().allMatch(ax -> ax.isOfType(AxiomType.ABoxAxiomTypes));
+        manager.addAxioms(ontology, nuevos.stream());
+
+        try {
+            if (!soloABox) {
+                log.info("Axiomas TBox detectados, ejecutando razonamiento completo");
+                razonarCompleto();
+                return;
+            }
+
+            long inicio = System.currentTimeMillis();
+            activo.flush();
+
+            // Los triples ya llegaron a Jena mediante el PuenteOwlJena al agregar los axiomas
+            verificarModeloJena();
+
+            Set<OWLNamedIndividual> afectados = new HashSet<>();
+            nuevos.forEach(ax -> afectados.addAll(ax.getIndividualsInSignature()));
+            boolean catalogoAfectado = actualizarCaches(generacion.get() + 1, nuevos, afectados);
+            generacion.incrementAndGet();
+            if (catalogoAfectado) {
+                generacionCatalogo.incrementAndGet();
+            }
+
+            log.info("✅ {} axiomas ABox aplicados ({} individuos{}) en {} ms", nuevos.size(), afectados.size(),
+                    catalogoAfectado ? ", catálogo afectado" : "", System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            log.error("❌ Error aplicando axiomas, se deshacen {} cambios: {}", nuevos.size(), e.getMessage());
+            deshacerAxiomas(nuevos);
+            throw new RuntimeException("Error al aplicar axiomas", e);
+        }
+    }
+
+    /**
+     * Avanza la generación de inferencias y la del catálogo después de un razonamiento completo
+     */
+    private long nuevaGeneracion() {
+        impactoAbox = null;
+        generacionCatalogo.incrementAndGet();
+        return generacion.incrementAndGet();
+    }
+
+    /**
+     * Después de una escritura ABox, parchea la realización y las propiedades vigentes para la
+     * generación siguiente consultando al razonador solo por los individuos afectados, en lugar de
+     * descartarlas y volver a realizar toda la ontología. Los afectados son los individuos de los
+     * axiomas más los vecinos que las restricciones de la TBox hacen depender de ellos (ver
+     * {@link ImpactoAbox}). Si las cachés no estaban construidas, la ontología tiene propiedades
+     * transitivas o cadenas de propiedades, o la propagación no se puede acotar a un salto, quedan
+     * para reconstruirse completas.
+     *
+     * @return true si cambió algo que el catálogo de productos muestra
+     */
+    private boolean actualizarCaches(long generacionNueva, List<OWLAxiom> axiomas, Set<OWLNamedIndividual> afectados) {
+        CacheRealizacion cache = realizacion.get();
+        long generacionAnterior = generacionNueva - 1;
+        if (cache == null || cache.getGeneracion() != generacionAnterior || propagaPorPropiedades()) {
+            return true;
+        }
+
+        ImpactoAbox impacto = impactoAbox;
+        if (impacto == null) {
+            impacto = ImpactoAbox.analizar(ontology, reasoner);
+            impactoAbox = impacto;
+        }
+        Optional<Set<OWLNamedIndividual>> vecinos = impacto.vecinosAfectados(axiomas, afectados, reasoner);
+        if (vecinos.isEmpty()) {
+            return true;
+        }
+        afectados.addAll(vecinos.get());
+
+        Map<OWLNamedIndividual, Set<OWLClass>> tipos = new HashMap<>(afectados.size() * 2);
+        afectados.forEach(ind -> tipos.put(ind, reasoner.getTypes(ind, false).getFlattened()));
+        CacheRealizacion nueva = cache.conTipos(generacionNueva, tipos, namespace);
+        realizacion.set(nueva);
+
+        List<String> productos = nueva.getNombresInstancias("Producto");
+        AlmacenPropiedades valores = propiedades.get();
+        if (valores != null && valores.getGeneracion() == generacionAnterior) {
+            propiedades.set(valores.conIndividuos(generacionNueva, ontology, reasoner, namespace, afectados, productos));
+        }
+
+        return afectados.stream()
+                .map(ind -> ind.getIRI().getShortForm())
+                .anyMatch(nombre -> cache.esInstancia(nombre, "Producto") || nueva.esInstancia(nombre, "Producto"));
+    }
+
+    private boolean propagaPorPropiedades() {
+        return ontology.getAxiomCount(AxiomType.TRANSITIVE_OBJECT_PROPERTY, Imports.INCLUDED) > 0
+                || ontology.getAxiomCount(AxiomType.SUB_PROPERTY_CHAIN_OF, Imports.INCLUDED) > 0;
+    }
+
+    /**
+     * Quita de la ontología axiomas recién agregados y devuelve el razonador al estado anterior
+     */
+    private void deshacerAxiomas(List<OWLAxiom> agregados) {
+        manager.removeAxioms(ontology, agregados.stream());
+        try {
+            razonador().flush();
+        } catch (Exception e) {
+            log.error("❌ El razonador no pudo volver al estado anterior: {}", e.getMessage());
+        }
+        verificarModeloJena();
+    }
+
+    /**
+     * Reconstruye el modelo Jena completo cuando el puente de deltas lo solicita
+     * (blank nodes no eliminables, errores o límite de cambios alcanzado)
+     */
+    public void verificarModeloJena() {
+        if (puenteJena != null && puenteJena.requiereReconstruccion()) {
+            log.info("🔁 Reconstrucción periódica del modelo Jena solicitada por el puente OWL → Jena");
+            syncJenaModelFromOWL();
+        }
+    }
+
+    // ========== CONCURRENCIA ==========
+
+    /**
+     * Ejecuta una modificación en el hilo escritor con el lock del razonador tomado
+     * y espera a que termine. Si ya se está en el hilo escritor se ejecuta directamente.
+     */
+    public void ejecutarEscritura(Runnable tarea) {
+        ejecutarEscritura(() -> {
+            tarea.run();
+            return null;
+        });
+    }
+
+    public <T> T ejecutarEscritura(Callable<T> tarea) {
+        if (Thread.currentThread() == hiloEscritor) {
+            return ejecutarConLock(tarea);
+        }
+
+        Future<T> resultado = escritor.submit(() -> {
+            hiloEscritor = Thread.currentThread();
+            return ejecutarConLock(tarea);
+        });
+
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Escritura de ontología interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException("Error en escritura de ontología", e.getCause());
+        }
+    }
+
+    private <T> T ejecutarConLock(Callable<T> tarea) {
+        razonadorLock.lock();
+        try {
+            return tarea.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            razonadorLock.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta una lectura del razonador; espera si hay una escritura en curso
+     */
+    public <T> T consultar(Supplier<T> lectura) {
+        razonadorLock.lock();
+        try {
+            return lectura.get();
+        } finally {
+            razonadorLock.unlock();
+        }
+    }
+
+    /**
+     * Igual que {@link #consultar} pero sin esperar: devuelve vacío si el escritor está razonando
+     */
+    public <T> Optional<T> intentarConsultar(Supplier<T> lectura) {
+        if (!razonadorLock.tryLock()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(lectura.get());
+        } finally {
+            razonadorLock.unlock();
+        }
+    }
+
+    /**
+     * Limpia recursos al cerrar la aplicación. Primero espera a que el hilo escritor termine
+     * lo que tiene en curso y encolado, así el snapshot, el razonador y el almacén no se cierran
+     * debajo de una escritura
      */
     @PreDestroy
     public void cleanup() {
+        escritor.shutdown();
+        try {
+            if (!escritor.awaitTermination(esperaApagadoSegundos, TimeUnit.SECONDS)) {
+                List<Runnable> descartadas = escritor.shutdownNow();
+                log.warn("⏳ El escritor de la ontología no terminó en {} s; {} tareas descartadas",
+                        esperaApagadoSegundos, descartadas.size());
+                if (!escritor.awaitTermination(esperaApagadoSegundos, TimeUnit.SECONDS)) {
+                    log.error("❌ El escritor sigue activo; no se guarda el snapshot");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Apagado interrumpido esperando al escritor de la ontología");
+            return;
+        }
+        guardarSnapshotSiVigente();
         if (reasoner != null) {
             reasoner.dispose();
             log.info("Razonador HermiT cerrado");
         }
+        if (almacen != null) {
+            almacen.close();
+        }
     }
 
     /**
      * Verifica si la ontología es consistente
      */
     public boolean isConsistent() {
-        return reasoner.isConsistent();
+        if (reasoner == null) {
+            return consistenciaSnapshot;
+        }
+        return consultar(() -> reasoner.isConsistent());
     }
 
     /**
@@ -200,144 +778,299 @@ public class OntologyService {
      * Obtiene todos los individuos de una clase específica
      */
     public Set<OWLNamedIndividual> getIndividualsOfClass(String className) {
-        OWLClass owlClass = dataFactory.getOWLClass(IRI.create(namespace + className));
-        return reasoner.getInstances(owlClass, false)
-                .getFlattened();
+        return getRealizacion().getInstancias(className);
     }
 
     /**
      * Obtiene las clases inferidas de un individuo
      */
     public Set<OWLClass> getInferredClassesOfIndividual(String individualName) {
-        OWLNamedIndividual individual = dataFactory.getOWLNamedIndividual(
-                IRI.create(namespace + individualName));
-        return reasoner.getTypes(individual, false)
-                .getFlattened();
+        return getRealizacion().getTipos(individualName);
+    }
+
+    /**
+     * Devuelve la realización de la generación actual, materializándola una sola vez
+     * por generación con el lock del razonador tomado
+     */
+    public CacheRealizacion getRealizacion() {
+        CacheRealizacion actual = realizacion.get();
+        if (actual != null && actual.getGeneracion() == generacion.get()) {
+            return actual;
+        }
+
+        return consultar(() -> {
+            CacheRealizacion vigente = realizacion.get();
+            long generacionActual = generacion.get();
+            if (vigente != null && vigente.getGeneracion() == generacionActual) {
+                return vigente;
+            }
+
+            long inicio = System.currentTimeMillis();
+            CacheRealizacion nueva = CacheRealizacion.construir(generacionActual, reasoner,
+                    ontology.getIndividualsInSignature(Imports.INCLUDED), namespace);
+            realizacion.set(nueva);
+            log.info("🧠 Realización materializada (generación {}): {} individuos, {} clases en {} ms",
+                    generacionActual, nueva.getTotalIndividuos(), nueva.getTotalClases(),
+                    System.currentTimeMillis() - inicio);
+            return nueva;
+        });
     }
 
     /**
      * Obtiene el valor de una data property de un individuo
      */
     public Optional<String> getDataPropertyValue(String individualName, String propertyName) {
-        OWLNamedIndividual individual = dataFactory.getOWLNamedIndividual(
-                IRI.create(namespace + individualName));
-        OWLDataProperty property = dataFactory.getOWLDataProperty(
-                IRI.create(namespace + propertyName));
-        
-        return ontology.getDataPropertyAssertionAxioms(individual).stream()
-                .filter(ax -> ax.getProperty().equals(property))
-                .map(ax -> ax.getObject().getLiteral())
-                .findFirst();
+        return getPropiedades().getValorDato(individualName, propertyName);
     }
 
     /**
      * Obtiene los valores de una object property de un individuo
      */
     public Set<OWLNamedIndividual> getObjectPropertyValues(String individualName, String propertyName) {
-        OWLNamedIndividual individual = dataFactory.getOWLNamedIndividual(
-                IRI.create(namespace + individualName));
-        OWLObjectProperty property = dataFactory.getOWLObjectProperty(
-                IRI.create(namespace + propertyName));
-        
-        return reasoner.getObjectPropertyValues(individual, property)
-                .getFlattened();
+        return getPropiedades().getValoresObjeto(individualName, propertyName);
+    }
+
+    /**
+     * Devuelve el almacén de propiedades de la generación actual, materializándolo
+     * una sola vez por generación con el lock del razonador tomado
+     */
+    public AlmacenPropiedades getPropiedades() {
+        AlmacenPropiedades actual = propiedades.get();
+        if (actual != null && actual.getGeneracion() == generacion.get()) {
+            return actual;
+        }
+
+        return consultar(() -> {
+            AlmacenPropiedades vigente = propiedades.get();
+            long generacionActual = generacion.get();
+            if (vigente != null && vigente.getGeneracion() == generacionActual) {
+                return vigente;
+            }
+
+            long inicio = System.currentTimeMillis();
+            List<String> productos = getRealizacion().getNombresInstancias("Producto");
+            AlmacenPropiedades nuevo = AlmacenPropiedades.construir(generacionActual, ontology, reasoner,
+                    namespace, productos);
+            propiedades.set(nuevo);
+            log.info("🗂️ Propiedades materializadas (generación {}): {} productos en columnas, {} ms",
+                    generacionActual, nuevo.getTotalProductos(), System.currentTimeMillis() - inicio);
+            return nuevo;
+        });
     }
 
     // ========== MÉTODOS PARA SPARQL ==========
 
     /**
-     * Ejecutar consulta SPARQL sobre la ontología
+     * Ejecutar consulta SPARQL sobre la ontología.
+     * El resultado se cachea por texto normalizado y versión del modelo Jena
      */
     public List<Map<String, String>> executeSparqlQuery(String sparqlQuery) {
-        List<Map<String, String>> results = new ArrayList<>();
-        
-        if (jenaModel == null) {
+        return executeSparqlQuery(sparqlQuery, 0);
+    }
+
+    /**
+     * Ejecutar consulta SPARQL con timeout de Jena (0 = sin límite); al vencer se lanza
+     * QueryCancelledException y la sección crítica de lectura se libera
+     */
+    public List<Map<String, String>> executeSparqlQuery(String sparqlQuery, long timeoutMs) {
+        if (dataset == null) {
             log.error("Modelo Jena no inicializado");
-            return results;
+            return new ArrayList<>();
         }
-        
+
         try {
-            Query query = QueryFactory.create(sparqlQuery);
+            return leerModeloJenaCacheado(CacheResultadosSparql.clave("ontologia", versionJena.get(), sparqlQuery),
+                    modelo -> ejecutarSelect(modelo, sparqlQuery, timeoutMs));
+        } catch (QueryCancelledException e) {
+            log.warn("⏱️ Consulta SPARQL cancelada tras {} ms", timeoutMs);
+            throw e;
+        } catch (Exception e) {
+            log.error("Error ejecutando consulta SPARQL: {}", e.getMessage());
+            throw new RuntimeException("Error en consulta SPARQL: " + e.getMessage());
+        }
+    }
+
+    private List<Map<String, String>> ejecutarSelect(Model modelo, String sparqlQuery, long timeoutMs) {
+        List<Map<String, String>> results = new ArrayList<>();
+        Query query = QueryFactory.create(sparqlQuery);
+        
+        try (QueryExecution qexec = crearEjecucion(query, modelo, timeoutMs)) {
+            ResultSet resultSet = qexec.execSelect();
             
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, jenaModel)) {
-                ResultSet resultSet = qexec.execSelect();
+            while (resultSet.hasNext()) {
+                QuerySolution solution = resultSet.nextSolution();
+                Map<String, String> row = new HashMap<>();
                 
-                while (resultSet.hasNext()) {
-                    QuerySolution solution = resultSet.nextSolution();
-                    Map<String, String> row = new HashMap<>();
+                Iterator<String> varNames = solution.varNames();
+                while (varNames.hasNext()) {
+                    String varName = varNames.next();
+                    RDFNode node = solution.get(varName);
                     
-                    Iterator<String> varNames = solution.varNames();
-                    while (varNames.hasNext()) {
-                        String varName = varNames.next();
-                        RDFNode node = solution.get(varName);
-                        
-                        if (node != null) {
-                            if (node.isLiteral()) {
-                                row.put(varName, node.asLiteral().getString());
-                            } else if (node.isResource()) {
-                                String uri = node.asResource().getURI();
-                                if (uri != null && uri.contains("#")) {
-                                    String localName = uri.substring(uri.indexOf('#') + 1);
-                                    row.put(varName, localName);
-                                } else {
-                                    row.put(varName, uri != null ? uri : "");
-                                }
+                    if (node != null) {
+                        if (node.isLiteral()) {
+                            row.put(varName, node.asLiteral().getString());
+                        } else if (node.isResource()) {
+                            String uri = node.asResource().getURI();
+                            if (uri != null && uri.contains("#")) {
+                                String localName = uri.substring(uri.indexOf('#') + 1);
+                                row.put(varName, localName);
                             } else {
-                                row.put(varName, node.toString());
+                                row.put(varName, uri != null ? uri : "");
                             }
+                        } else {
+                            row.put(varName, node.toString());
                         }
                     }
-                    
-                    if (!row.isEmpty()) {
-                        results.add(row);
-                    }
+                }
+                
+                if (!row.isEmpty()) {
+                    results.add(row);
                 }
             }
-        } catch (Exception e) {
-            log.error("Error ejecutando consulta SPARQL: {}", e.getMessage());
-            throw new RuntimeException("Error en consulta SPARQL: " + e.getMessage());
         }
-        
         return results;
     }
 
+    /**
+     * Parsea una consulta SELECT para recorrerla en streaming. Si no trae LIMIT o el suyo
+     * supera {@code maxFilas}, se le impone {@code maxFilas}
+     */
+    public Query prepararSelect(String sparqlQuery, long maxFilas) {
+        Query query = QueryFactory.create(sparqlQuery);
+        if (!query.isSelectType()) {
+            throw new IllegalArgumentException("Solo se admiten consultas SELECT");
+        }
+        if (!query.hasLimit() || query.getLimit() > maxFilas) {
+            query.setLimit(maxFilas);
+        }
+        return query;
+    }
+
+    /**
+     * Entrega el ResultSet de la consulta al consumidor, que lo recorre a medida que se producen
+     * las soluciones, sin materializarlas ni pasar por la caché. La transacción de lectura (y con
+     * ella el snapshot que fija en memoria) se mantiene mientras el consumidor recorre, por eso
+     * conviene que la consulta traiga un LIMIT. {@code timeoutInicialMs} limita solo la espera
+     * hasta la primera solución; {@code timeoutTotalMs} el recorrido completo, incluido el tiempo
+     * que tarde el consumidor (0 = sin límite en ambos)
+     */
+    public <T> T recorrerSelect(Query query, long timeoutInicialMs, long timeoutTotalMs,
+                                Function<ResultSet, T> consumidor) {
+        return leerModeloJena(modelo -> {
+            QueryExecutionDatasetBuilder builder = QueryExecution.model(modelo).query(query);
+            if (timeoutInicialMs > 0) {
+                builder.initialTimeout(timeoutInicialMs, TimeUnit.MILLISECONDS);
+            }
+            if (timeoutTotalMs > 0) {
+                builder.overallTimeout(timeoutTotalMs, TimeUnit.MILLISECONDS);
+            }
+            try (QueryExecution qexec = builder.build()) {
+                return consumidor.apply(qexec.execSelect());
+            }
+        });
+    }
+
+    private static QueryExecution crearEjecucion(Query query, Model modelo, long timeoutMs) {
+        QueryExecutionDatasetBuilder builder = QueryExecution.model(modelo).query(query);
+        if (timeoutMs > 0) {
+            builder.timeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Ejecuta una lectura sobre el grafo de la ontología dentro de una transacción de lectura
+     * (o de la que ya esté abierta en el hilo). Lo usan las consultas preparadas, que reciben
+     * el modelo en vez de texto SPARQL
+     */
+    public <T> T leerModeloJena(Function<Model, T> lectura) {
+        Dataset actual = dataset;
+        if (actual == null) {
+            throw new IllegalStateException("Modelo Jena no inicializado");
+        }
+        return Txn.calculateRead(actual, () -> lectura.apply(actual.getDefaultModel()));
+    }
+
+    /**
+     * Ejecuta una consulta preparada sobre el modelo Jena vigente, cacheando sus filas
+     * por nombre, parámetros y versión del modelo
+     */
+    public List<Map<String, String>> consultarModeloJena(String nombre, Map<String, ?> parametros,
+                                                         Function<Model, List<Map<String, String>>> lectura) {
+        return leerModeloJenaCacheado(CacheResultadosSparql.clave("ontologia", versionJena.get(), nombre, parametros),
+                lectura);
+    }
+
+    /**
+     * La versión se lee antes de abrir la transacción de lectura: como se incrementa después de
+     * confirmar cada reconstrucción o delta, una clave nunca queda asociada a datos más viejos
+     * que su versión
+     */
+    private List<Map<String, String>> leerModeloJenaCacheado(CacheResultadosSparql.Clave clave,
+                                                             Function<Model, List<Map<String, String>>> lectura) {
+        return leerModeloJena(modelo -> cacheSparql.obtenerFilas(clave, () -> lectura.apply(modelo)));
+    }
+
     /**
      * Ejecutar consulta SPARQL ASK (booleana)
      */
     public boolean executeSparqlAsk(String sparqlQuery) {
-        if (jenaModel == null) {
+        if (dataset == null) {
             log.error("Modelo Jena no inicializado");
             return false;
         }
-        
+
         try {
-            Query query = QueryFactory.create(sparqlQuery);
-            
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, jenaModel)) {
-                return qexec.execAsk();
-            }
+            CacheResultadosSparql.Clave clave = CacheResultadosSparql.clave("ontologia", versionJena.get(), sparqlQuery);
+            return leerModeloJena(modelo -> cacheSparql.obtenerBooleano(clave, () -> {
+                Query query = QueryFactory.create(sparqlQuery);
+                try (QueryExecution qexec = QueryExecutionFactory.create(query, modelo)) {
+                    return qexec.execAsk();
+                }
+            }));
         } catch (Exception e) {
             log.error("Error ejecutando ASK query: {}", e.getMessage());
             return false;
         }
     }
 
+    public long getVersionModeloJena() {
+        return versionJena.get();
+    }
+
     /**
      * Obtener información general de la ontología (para endpoints REST)
      */
     public Map<String, Object> getOntologyInfo() {
         Map<String, Object> info = new HashMap<>();
+        info.put("inicializacion", getEstadoInicializacion());
         
         try {
             info.put("framework", "OWL API + HermiT + Apache Jena");
             info.put("reasoner", "HermiT 1.4.5");
-            info.put("consistent", reasoner.isConsistent());
+            info.put("consistent", isConsistent());
             info.put("classes", ontology.getClassesInSignature().size());
             info.put("individuals", ontology.getIndividualsInSignature().size());
             info.put("objectProperties", ontology.getObjectPropertiesInSignature().size());
             info.put("dataProperties", ontology.getDataPropertiesInSignature().size());
             info.put("axioms", ontology.getAxiomCount());
-            info.put("jenaTriples", jenaModel != null ? jenaModel.size() : 0);
+            info.put("jenaTriples", getTriplesJena());
+            if (puenteJena != null) {
+                info.put("sincronizacionJena", puenteJena.getEstadisticas());
+            }
+            info.put("versionModeloJena", versionJena.get());
+            if (almacen != null) {
+                info.put("almacenJena", almacen.getEstadisticas());
+            }
+            info.put("cacheSparql", cacheSparql.getEstadisticas());
+            CacheRealizacion cache = realizacion.get();
+            if (cache != null) {
+                info.put("realizacion", Map.of(
+                        "generacion", cache.getGeneracion(),
+                        "vigente", cache.getGeneracion() == generacion.get(),
+                        "individuos", cache.getTotalIndividuos(),
+                        "clases", cache.getTotalClases()));
+            }
         } catch (Exception e) {
             log.error("Error obteniendo información de ontología: {}", e.getMessage());
         }
@@ -361,12 +1094,7 @@ public class OntologyService {
      * Obtener lista de nombres de individuos de una clase (para endpoints REST)
      */
     public List<String> getIndividualNames(String className) {
-        Set<OWLNamedIndividual> individuals = getIndividualsOfClass(className);
-        return individuals.stream()
-                .map(ind -> ind.getIRI().getFragment())
-                .filter(Objects::nonNull)
-                .sorted()
-                .collect(Collectors.toList());
+        return getRealizacion().getNombresInstancias(className);
     }
 
     /**
@@ -374,10 +1102,15 @@ public class OntologyService {
      */
     public boolean checkConsistency() {
         try {
-            reasoner.precomputeInferences();
-            boolean consistent = reasoner.isConsistent();
+            boolean consistent = ejecutarEscritura(() -> {
+                OWLReasoner activo = razonador();
+                activo.precomputeInferences();
+                return activo.isConsistent();
+            });
             log.info("Verificación de consistencia: {}", consistent);
             return consistent;
+        } catch (OntologiaNoDisponibleException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error verificando consistencia: {}", e.getMessage());
             return false;
@@ -405,7 +1138,29 @@ public class OntologyService {
         return manager;
     }
     
-    public OntModel getJenaModel() {
-        return jenaModel;
+    /**
+     * Dataset Jena compartido; las lecturas y escrituras directas deben ir en una transacción
+     */
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public long getTriplesJena() {
+        return dataset != null ? leerModeloJena(Model::size) : 0;
+    }
+
+    /**
+     * Generación actual de inferencias (cambia después de cada runReasoner)
+     */
+    public long getGeneracion() {
+        return generacion.get();
+    }
+
+    /**
+     * Generación de lo que muestra el catálogo de productos; las escrituras ABox que no tocan
+     * productos (por ejemplo registrar un cliente) no la cambian
+     */
+    public long getGeneracionCatalogo() {
+        return generacionCatalogo.get();
     }
 }
\ No newline at end of file
@@ -6,6 +6,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.semanticweb.owlapi.model.*;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Servicio para sincronizar usuarios de la base de datos con la ontología
  */
@@ -15,134 +20,166 @@ import org.springframework.stereotype.Service;
 public class OntologySyncService {
 
     private final OntologyService ontologyService;
+    private final ColaEscrituraOntologia colaEscritura;
 
     /**
-     * Sincroniza un usuario de la BD con la ontología
+     * Sincroniza un usuario de la BD con la ontología y espera a que quede razonado
      */
     public void sincronizarUsuarioConOntologia(Usuario usuario) {
-        try {
-            String clienteId = usuario.getClienteIdOntologia();
-            
-            if (clienteId == null) {
-                log.warn("Usuario {} no tiene clienteIdOntologia", usuario.getUsername());
-                return;
-            }
+        String clienteId = usuario.getClienteIdOntologia();
+        if (clienteId == null) {
+            log.warn("Usuario {} no tiene clienteIdOntologia", usuario.getUsername());
+            return;
+        }
 
+        try {
             log.info("Sincronizando usuario {} con ontología como {}", usuario.getUsername(), clienteId);
 
-            OWLDataFactory factory = ontologyService.getDataFactory();
-            OWLOntology ontology = ontologyService.getOntology();
-            OWLOntologyManager manager = ontology.getOWLOntologyManager();
-            String namespace = ontologyService.getNamespace();
+            // Aplicar los axiomas con razonamiento incremental
+            ontologyService.aplicarAxiomas(construirAxiomasUsuario(usuario));
 
-            // 1. Crear el individuo Cliente
-            OWLNamedIndividual cliente = factory.getOWLNamedIndividual(
-                IRI.create(namespace + clienteId)
-            );
+            log.info("✅ Usuario {} sincronizado exitosamente con la ontología", clienteId);
 
-            // 2. Asignar a la clase Cliente
-            OWLClass claseCliente = factory.getOWLClass(IRI.create(namespace + "Cliente"));
-            OWLClassAssertionAxiom axiomClase = factory.getOWLClassAssertionAxiom(claseCliente, cliente);
-            manager.addAxiom(ontology, axiomClase);
+        } catch (Exception e) {
+            log.error("❌ Error al sincronizar usuario con ontología: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al sincronizar con ontología", e);
+        }
+    }
 
-            // 3. Agregar propiedad nombre
-            OWLDataProperty propNombre = factory.getOWLDataProperty(IRI.create(namespace + "nombre"));
-            OWLLiteral literalNombre = factory.getOWLLiteral(
-                usuario.getNombreCompleto() != null ? usuario.getNombreCompleto() : usuario.getUsername()
+    /**
+     * Encola la sincronización de un usuario en la cola de escritura y vuelve de inmediato.
+     * El future se completa cuando el lote que lo contiene quedó razonado.
+     */
+    public CompletableFuture<Void> encolarSincronizacion(Usuario usuario) {
+        String clienteId = usuario.getClienteIdOntologia();
+        if (clienteId == null) {
+            log.warn("Usuario {} no tiene clienteIdOntologia", usuario.getUsername());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        log.info("Encolando sincronización de usuario {} como {}", usuario.getUsername(), clienteId);
+        return colaEscritura.encolar(clienteId, construirAxiomasUsuario(usuario));
+    }
+
+    /**
+     * Estado de la última sincronización encolada para un cliente
+     */
+    public Optional<ColaEscrituraOntologia.EstadoEscritura> getEstadoSincronizacion(String clienteId) {
+        return colaEscritura.getEstado(clienteId);
+    }
+
+    /**
+     * Axiomas que representan a un usuario y sus preferencias en la ontología
+     */
+    private List<OWLAxiom> construirAxiomasUsuario(Usuario usuario) {
+        String clienteId = usuario.getClienteIdOntologia();
+        OWLDataFactory factory = ontologyService.getDataFactory();
+        String namespace = ontologyService.getNamespace();
+        List<OWLAxiom> axiomas = new ArrayList<>();
+
+        // 1. Crear el individuo Cliente
+        OWLNamedIndividual cliente = factory.getOWLNamedIndividual(
+            IRI.create(namespace + clienteId)
+        );
+
+        // 2. Asignar a la clase Cliente
+        OWLClass claseCliente = factory.getOWLClass(IRI.create(namespace + "Cliente"));
+        OWLClassAssertionAxiom axiomClase = factory.getOWLClassAssertionAxiom(claseCliente, cliente);
+        axiomas.add(axiomClase);
+
+        // 3. Agregar propiedad nombre
+        OWLDataProperty propNombre = factory.getOWLDataProperty(IRI.create(namespace + "nombre"));
+        OWLLiteral literalNombre = factory.getOWLLiteral(
+            usuario.getNombreCompleto() != null ? usuario.getNombreCompleto() : usuario.getUsername()
+        );
+        OWLDataPropertyAssertionAxiom axiomNombre = factory.getOWLDataPropertyAssertionAxiom(
+            propNombre, cliente, literalNombre
+        );
+        axiomas.add(axiomNombre);
+
+        // 4. Agregar marca preferida si existe
+        if (usuario.getMarcaPreferida() != null) {
+            OWLObjectProperty propMarca = factory.getOWLObjectProperty(
+                IRI.create(namespace + "tieneMarcaPreferida")
             );
-            OWLDataPropertyAssertionAxiom axiomNombre = factory.getOWLDataPropertyAssertionAxiom(
-                propNombre, cliente, literalNombre
+            
+            // Usar el nombre exacto de la marca como está en la ontología
+            String marcaId = usuario.getMarcaPreferida(); // "Apple", "Samsung", etc.
+            OWLNamedIndividual marca = factory.getOWLNamedIndividual(
+                IRI.create(namespace + marcaId)
             );
-            manager.addAxiom(ontology, axiomNombre);
-
-            // 4. Agregar marca preferida si existe
-            if (usuario.getMarcaPreferida() != null) {
-                OWLObjectProperty propMarca = factory.getOWLObjectProperty(
-                    IRI.create(namespace + "tieneMarcaPreferida")
-                );
-                
-                // Usar el nombre exacto de la marca como está en la ontología
-                String marcaId = usuario.getMarcaPreferida(); // "Apple", "Samsung", etc.
-                OWLNamedIndividual marca = factory.getOWLNamedIndividual(
-                    IRI.create(namespace + marcaId)
-                );
-                
-                // Asignar la marca a la clase Marca
-                OWLClass claseMarca = factory.getOWLClass(IRI.create(namespace + "Marca"));
-                manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(claseMarca, marca));
-                
-                // Relacionar cliente con marca
-                OWLObjectPropertyAssertionAxiom axiomMarca = factory.getOWLObjectPropertyAssertionAxiom(
-                    propMarca, cliente, marca
-                );
-                manager.addAxiom(ontology, axiomMarca);
-                
-                log.info("Marca preferida agregada: {}", marcaId);
-            }
-
-            // 5. Agregar sistema operativo preferido si existe
-            if (usuario.getSistemaOperativoPreferido() != null) {
-                OWLObjectProperty propSO = factory.getOWLObjectProperty(
-                    IRI.create(namespace + "tienePreferencia")
-                );
-                
-                // Usar el nombre exacto del SO como está en la ontología
-                String soId = usuario.getSistemaOperativoPreferido(); // "iOS", "Android", "Windows", "MacOS"
-                OWLNamedIndividual so = factory.getOWLNamedIndividual(
-                    IRI.create(namespace + soId)
-                );
-                
-                // Asignar a la clase SistemaOperativo
-                OWLClass claseSO = factory.getOWLClass(IRI.create(namespace + "SistemaOperativo"));
-                manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(claseSO, so));
-                
-                OWLObjectPropertyAssertionAxiom axiomSO = factory.getOWLObjectPropertyAssertionAxiom(
-                    propSO, cliente, so
-                );
-                manager.addAxiom(ontology, axiomSO);
-                
-                log.info("Sistema operativo agregado: {}", soId);
-            }
-
-            // 6. Agregar rango de precio si existe
-            if (usuario.getRangoPrecioMin() != null) {
-                OWLDataProperty propPrecioMin = factory.getOWLDataProperty(
-                    IRI.create(namespace + "presupuestoMinimo")
-                );
-                OWLLiteral literalPrecioMin = factory.getOWLLiteral(usuario.getRangoPrecioMin());
-                manager.addAxiom(ontology, factory.getOWLDataPropertyAssertionAxiom(
-                    propPrecioMin, cliente, literalPrecioMin
-                ));
-            }
-
-            if (usuario.getRangoPrecioMax() != null) {
-                OWLDataProperty propPrecioMax = factory.getOWLDataProperty(
-                    IRI.create(namespace + "presupuestoMaximo")
-                );
-                OWLLiteral literalPrecioMax = factory.getOWLLiteral(usuario.getRangoPrecioMax());
-                manager.addAxiom(ontology, factory.getOWLDataPropertyAssertionAxiom(
-                    propPrecioMax, cliente, literalPrecioMax
-                ));
-            }
-
-            // 7. Ejecutar el razonador para inferir nuevos conocimientos
-            ontologyService.runReasoner();
+            
+            // Asignar la marca a la clase Marca
+            OWLClass claseMarca = factory.getOWLClass(IRI.create(namespace + "Marca"));
+            axiomas.add(factory.getOWLClassAssertionAxiom(claseMarca, marca));
+            
+            // Relacionar cliente con marca
+            OWLObjectPropertyAssertionAxiom axiomMarca = factory.getOWLObjectPropertyAssertionAxiom(
+                propMarca, cliente, marca
+            );
+            axiomas.add(axiomMarca);
+            
+            log.info("Marca preferida agregada: {}", marcaId);
+        }
 
-            log.info("✅ Usuario {} sincronizado exitosamente con la ontología", clienteId);
+        // 5. Agregar sistema operativo preferido si existe
+        if (usuario.getSistemaOperativoPreferido() != null) {
+            OWLObjectProperty propSO = factory.getOWLObjectProperty(
+                IRI.create(namespace + "tienePreferencia")
+            );
+            
+            // Usar el nombre exacto del SO como está en la ontología
+            String soId = usuario.getSistemaOperativoPreferido(); // "iOS", "Android", "Windows", "MacOS"
+            OWLNamedIndividual so = factory.getOWLNamedIndividual(
+                IRI.create(namespace + soId)
+            );
+            
+            // Asignar a la clase SistemaOperativo
+            OWLClass claseSO = factory.getOWLClass(IRI.create(namespace + "SistemaOperativo"));
+            axiomas.add(factory.getOWLClassAssertionAxiom(claseSO, so));
+            
+            OWLObjectPropertyAssertionAxiom axiomSO = factory.getOWLObjectPropertyAssertionAxiom(
+                propSO, cliente, so
+            );
+            axiomas.add(axiomSO);
+            
+            log.info("Sistema operativo agregado: {}", soId);
+        }
 
-        } catch (Exception e) {
-            log.error("❌ Error al sincronizar usuario con ontología: {}", e.getMessage(), e);
-            throw new RuntimeException("Error al sincronizar con ontología", e);
+        // 6. Agregar rango de precio si existe
+        if (usuario.getRangoPrecioMin() != null) {
+            OWLDataProperty propPrecioMin = factory.getOWLDataProperty(
+                IRI.create(namespace + "presupuestoMinimo")
+            );
+            OWLLiteral literalPrecioMin = factory.getOWLLiteral(usuario.getRangoPrecioMin());
+            axiomas.add(factory.getOWLDataPropertyAssertionAxiom(
+                propPrecioMin, cliente, literalPrecioMin
+            ));
         }
+
+        if (usuario.getRangoPrecioMax() != null) {
+            OWLDataProperty propPrecioMax = factory.getOWLDataProperty(
+                IRI.create(namespace + "presupuestoMaximo")
+            );
+            OWLLiteral literalPrecioMax = factory.getOWLLiteral(usuario.getRangoPrecioMax());
+            axiomas.add(factory.getOWLDataPropertyAssertionAxiom(
+                propPrecioMax, cliente, literalPrecioMax
+            ));
+        }
+
+        return axiomas;
     }
 
     /**
      * Verifica si un cliente existe en la ontología
      */
     public boolean clienteExisteEnOntologia(String clienteId) {
+        if (!ontologyService.isLista()) {
+            // Se sincroniza igual: los axiomas ya presentes se descartan al aplicarlos
+            return false;
+        }
         try {
-            return ontologyService.getIndividualsOfClass("Cliente").stream()
-                .anyMatch(ind -> ind.getIRI().getShortForm().equals(clienteId));
+            return ontologyService.getRealizacion().esInstancia(clienteId, "Cliente");
         } catch (Exception e) {
             log.error("Error al verificar existencia de cliente: {}", e.getMessage());
             return false;
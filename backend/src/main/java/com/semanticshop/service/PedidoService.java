@@ -6,9 +6,11 @@ import com.semanticshop.repository.CarritoRepository;
 import com.semanticshop.repository.PedidoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -22,9 +24,17 @@ public class PedidoService {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PedidoService.class);
 
+    /** Tamaño máximo de una página de pedidos (coincide con el @BatchSize de los detalles) */
+    public static final int TAMANIO_PAGINA_MAXIMO = 100;
+
+    /** Posición anterior a cualquier pedido, para pedir la primera página con la misma consulta */
+    private static final LocalDateTime FECHA_INICIO_PAGINACION = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final PedidoRepository pedidoRepository;
     private final CarritoRepository carritoRepository;
     private final ProductoService productoService;
+    private final InventarioService inventarioService;
+    private final EstadisticasPedidos estadisticasPedidos;
 
     /**
      * Crear un nuevo pedido desde el carrito del usuario
@@ -43,17 +53,25 @@ public class PedidoService {
         // Verificar stock y obtener productos
         List<DetallePedido> detalles = new ArrayList<>();
         double total = 0.0;
+        // Las unidades quedan apartadas hasta el commit; si el pedido falla se liberan solas
+        InventarioService.Reserva reserva = inventarioService.iniciarReserva();
+        // Todos los productos del carrito en un solo lote, de la misma generación del catálogo
+        Map<String, ProductoDTO> productos = productoService.getProductosByIds(itemsCarrito.stream()
+                .map(Carrito::getProductoId)
+                .collect(Collectors.toList()));
 
         for (Carrito item : itemsCarrito) {
-            ProductoDTO producto = productoService.getProductoById(item.getProductoId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado: " + item.getProductoId()));
+            ProductoDTO producto = productos.get(item.getProductoId());
+            if (producto == null) {
+                throw new RuntimeException("Producto no encontrado: " + item.getProductoId());
+            }
 
-            // Verificar stock
-            if (producto.getStock() == null || producto.getStock() < item.getCantidad()) {
+            // Reservar stock
+            if (!reserva.reservar(producto, item.getCantidad())) {
                 throw new RuntimeException(String.format(
                         "Stock insuficiente para %s. Disponible: %d, Solicitado: %d",
                         producto.getNombre(),
-                        producto.getStock() != null ? producto.getStock() : 0,
+                        inventarioService.disponible(producto),
                         item.getCantidad()));
             }
 
@@ -89,6 +107,7 @@ public class PedidoService {
 
         // Guardar pedido
         pedido = pedidoRepository.save(pedido);
+        estadisticasPedidos.registrarPedido(pedido.getEstado(), pedido.getTotal());
         
         // Limpiar el carrito
         carritoRepository.deleteByUsuario(usuario);
@@ -99,17 +118,25 @@ public class PedidoService {
     }
 
     /**
-     * Obtener todos los pedidos de un usuario
+     * Obtener los pedidos de un usuario, del más reciente al más antiguo, por páginas
+     *
+     * @param estadoStr estado por el que filtrar, o null para todos
+     * @param cursor siguienteCursor de la página anterior (con el mismo filtro), o null para la primera
      */
     @Transactional(readOnly = true)
-    public List<PedidoDTO> obtenerMisPedidos(Usuario usuario) {
-        log.info("📋 Obteniendo pedidos del usuario: {}", usuario.getUsername());
-
-        List<Pedido> pedidos = pedidoRepository.findByUsuarioOrderByFechaPedidoDesc(usuario);
-
-        return pedidos.stream()
-                .map(this::convertirAPedidoDTO)
-                .collect(Collectors.toList());
+    public PaginaPedidosDTO obtenerMisPedidos(Usuario usuario, String estadoStr, String cursor, int tamanio) {
+        log.info("📋 Obteniendo pedidos del usuario: {} (estado: {})", usuario.getUsername(),
+                estadoStr != null ? estadoStr : "todos");
+
+        EstadoPedido estado = estadoStr != null ? parsearEstado(estadoStr) : null;
+        Posicion desde = decodificarCursor(cursor);
+        int limite = limitarTamanio(tamanio);
+        PageRequest pagina = PageRequest.of(0, limite + 1);
+        List<Pedido> pedidos = estado == null
+                ? pedidoRepository.findPaginaPorUsuarioAnteriorA(usuario, desde.fecha(), desde.id(), pagina)
+                : pedidoRepository.findPaginaPorUsuarioYEstadoAnteriorA(usuario, estado, desde.fecha(), desde.id(), pagina);
+
+        return construirPagina(pedidos, limite);
     }
 
     /**
@@ -139,8 +166,7 @@ public class PedidoService {
             throw new RuntimeException("El pedido no puede ser cancelado en su estado actual: " + pedido.getEstado());
         }
 
-        pedido.setEstado(EstadoPedido.CANCELADO);
-        pedido = pedidoRepository.save(pedido);
+        pedido = cambiarEstado(pedido, EstadoPedido.CANCELADO);
 
         log.info("✅ Pedido #{} cancelado", pedidoId);
 
@@ -174,8 +200,7 @@ public class PedidoService {
             throw new RuntimeException("No se puede cambiar el estado de un pedido entregado");
         }
 
-        pedido.setEstado(estado);
-        pedido = pedidoRepository.save(pedido);
+        pedido = cambiarEstado(pedido, estado);
 
         log.info("✅ Estado actualizado a {}", estado);
 
@@ -183,39 +208,34 @@ public class PedidoService {
     }
 
     /**
-     * Obtener todos los pedidos (admin)
+     * Obtener todos los pedidos (admin), del más reciente al más antiguo, por páginas
      */
     @Transactional(readOnly = true)
-    public List<PedidoDTO> obtenerTodosPedidos() {
+    public PaginaPedidosDTO obtenerTodosPedidos(String cursor, int tamanio) {
         log.info("📋 Obteniendo todos los pedidos (admin)");
 
-        List<Pedido> pedidos = pedidoRepository.findAll();
+        Posicion desde = decodificarCursor(cursor);
+        int limite = limitarTamanio(tamanio);
+        List<Pedido> pedidos = pedidoRepository.findPaginaAnteriorA(
+                desde.fecha(), desde.id(), PageRequest.of(0, limite + 1));
 
-        return pedidos.stream()
-                .map(this::convertirAPedidoDTO)
-                .sorted(Comparator.comparing(PedidoDTO::getFechaPedido).reversed())
-                .collect(Collectors.toList());
+        return construirPagina(pedidos, limite);
     }
 
     /**
-     * Obtener pedidos por estado (admin)
+     * Obtener pedidos por estado (admin), del más reciente al más antiguo, por páginas
      */
     @Transactional(readOnly = true)
-    public List<PedidoDTO> obtenerPedidosPorEstado(String estadoStr) {
+    public PaginaPedidosDTO obtenerPedidosPorEstado(String estadoStr, String cursor, int tamanio) {
         log.info("📋 Obteniendo pedidos por estado: {}", estadoStr);
 
-        EstadoPedido estado;
-        try {
-            estado = EstadoPedido.valueOf(estadoStr.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("Estado inválido: " + estadoStr);
-        }
+        EstadoPedido estado = parsearEstado(estadoStr);
+        Posicion desde = decodificarCursor(cursor);
+        int limite = limitarTamanio(tamanio);
+        List<Pedido> pedidos = pedidoRepository.findPaginaPorEstadoAnteriorA(
+                estado, desde.fecha(), desde.id(), PageRequest.of(0, limite + 1));
 
-        List<Pedido> pedidos = pedidoRepository.findByEstadoOrderByFechaPedidoDesc(estado);
-
-        return pedidos.stream()
-                .map(this::convertirAPedidoDTO)
-                .collect(Collectors.toList());
+        return construirPagina(pedidos, limite);
     }
 
     /**
@@ -231,19 +251,19 @@ public class PedidoService {
         Map<String, Long> cantidadPorEstado = new HashMap<>();
         Map<String, Double> ventasPorEstado = new HashMap<>();
 
-        for (EstadoPedido estado : EstadoPedido.values()) {
-            long cantidad = pedidoRepository.countByEstado(estado);
-            Double ventas = pedidoRepository.sumTotalByEstado(estado);
+        // Agregado en memoria (o una sola consulta agrupada), no dos consultas por estado
+        EstadisticasPedidos.Resumen resumen = estadisticasPedidos.obtener();
 
-            cantidadPorEstado.put(estado.name(), cantidad);
-            ventasPorEstado.put(estado.name(), ventas != null ? ventas : 0.0);
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            cantidadPorEstado.put(estado.name(), resumen.getCantidad(estado));
+            ventasPorEstado.put(estado.name(), resumen.getVentas(estado));
         }
 
         estadisticas.put("cantidadPorEstado", cantidadPorEstado);
         estadisticas.put("ventasPorEstado", ventasPorEstado);
 
         // Totales generales
-        long totalPedidos = pedidoRepository.count();
+        long totalPedidos = resumen.getTotalPedidos();
         double totalVentas = ventasPorEstado.values().stream()
                 .mapToDouble(Double::doubleValue)
                 .sum();
@@ -272,14 +292,28 @@ public class PedidoService {
 
         Map<String, Object> estadisticas = new HashMap<>();
 
-        long totalPedidos = pedidoRepository.countByUsuario(usuario);
-        Double totalGastado = pedidoRepository.sumTotalByUsuario(usuario);
+        // Una consulta agrupada da los totales y la cantidad por estado que muestra el filtro
+        Map<String, Long> cantidadPorEstado = new HashMap<>();
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            cantidadPorEstado.put(estado.name(), 0L);
+        }
+        long totalPedidos = 0;
+        double totalGastado = 0.0;
+        for (PedidoRepository.ResumenEstado fila : pedidoRepository.resumirPorEstadoDeUsuario(usuario)) {
+            cantidadPorEstado.put(fila.getEstado().name(), fila.getCantidad());
+            totalPedidos += fila.getCantidad();
+            totalGastado += fila.getVentas() != null ? fila.getVentas() : 0.0;
+        }
 
         estadisticas.put("totalPedidos", totalPedidos);
-        estadisticas.put("totalGastado", totalGastado != null ? totalGastado : 0.0);
+        estadisticas.put("totalGastado", totalGastado);
+        estadisticas.put("cantidadPorEstado", cantidadPorEstado);
+        estadisticas.put("pedidosEntregados", cantidadPorEstado.get(EstadoPedido.ENTREGADO.name()));
+        estadisticas.put("pedidosEnviados", cantidadPorEstado.get(EstadoPedido.ENVIADO.name()));
 
-        // Último pedido
-        List<Pedido> pedidos = pedidoRepository.findByUsuarioOrderByFechaPedidoDesc(usuario);
+        // Último pedido: primera fila de la misma consulta paginada
+        List<Pedido> pedidos = pedidoRepository.findPaginaPorUsuarioAnteriorA(
+                usuario, FECHA_INICIO_PAGINACION, Long.MAX_VALUE, PageRequest.of(0, 1));
         if (!pedidos.isEmpty()) {
             Pedido ultimoPedido = pedidos.get(0);
             estadisticas.put("ultimoPedidoId", ultimoPedido.getId());
@@ -290,6 +324,103 @@ public class PedidoService {
         return estadisticas;
     }
 
+    /**
+     * Pasa el pedido al nuevo estado con un UPDATE condicional sobre el estado leído, sin versión
+     * ni lock de fila: si otra transacción lo cambió en el medio no se modifica nada y se informa.
+     * Solo la transacción que efectivamente cambió la fila repone stock y mueve las estadísticas,
+     * así dos cancelaciones simultáneas no devuelven las unidades dos veces
+     */
+    private Pedido cambiarEstado(Pedido pedido, EstadoPedido nuevo) {
+        EstadoPedido anterior = pedido.getEstado();
+        int modificados = pedidoRepository.actualizarEstadoSi(pedido.getId(), anterior, nuevo, LocalDateTime.now());
+        if (modificados == 0) {
+            throw new RuntimeException("El pedido cambió de estado mientras se procesaba, intente nuevamente");
+        }
+
+        Pedido actualizado = pedidoRepository.findById(pedido.getId())
+                .orElseThrow(() -> new RuntimeException("Pedido no encontrado"));
+        if (nuevo == EstadoPedido.CANCELADO && anterior != EstadoPedido.CANCELADO) {
+            reponerStock(actualizado);
+        }
+        estadisticasPedidos.registrarCambioEstado(anterior, nuevo, actualizado.getTotal());
+        return actualizado;
+    }
+
+    /**
+     * Devuelve al inventario las unidades de un pedido cancelado (después del commit)
+     */
+    private void reponerStock(Pedido pedido) {
+        for (DetallePedido detalle : pedido.getDetalles()) {
+            inventarioService.reponer(detalle.getProductoId(), detalle.getCantidad());
+        }
+    }
+
+    // ============================================
+    // PAGINACIÓN POR CURSOR
+    // ============================================
+
+    /**
+     * Último pedido entregado en una página; la siguiente empieza justo después
+     */
+    private record Posicion(LocalDateTime fecha, Long id) {
+    }
+
+    private static EstadoPedido parsearEstado(String estadoStr) {
+        try {
+            return EstadoPedido.valueOf(estadoStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Estado inválido: " + estadoStr);
+        }
+    }
+
+    private static int limitarTamanio(int tamanio) {
+        return Math.max(1, Math.min(tamanio, TAMANIO_PAGINA_MAXIMO));
+    }
+
+    /**
+     * Arma la página a partir de hasta limite + 1 pedidos: el sobrante solo indica que hay más
+     */
+    private PaginaPedidosDTO construirPagina(List<Pedido> pedidos, int limite) {
+        boolean hayMas = pedidos.size() > limite;
+        List<Pedido> pagina = hayMas ? pedidos.subList(0, limite) : pedidos;
+
+        List<PedidoDTO> pedidosDTO = pagina.stream()
+                .map(this::convertirAPedidoDTO)
+                .collect(Collectors.toList());
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Pedido ultimo = pagina.get(pagina.size() - 1);
+            siguienteCursor = codificarCursor(new Posicion(ultimo.getFechaPedido(), ultimo.getId()));
+        }
+
+        return PaginaPedidosDTO.builder()
+                .pedidos(pedidosDTO)
+                .tamanioPagina(limite)
+                .hayMas(hayMas)
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    private static String codificarCursor(Posicion posicion) {
+        String valor = posicion.fecha() + "|" + posicion.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Posicion decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Posicion(FECHA_INICIO_PAGINACION, Long.MAX_VALUE);
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            return new Posicion(LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor de paginación inválido");
+        }
+    }
+
     // ============================================
     // MÉTODOS PRIVADOS DE CONVERSIÓN
     // ============================================
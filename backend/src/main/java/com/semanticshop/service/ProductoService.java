@@ -7,6 +7,8 @@ import org.semanticweb.owlapi.model.*;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
@@ -19,83 +21,127 @@ public class ProductoService {
 
     private final OntologyService ontologyService;
 
+    // Snapshot del catálogo vigente; se reemplaza completo cuando cambia la generación
+    private final AtomicReference<CatalogoSnapshot> catalogo = new AtomicReference<>();
+    private final ReentrantLock reconstruccionLock = new ReentrantLock();
+
     /**
      * Obtiene todos los productos del catálogo
      */
     public List<ProductoDTO> getAllProductos() {
-        Set<OWLNamedIndividual> productos = ontologyService.getIndividualsOfClass("Producto");
-        
-        return productos.stream()
-                .map(this::convertToDTO)
-                .sorted(Comparator.comparing(ProductoDTO::getNombre))
-                .collect(Collectors.toList());
+        return getCatalogo().getProductos();
     }
 
     /**
      * Obtiene un producto por su ID
      */
     public Optional<ProductoDTO> getProductoById(String id) {
-        try {
-            OWLNamedIndividual individual = ontologyService.getDataFactory()
-                    .getOWLNamedIndividual(IRI.create(ontologyService.getNamespace() + id));
-            
-            // Verificar si existe en la ontología
-            if (!ontologyService.getOntology().containsIndividualInSignature(individual.getIRI())) {
-                return Optional.empty();
-            }
-            
-            return Optional.of(convertToDTO(individual));
-        } catch (Exception e) {
-            log.error("Error al obtener producto {}: {}", id, e.getMessage());
-            return Optional.empty();
-        }
+        return getCatalogo().getProducto(id);
+    }
+
+    /**
+     * Obtiene varios productos por ID en una sola pasada sobre el mismo snapshot del catálogo,
+     * así todos corresponden a la misma generación; los IDs inexistentes no aparecen en el mapa
+     */
+    public Map<String, ProductoDTO> getProductosByIds(Collection<String> ids) {
+        return getCatalogo().resolverPorId(ids);
     }
 
     /**
      * Obtiene productos por categoría
      */
     public List<ProductoDTO> getProductosByCategoria(String categoria) {
-        Set<OWLNamedIndividual> productos = ontologyService.getIndividualsOfClass(categoria);
-        
-        return productos.stream()
-                .map(this::convertToDTO)
-                .sorted(Comparator.comparing(ProductoDTO::getPrecio))
-                .collect(Collectors.toList());
+        return getCatalogo().getProductosDeClase(categoria);
     }
 
     /**
      * Obtiene productos compatibles con un producto dado
      */
     public List<ProductoDTO> getProductosCompatibles(String productoId) {
-        Set<OWLNamedIndividual> compatibles = ontologyService
-                .getObjectPropertyValues(productoId, "esCompatibleCon");
-        
-        return compatibles.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        CatalogoSnapshot snapshot = getCatalogo();
+        return snapshot.getProducto(productoId)
+                .map(p -> snapshot.resolver(p.getProductosCompatibles()))
+                .orElse(List.of());
     }
 
     /**
      * Obtiene productos incompatibles con un producto dado
      */
     public List<ProductoDTO> getProductosIncompatibles(String productoId) {
-        Set<OWLNamedIndividual> incompatibles = ontologyService
-                .getObjectPropertyValues(productoId, "esIncompatibleCon");
-        
-        return incompatibles.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        CatalogoSnapshot snapshot = getCatalogo();
+        return snapshot.getProducto(productoId)
+                .map(p -> snapshot.resolver(p.getProductosIncompatibles()))
+                .orElse(List.of());
     }
 
     /**
      * Verifica si dos productos son compatibles
      */
     public boolean sonCompatibles(String producto1Id, String producto2Id) {
-        Set<OWLNamedIndividual> compatibles = ontologyService
-                .getObjectPropertyValues(producto1Id, "esCompatibleCon");
-        
-        return compatibles.stream()
-                .anyMatch(ind -> getShortName(ind).equals(producto2Id));
+        return getCatalogo().getCompatibilidad().sonCompatibles(producto1Id, producto2Id);
+    }
+
+    /**
+     * Devuelve el snapshot del catálogo para la generación actual del catálogo,
+     * reconstruyéndolo si desde la última vez cambió algo visible en los productos.
+     * Mientras otro hilo reconstruye o el escritor está razonando, se sigue sirviendo
+     * el snapshot anterior sin bloquear; solo la primera construcción espera.
+     */
+    public CatalogoSnapshot getCatalogo() {
+        CatalogoSnapshot actual = catalogo.get();
+        if (actual != null && actual.getGeneracion() == ontologyService.getGeneracionCatalogo()) {
+            return actual;
+        }
+
+        if (actual == null) {
+            // La primera construcción necesita la ontología cargada
+            ontologyService.verificarDisponible();
+            reconstruccionLock.lock();
+        } else if (!reconstruccionLock.tryLock()) {
+            return actual;
+        }
+
+        try {
+            CatalogoSnapshot vigente = catalogo.get();
+            if (vigente != null && vigente.getGeneracion() == ontologyService.getGeneracionCatalogo()) {
+                return vigente;
+            }
+
+            Optional<CatalogoSnapshot> nuevo = vigente == null
+                    ? Optional.of(ontologyService.consultar(this::construirCatalogo))
+                    : ontologyService.intentarConsultar(this::construirCatalogo);
+            nuevo.ifPresent(catalogo::set);
+            return nuevo.orElse(vigente);
+        } finally {
+            reconstruccionLock.unlock();
+        }
+    }
+
+    /**
+     * Recorre la ontología una sola vez y materializa todos los productos.
+     * Se invoca con el lock del razonador tomado, así la generación leída corresponde a las inferencias
+     */
+    private CatalogoSnapshot construirCatalogo() {
+        long generacion = ontologyService.getGeneracionCatalogo();
+        long inicio = System.currentTimeMillis();
+        CacheRealizacion realizacion = ontologyService.getRealizacion();
+        AlmacenPropiedades propiedades = ontologyService.getPropiedades();
+        Set<OWLNamedIndividual> individuos = realizacion.getInstancias("Producto");
+
+        List<ProductoDTO> productos = new ArrayList<>(individuos.size());
+        Map<String, Set<String>> clasesPorProducto = new HashMap<>();
+
+        for (OWLNamedIndividual individual : individuos) {
+            String id = getShortName(individual);
+            Set<String> clases = realizacion.getNombresTipos(id);
+            clasesPorProducto.put(id, clases);
+            productos.add(convertToDTO(individual, clases, propiedades));
+        }
+
+        CatalogoSnapshot snapshot = CatalogoSnapshot.construir(generacion, productos, clasesPorProducto);
+        log.info("📦 Catálogo construido (generación {}): {} productos en {} ms",
+                generacion, snapshot.size(), System.currentTimeMillis() - inicio);
+        return snapshot;
     }
 
     /**
@@ -115,43 +161,40 @@ public class ProductoService {
     /**
      * Convierte un OWLNamedIndividual a ProductoDTO
      */
-    private ProductoDTO convertToDTO(OWLNamedIndividual individual) {
+    private ProductoDTO convertToDTO(OWLNamedIndividual individual, Set<String> clases,
+                                     AlmacenPropiedades propiedades) {
         String id = getShortName(individual);
         
         ProductoDTO dto = ProductoDTO.builder()
                 .id(id)
-                .nombre(getStringProperty(individual, "nombre").orElse(id))
-                .precio(getDoubleProperty(individual, "precio").orElse(0.0))
-                .stock(getIntProperty(individual, "stock").orElse(0))
+                .nombre(propiedades.getValorDato(id, "nombre").orElse(id))
+                .precio(propiedades.getPrecio(id).orElse(0.0))
+                .stock(propiedades.getStock(id).orElse(0))
                 .build();
 
             // Obtener descripción
-    dto.setDescripcion(getStringProperty(individual, "descripcion")
+    dto.setDescripcion(propiedades.getValorDato(id, "descripcion")
             .orElse("Producto de calidad"));
     
     // 🆕 AGREGAR ESTAS LÍNEAS
-    dto.setImagenUrl(getStringProperty(individual, "imagenUrl")
+    dto.setImagenUrl(propiedades.getValorDato(id, "imagenUrl")
             .orElse("/images/productos/placeholder.jpg"));
             
         
         // Obtener tipo del producto (clase más específica)
-        Set<OWLClass> tipos = ontologyService.getInferredClassesOfIndividual(id);
-        dto.setTipo(tipos.stream()
-                .map(this::getShortName)
+        dto.setTipo(clases.stream()
                 .filter(name -> !name.equals("Producto") && !name.equals("Thing"))
                 .findFirst()
                 .orElse("Producto"));
         
         // Obtener marca
-        Set<OWLNamedIndividual> marcas = ontologyService
-                .getObjectPropertyValues(id, "tieneMarca");
+        Set<OWLNamedIndividual> marcas = propiedades.getValoresObjeto(id, "tieneMarca");
         if (!marcas.isEmpty()) {
             dto.setMarca(getShortName(marcas.iterator().next()));
         }
         
 // Obtener categoría
-Set<OWLNamedIndividual> categorias = ontologyService
-        .getObjectPropertyValues(id, "perteneceACategoria");
+Set<OWLNamedIndividual> categorias = propiedades.getValoresObjeto(id, "perteneceACategoria");
 if (!categorias.isEmpty()) {
     dto.setCategoria(getShortName(categorias.iterator().next()));
 } else {
@@ -160,22 +203,19 @@ if (!categorias.isEmpty()) {
 }
         
         // Obtener características
-        Set<OWLNamedIndividual> caracteristicas = ontologyService
-                .getObjectPropertyValues(id, "tieneCaracteristica");
+        Set<OWLNamedIndividual> caracteristicas = propiedades.getValoresObjeto(id, "tieneCaracteristica");
         dto.setCaracteristicas(caracteristicas.stream()
                 .map(this::getShortName)
                 .collect(Collectors.toList()));
         
         // Obtener compatibilidades (inferidas por HermiT)
-        Set<OWLNamedIndividual> compatibles = ontologyService
-                .getObjectPropertyValues(id, "esCompatibleCon");
+        Set<OWLNamedIndividual> compatibles = propiedades.getValoresObjeto(id, "esCompatibleCon");
         dto.setProductosCompatibles(compatibles.stream()
                 .map(this::getShortName)
                 .collect(Collectors.toSet()));
         
         // Obtener incompatibilidades (inferidas por HermiT)
-        Set<OWLNamedIndividual> incompatibles = ontologyService
-                .getObjectPropertyValues(id, "esIncompatibleCon");
+        Set<OWLNamedIndividual> incompatibles = propiedades.getValoresObjeto(id, "esIncompatibleCon");
         dto.setProductosIncompatibles(incompatibles.stream()
                 .map(this::getShortName)
                 .collect(Collectors.toSet()));
@@ -189,25 +229,4 @@ if (!categorias.isEmpty()) {
     private String getShortName(OWLNamedIndividual individual) {
         return individual.getIRI().getShortForm();
     }
-
-    private String getShortName(OWLClass owlClass) {
-        return owlClass.getIRI().getShortForm();
-    }
-
-    /**
-     * Helper methods para obtener propiedades
-     */
-    private Optional<String> getStringProperty(OWLNamedIndividual individual, String propertyName) {
-        return ontologyService.getDataPropertyValue(getShortName(individual), propertyName);
-    }
-
-    private Optional<Double> getDoubleProperty(OWLNamedIndividual individual, String propertyName) {
-        return getStringProperty(individual, propertyName)
-                .map(Double::parseDouble);
-    }
-
-    private Optional<Integer> getIntProperty(OWLNamedIndividual individual, String propertyName) {
-        return getStringProperty(individual, propertyName)
-                .map(Integer::parseInt);
-    }
 }
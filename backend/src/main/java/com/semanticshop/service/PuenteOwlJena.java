@@ -0,0 +1,180 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.system.Txn;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listener de cambios de la OWL API que mantiene el modelo Jena sincronizado por deltas.
+ * Cada AddAxiom/RemoveAxiom de la ontología principal se renderiza a triples (en Binary RDF,
+ * ver FormatoRdfBinario) y se agrega o elimina del grafo por defecto del dataset Jena en una
+ * transacción de escritura, sin volver a serializar la ontología completa.
+ *
+ * Los axiomas con nodos anónimos (restricciones, listas, anotaciones de axiomas) no se pueden
+ * eliminar triple a triple porque los blank nodes no coinciden entre serializaciones; en ese
+ * caso, o después de {@code cambiosEntreReconstrucciones} cambios, el puente pide una
+ * reconstrucción completa que además sirve para verificar que el delta no divergió.
+ */
+@Slf4j
+public class PuenteOwlJena implements OWLOntologyChangeListener {
+
+    private final OWLOntology ontologia;
+    private final Dataset destino;
+    private final long cambiosEntreReconstrucciones;
+    private final Runnable alModificar;
+
+    // Manager propio para renderizar los deltas sin disparar eventos sobre la ontología principal
+    private final OWLOntologyManager managerDeltas = OWLManager.createOWLOntologyManager();
+
+    private final AtomicLong triplesAgregados = new AtomicLong();
+    private final AtomicLong triplesEliminados = new AtomicLong();
+    private final AtomicLong cambiosDesdeReconstruccion = new AtomicLong();
+    private volatile boolean requiereReconstruccion;
+
+    /**
+     * @param alModificar se invoca al terminar la transacción de escritura de cada delta, para que
+     *                    los lectores versionen lo que ven (caché de resultados SPARQL)
+     */
+    public PuenteOwlJena(OWLOntology ontologia, Dataset destino, long cambiosEntreReconstrucciones,
+                         Runnable alModificar) {
+        this.ontologia = ontologia;
+        this.destino = destino;
+        this.cambiosEntreReconstrucciones = cambiosEntreReconstrucciones;
+        this.alModificar = alModificar;
+    }
+
+    @Override
+    public void ontologiesChanged(List<? extends OWLOntologyChange> cambios) {
+        Set<OWLAxiom> agregados = new HashSet<>();
+        Set<OWLAxiom> eliminados = new HashSet<>();
+
+        for (OWLOntologyChange cambio : cambios) {
+            if (!cambio.getOntology().equals(ontologia) || !cambio.isAxiomChange()) {
+                continue;
+            }
+            if (cambio.isAddAxiom()) {
+                agregados.add(cambio.getAxiom());
+                eliminados.remove(cambio.getAxiom());
+            } else if (cambio.isRemoveAxiom()) {
+                eliminados.add(cambio.getAxiom());
+                agregados.remove(cambio.getAxiom());
+            }
+        }
+
+        if (agregados.isEmpty() && eliminados.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Los triples se calculan fuera de la transacción; los lectores nunca esperan al delta
+            Model triplesNuevos = agregados.isEmpty() ? null : renderizar(agregados);
+            List<Statement> triplesViejos = eliminados.isEmpty() ? List.of() : triplesAEliminar(eliminados);
+
+            try {
+                Txn.executeWrite(destino, () -> {
+                    Model modelo = destino.getDefaultModel();
+                    modelo.remove(triplesViejos);
+                    if (triplesNuevos != null) {
+                        modelo.add(triplesNuevos);
+                    }
+                });
+            } finally {
+                // Después de confirmar: una lectura que vio la versión nueva ya ve los triples nuevos
+                alModificar.run();
+            }
+
+            triplesEliminados.addAndGet(triplesViejos.size());
+            if (triplesNuevos != null) {
+                triplesAgregados.addAndGet(triplesNuevos.size());
+            }
+        } catch (Exception e) {
+            log.error("❌ Error aplicando delta OWL → Jena, se requiere reconstrucción: {}", e.getMessage());
+            requiereReconstruccion = true;
+        }
+
+        if (cambiosDesdeReconstruccion.addAndGet(agregados.size() + eliminados.size()) >= cambiosEntreReconstrucciones) {
+            requiereReconstruccion = true;
+        }
+    }
+
+    /**
+     * Triples de los axiomas quitados, sin las declaraciones de entidades
+     * que siguen presentes en la ontología
+     */
+    private List<Statement> triplesAEliminar(Set<OWLAxiom> axiomas) throws OWLException, IOException {
+        Model triples = renderizar(axiomas);
+        List<Statement> aEliminar = new ArrayList<>();
+
+        for (Statement st : triples.listStatements().toList()) {
+            if (st.getSubject().isAnon() || st.getObject().isAnon()) {
+                requiereReconstruccion = true;
+                continue;
+            }
+            if (esDeclaracion(st) && ontologia.containsEntityInSignature(IRI.create(st.getSubject().getURI()))) {
+                continue;
+            }
+            aEliminar.add(st);
+        }
+
+        return aEliminar;
+    }
+
+    /**
+     * Renderiza un conjunto de axiomas a un modelo Jena temporal
+     */
+    private Model renderizar(Set<OWLAxiom> axiomas) throws OWLException, IOException {
+        OWLOntology delta = managerDeltas.createOntology(axiomas);
+        try {
+            Model triples = FormatoRdfBinario.aModeloJena(FormatoRdfBinario.desdeOntologia(managerDeltas, delta));
+            // La ontología temporal es anónima: su cabecera no debe llegar al modelo
+            triples.removeAll(null, RDF.type, OWL.Ontology);
+
+            if (!triples.listSubjects().filterKeep(RDFNode::isAnon).toList().isEmpty()) {
+                // Los blank nodes agregados no se podrán quitar luego por delta
+                requiereReconstruccion = true;
+            }
+            return triples;
+        } finally {
+            managerDeltas.removeOntology(delta);
+        }
+    }
+
+    private static boolean esDeclaracion(Statement st) {
+        return st.getPredicate().equals(RDF.type)
+                && st.getObject().isURIResource()
+                && st.getObject().asResource().getURI().startsWith(OWL.NS);
+    }
+
+    /**
+     * Indica si el modelo debe reconstruirse completo (por blank nodes, errores o cantidad de cambios)
+     */
+    public boolean requiereReconstruccion() {
+        return requiereReconstruccion;
+    }
+
+    /**
+     * Se invoca después de una reconstrucción completa del modelo
+     */
+    public void reconstruccionRealizada() {
+        requiereReconstruccion = false;
+        cambiosDesdeReconstruccion.set(0);
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("triplesAgregados", triplesAgregados.get());
+        stats.put("triplesEliminados", triplesEliminados.get());
+        stats.put("cambiosDesdeReconstruccion", cambiosDesdeReconstruccion.get());
+        stats.put("requiereReconstruccion", requiereReconstruccion);
+        return stats;
+    }
+}
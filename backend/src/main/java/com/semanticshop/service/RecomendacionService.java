@@ -25,6 +25,7 @@ public class RecomendacionService {
     private final OntologyService ontologyService;
     private final ProductoService productoService;
     private final UsuarioRepository usuarioRepository;
+    private final InventarioService inventarioService;
 
     // ============================================
     // MÉTODOS EXISTENTES (mantener compatibilidad)
@@ -48,7 +49,7 @@ public class RecomendacionService {
                 .map(ind -> productoService.getProductoById(getShortName(ind)))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
-                .filter(p -> p.getStock() != null && p.getStock() > 0)
+                .filter(this::enExistencia)
                 .collect(Collectors.toList());
         
         String razon = construirRazonRecomendacion(cliente);
@@ -96,7 +97,7 @@ public class RecomendacionService {
         // Filtrar solo los compatibles con el producto
         return accesorios.stream()
                 .filter(accesorio -> productoService.sonCompatibles(productoId, accesorio.getId()))
-                .filter(p -> p.getStock() != null && p.getStock() > 0)
+                .filter(this::enExistencia)
                 .collect(Collectors.toList());
     }
 
@@ -215,7 +216,7 @@ public class RecomendacionService {
             if (recomendaciones.isEmpty()) {
                 log.info("📊 Sin recomendaciones personalizadas, agregando productos destacados");
                 recomendaciones.addAll(todosProductos.stream()
-                    .filter(p -> p.getStock() != null && p.getStock() > 0)
+                    .filter(this::enExistencia)
                     .sorted((p1, p2) -> Double.compare(p2.getPrecio(), p1.getPrecio())) // Más caros primero
                     .limit(10)
                     .collect(Collectors.toList()));
@@ -223,7 +224,7 @@ public class RecomendacionService {
             
             // Eliminar duplicados, filtrar por stock y ordenar
             List<ProductoDTO> resultado = recomendaciones.stream()
-                .filter(p -> p.getStock() != null && p.getStock() > 0)
+                .filter(this::enExistencia)
                 .collect(Collectors.toMap(
                     ProductoDTO::getId,  // Key: ID del producto
                     p -> p,              // Value: El producto mismo
@@ -243,7 +244,7 @@ public class RecomendacionService {
             // En caso de error, devolver algunos productos por defecto
             try {
                 return productoService.getAllProductos().stream()
-                    .filter(p -> p.getStock() != null && p.getStock() > 0)
+                    .filter(this::enExistencia)
                     .limit(10)
                     .collect(Collectors.toList());
             } catch (Exception ex) {
@@ -263,10 +264,10 @@ public class RecomendacionService {
             
             // Ordenar por stock y precio para mostrar los más relevantes
             return productos.stream()
-                .filter(p -> p.getStock() != null && p.getStock() > 0)
+                .filter(this::enExistencia)
                 .sorted((p1, p2) -> {
                     // Primero por stock descendente, luego por precio descendente
-                    int stockCompare = Integer.compare(p2.getStock(), p1.getStock());
+                    int stockCompare = Integer.compare(inventarioService.disponible(p2), inventarioService.disponible(p1));
                     if (stockCompare != 0) return stockCompare;
                     return Double.compare(p2.getPrecio(), p1.getPrecio());
                 })
@@ -279,6 +280,13 @@ public class RecomendacionService {
         }
     }
 
+    /**
+     * Disponibilidad según el libro de inventario, no según el stock de la ontología
+     */
+    private boolean enExistencia(ProductoDTO producto) {
+        return inventarioService.disponible(producto) > 0;
+    }
+
     /**
      * ✅ NUEVO: Ejecutar el razonador para actualizar las inferencias
      */
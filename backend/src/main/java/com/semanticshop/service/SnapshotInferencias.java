@@ -0,0 +1,265 @@
+package com.semanticshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot binario de los resultados de HermiT para una ontología concreta: la realización
+ * (individuo → todas sus clases, que incluye la taxonomía que le aplica) y las object
+ * properties inferidas, junto con la consistencia. Se identifica por un hash del contenido
+ * de la ontología (sus axiomas ordenados), así que solo se aplica si la ontología cargada
+ * es exactamente la que se razonó.
+ * <p>
+ * Formato (GZIP): cabecera, hash, namespace y consistencia; una tabla de cadenas sin
+ * repeticiones; y la realización y las propiedades como índices enteros en esa tabla. Los
+ * conjuntos conservan el orden en que los devolvió el razonador, así las respuestas
+ * construidas desde el snapshot son idénticas a las construidas desde HermiT.
+ */
+@Slf4j
+public final class SnapshotInferencias {
+
+    private static final int MAGICO = 0x53534946;
+    private static final int VERSION_FORMATO = 1;
+
+    private final String hashOntologia;
+    private final String namespace;
+    private final boolean consistente;
+    // Individuo (nombre corto) → IRIs de sus clases
+    private final Map<String, Set<String>> tipos;
+    // Individuo → propiedad (nombres cortos) → IRIs de los valores
+    private final Map<String, Map<String, Set<String>>> objetos;
+
+    private SnapshotInferencias(String hashOntologia, String namespace, boolean consistente,
+                                Map<String, Set<String>> tipos, Map<String, Map<String, Set<String>>> objetos) {
+        this.hashOntologia = hashOntologia;
+        this.namespace = namespace;
+        this.consistente = consistente;
+        this.tipos = tipos;
+        this.objetos = objetos;
+    }
+
+    /**
+     * Hash SHA-256 de los axiomas de la ontología, independiente del orden y del formato de origen
+     */
+    public static String hashContenido(OWLOntology ontologia) throws Exception {
+        List<String> axiomas = new ArrayList<>(ontologia.getAxiomCount(Imports.INCLUDED));
+        ontologia.axioms(Imports.INCLUDED).forEach(ax -> axiomas.add(ax.toString()));
+        Collections.sort(axiomas);
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String axioma : axiomas) {
+            digest.update(axioma.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Captura la realización y las propiedades de una misma generación
+     */
+    public static SnapshotInferencias capturar(String hashOntologia, String namespace, boolean consistente,
+                                               CacheRealizacion realizacion, AlmacenPropiedades propiedades) {
+        Map<String, Set<String>> tipos = new HashMap<>();
+        realizacion.getTiposPorIndividuo().forEach((individuo, clases) -> {
+            Set<String> iris = new LinkedHashSet<>();
+            clases.forEach(clase -> iris.add(clase.getIRI().toString()));
+            tipos.put(individuo, iris);
+        });
+
+        Map<String, Map<String, Set<String>>> objetos = new HashMap<>();
+        propiedades.getValoresObjeto().forEach((individuo, porPropiedad) -> {
+            Map<String, Set<String>> valores = new HashMap<>();
+            porPropiedad.forEach((propiedad, individuos) -> {
+                Set<String> iris = new LinkedHashSet<>();
+                individuos.forEach(ind -> iris.add(ind.getIRI().toString()));
+                valores.put(propiedad, iris);
+            });
+            objetos.put(individuo, valores);
+        });
+
+        return new SnapshotInferencias(hashOntologia, namespace, consistente, tipos, objetos);
+    }
+
+    // ========== ESCRITURA / LECTURA ==========
+
+    /**
+     * Escribe el snapshot en un archivo temporal y lo mueve sobre el destino
+     */
+    public void escribir(Path archivo) throws IOException {
+        List<String> tabla = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+
+        ByteArrayOutputStream cuerpoBytes = new ByteArrayOutputStream();
+        try (DataOutputStream cuerpo = new DataOutputStream(cuerpoBytes)) {
+            cuerpo.writeInt(tipos.size());
+            for (Map.Entry<String, Set<String>> e : tipos.entrySet()) {
+                cuerpo.writeInt(indice(e.getKey(), tabla, indices));
+                escribirIndices(cuerpo, e.getValue(), tabla, indices);
+            }
+
+            cuerpo.writeInt(objetos.size());
+            for (Map.Entry<String, Map<String, Set<String>>> e : objetos.entrySet()) {
+                cuerpo.writeInt(indice(e.getKey(), tabla, indices));
+                cuerpo.writeInt(e.getValue().size());
+                for (Map.Entry<String, Set<String>> propiedad : e.getValue().entrySet()) {
+                    cuerpo.writeInt(indice(propiedad.getKey(), tabla, indices));
+                    escribirIndices(cuerpo, propiedad.getValue(), tabla, indices);
+                }
+            }
+        }
+
+        if (archivo.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(archivo.toAbsolutePath().getParent());
+        }
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temporal))))) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION_FORMATO);
+            salida.writeUTF(hashOntologia);
+            salida.writeUTF(namespace);
+            salida.writeBoolean(consistente);
+            salida.writeInt(tabla.size());
+            for (String cadena : tabla) {
+                salida.writeUTF(cadena);
+            }
+            cuerpoBytes.writeTo(salida);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee el snapshot si existe y corresponde a la ontología indicada; cualquier otro caso
+     * (archivo ausente, formato viejo, hash distinto, archivo dañado) devuelve vacío
+     */
+    public static Optional<SnapshotInferencias> leer(Path archivo, String hashEsperado) {
+        if (!Files.isRegularFile(archivo)) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(archivo))))) {
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION_FORMATO) {
+                log.warn("⚠️ Snapshot de inferencias {} con formato desconocido, se ignora", archivo);
+                return Optional.empty();
+            }
+            String hash = entrada.readUTF();
+            if (!hash.equals(hashEsperado)) {
+                log.info("🧊 Snapshot de inferencias de otra versión de la ontología, se ignora");
+                return Optional.empty();
+            }
+            String namespace = entrada.readUTF();
+            boolean consistente = entrada.readBoolean();
+
+            String[] tabla = new String[entrada.readInt()];
+            for (int i = 0; i < tabla.length; i++) {
+                tabla[i] = entrada.readUTF();
+            }
+
+            int totalTipos = entrada.readInt();
+            Map<String, Set<String>> tipos = new HashMap<>(totalTipos * 2);
+            for (int i = 0; i < totalTipos; i++) {
+                String individuo = tabla[entrada.readInt()];
+                tipos.put(individuo, leerIndices(entrada, tabla));
+            }
+
+            int totalObjetos = entrada.readInt();
+            Map<String, Map<String, Set<String>>> objetos = new HashMap<>(totalObjetos * 2);
+            for (int i = 0; i < totalObjetos; i++) {
+                String individuo = tabla[entrada.readInt()];
+                int totalPropiedades = entrada.readInt();
+                Map<String, Set<String>> valores = new HashMap<>(totalPropiedades * 2);
+                for (int j = 0; j < totalPropiedades; j++) {
+                    String propiedad = tabla[entrada.readInt()];
+                    valores.put(propiedad, leerIndices(entrada, tabla));
+                }
+                objetos.put(individuo, valores);
+            }
+
+            return Optional.of(new SnapshotInferencias(hash, namespace, consistente, tipos, objetos));
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo leer el snapshot de inferencias {}: {}", archivo, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static int indice(String cadena, List<String> tabla, Map<String, Integer> indices) {
+        return indices.computeIfAbsent(cadena, c -> {
+            tabla.add(c);
+            return tabla.size() - 1;
+        });
+    }
+
+    private static void escribirIndices(DataOutputStream salida, Set<String> cadenas,
+                                        List<String> tabla, Map<String, Integer> indices) throws IOException {
+        salida.writeInt(cadenas.size());
+        for (String cadena : cadenas) {
+            salida.writeInt(indice(cadena, tabla, indices));
+        }
+    }
+
+    private static Set<String> leerIndices(DataInputStream entrada, String[] tabla) throws IOException {
+        int total = entrada.readInt();
+        Set<String> cadenas = new LinkedHashSet<>(total * 2);
+        for (int i = 0; i < total; i++) {
+            cadenas.add(tabla[entrada.readInt()]);
+        }
+        return cadenas;
+    }
+
+    // ========== RECONSTRUCCIÓN ==========
+
+    /**
+     * Realización equivalente a la que produciría el razonador para esta ontología
+     */
+    public CacheRealizacion realizacion(long generacion, OWLDataFactory df) {
+        Map<OWLNamedIndividual, Set<OWLClass>> tiposInferidos = new LinkedHashMap<>(tipos.size() * 2);
+        tipos.forEach((individuo, clases) -> {
+            Set<OWLClass> owl = new LinkedHashSet<>(clases.size() * 2);
+            clases.forEach(iri -> owl.add(df.getOWLClass(IRI.create(iri))));
+            tiposInferidos.put(df.getOWLNamedIndividual(IRI.create(namespace + individuo)), owl);
+        });
+        return CacheRealizacion.indexar(generacion, tiposInferidos, namespace);
+    }
+
+    /**
+     * Propiedades equivalentes a las que produciría el razonador para esta ontología
+     */
+    public AlmacenPropiedades propiedades(long generacion, OWLOntology ontologia, OWLDataFactory df,
+                                          Collection<String> productos) {
+        Map<String, Map<String, Set<OWLNamedIndividual>>> valoresObjeto = new HashMap<>(objetos.size() * 2);
+        objetos.forEach((individuo, porPropiedad) -> {
+            Map<String, Set<OWLNamedIndividual>> valores = new HashMap<>(porPropiedad.size() * 2);
+            porPropiedad.forEach((propiedad, iris) -> {
+                Set<OWLNamedIndividual> owl = new LinkedHashSet<>(iris.size() * 2);
+                iris.forEach(iri -> owl.add(df.getOWLNamedIndividual(IRI.create(iri))));
+                valores.put(propiedad.intern(), Collections.unmodifiableSet(owl));
+            });
+            valoresObjeto.put(individuo.intern(), valores);
+        });
+        return AlmacenPropiedades.construir(generacion, ontologia, valoresObjeto, namespace, productos);
+    }
+
+    public String getHashOntologia() {
+        return hashOntologia;
+    }
+
+    public boolean isConsistente() {
+        return consistente;
+    }
+
+    public int getTotalIndividuos() {
+        return tipos.size();
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import { Link } from 'react-router-dom';
 import Layout from '../components/Layout/Layout';
 import OrderCard from '../components/orders/OrderCard';
@@ -10,36 +10,86 @@ const OrdersPage = () => {
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
   const [filtroEstado, setFiltroEstado] = useState('TODOS');
+  const [siguienteCursor, setSiguienteCursor] = useState(null);
+  const [cargandoMas, setCargandoMas] = useState(false);
 
+  // Filtro vigente: las respuestas pedidas con otro filtro llegan tarde y se descartan
+  const filtroVigente = useRef(filtroEstado);
+  filtroVigente.current = filtroEstado;
+
+  // El filtro se aplica en el servidor: cambiarlo vuelve a pedir la primera página de ese estado
   useEffect(() => {
     cargarDatos();
-  }, []);
+  }, [filtroEstado]);
+
+  const estadoSeleccionado = () => (filtroEstado === 'TODOS' ? null : filtroEstado);
 
   const cargarDatos = async () => {
+    const filtro = filtroEstado;
     setLoading(true);
     setError('');
+    setSiguienteCursor(null);
 
     try {
       const [pedidosData, statsData] = await Promise.all([
-        orderService.obtenerMisPedidos(),
+        orderService.obtenerMisPedidos(null, estadoSeleccionado()),
         orderService.obtenerMisEstadisticas(),
       ]);
 
+      if (filtroVigente.current !== filtro) {
+        return;
+      }
+
       if (pedidosData.success) {
         setPedidos(pedidosData.pedidos || []);
+        setSiguienteCursor(pedidosData.siguienteCursor || null);
       }
 
       if (statsData.success) {
         setEstadisticas(statsData.estadisticas);
       }
     } catch (err) {
+      if (filtroVigente.current !== filtro) {
+        return;
+      }
       console.error('Error cargando datos:', err);
       setError('Error al cargar tus pedidos');
     } finally {
-      setLoading(false);
+      if (filtroVigente.current === filtro) {
+        setLoading(false);
+      }
     }
   };
 
+  const cargarMas = async () => {
+    const filtro = filtroEstado;
+    setCargandoMas(true);
+
+    try {
+      const pedidosData = await orderService.obtenerMisPedidos(siguienteCursor, estadoSeleccionado());
+      if (filtroVigente.current !== filtro) {
+        return;
+      }
+      if (pedidosData.success) {
+        setPedidos(anteriores => [...anteriores, ...(pedidosData.pedidos || [])]);
+        setSiguienteCursor(pedidosData.siguienteCursor || null);
+      }
+    } catch (err) {
+      if (filtroVigente.current !== filtro) {
+        return;
+      }
+      console.error('Error cargando más pedidos:', err);
+      alert('❌ Error al cargar más pedidos');
+    } finally {
+      setCargandoMas(false);
+    }
+  };
+
+  // Cantidades por estado de todas las páginas, desde las estadísticas del servidor
+  const cantidadEstado = (estado) => (
+    estadisticas?.cantidadPorEstado ? ` (${estadisticas.cantidadPorEstado[estado] || 0})` : ''
+  );
+
   const handleCancelarPedido = async (pedidoId) => {
     if (!window.confirm('¿Estás seguro de cancelar este pedido?')) {
       return;
@@ -58,10 +108,6 @@ const OrdersPage = () => {
     }
   };
 
-  const pedidosFiltrados = filtroEstado === 'TODOS'
-    ? pedidos
-    : pedidos.filter(p => p.estado === filtroEstado);
-
   return (
     <Layout>
       <div className="max-w-7xl mx-auto">
@@ -122,22 +168,14 @@ const OrdersPage = () => {
                 onChange={(e) => setFiltroEstado(e.target.value)}
                 className="px-4 py-2 border border-slate-200 rounded-xl focus:outline-none focus:ring-2 focus:ring-purple-500"
               >
-                <option value="TODOS">Todos ({pedidos.length})</option>
-                <option value="PENDIENTE">
-                  Pendientes ({pedidos.filter(p => p.estado === 'PENDIENTE').length})
-                </option>
-                <option value="PROCESANDO">
-                  Procesando ({pedidos.filter(p => p.estado === 'PROCESANDO').length})
-                </option>
-                <option value="ENVIADO">
-                  Enviados ({pedidos.filter(p => p.estado === 'ENVIADO').length})
-                </option>
-                <option value="ENTREGADO">
-                  Entregados ({pedidos.filter(p => p.estado === 'ENTREGADO').length})
-                </option>
-                <option value="CANCELADO">
-                  Cancelados ({pedidos.filter(p => p.estado === 'CANCELADO').length})
+                <option value="TODOS">
+                  Todos{estadisticas ? ` (${estadisticas.totalPedidos || 0})` : ''}
                 </option>
+                <option value="PENDIENTE">Pendientes{cantidadEstado('PENDIENTE')}</option>
+                <option value="PROCESANDO">Procesando{cantidadEstado('PROCESANDO')}</option>
+                <option value="ENVIADO">Enviados{cantidadEstado('ENVIADO')}</option>
+                <option value="ENTREGADO">Entregados{cantidadEstado('ENTREGADO')}</option>
+                <option value="CANCELADO">Cancelados{cantidadEstado('CANCELADO')}</option>
               </select>
             </div>
 
@@ -181,9 +219,9 @@ const OrdersPage = () => {
         {/* Lista de Pedidos */}
         {!loading && !error && (
           <>
-            {pedidosFiltrados.length > 0 ? (
+            {pedidos.length > 0 ? (
               <div className="grid grid-cols-1 gap-6">
-                {pedidosFiltrados.map((pedido) => (
+                {pedidos.map((pedido) => (
                   <OrderCard
                     key={pedido.id}
                     pedido={pedido}
@@ -217,6 +255,18 @@ const OrdersPage = () => {
                 )}
               </div>
             )}
+
+            {siguienteCursor && (
+              <div className="text-center mt-8">
+                <button
+                  onClick={cargarMas}
+                  disabled={cargandoMas}
+                  className="px-6 py-2 bg-purple-50 text-purple-600 font-semibold rounded-xl hover:bg-purple-100 transition disabled:opacity-50"
+                >
+                  {cargandoMas ? 'Cargando...' : 'Cargar más pedidos'}
+                </button>
+              </div>
+            )}
           </>
         )}
       </div>
@@ -17,11 +17,16 @@ const orderService = {
   },
 
   /**
-   * Obtener mis pedidos (historial del usuario)
+   * Obtener mis pedidos (historial del usuario), por páginas, opcionalmente de un solo estado.
+   * Sin cursor devuelve la primera; la respuesta trae siguienteCursor si hay más.
+   * El cursor solo vale para el mismo estado con el que se pidió la página
    */
-  obtenerMisPedidos: async () => {
+  obtenerMisPedidos: async (cursor = null, estado = null) => {
     try {
-      const response = await axios.get(`${API_URL}/pedidos/mis-pedidos`);
+      const params = {};
+      if (cursor) params.cursor = cursor;
+      if (estado) params.estado = estado;
+      const response = await axios.get(`${API_URL}/pedidos/mis-pedidos`, { params });
       return response.data;
     } catch (error) {
       console.error('Error obteniendo pedidos:', error);
@@ -69,11 +74,13 @@ const orderService = {
   },
 
   /**
-   * Obtener todos los pedidos (admin)
+   * Obtener todos los pedidos (admin), por páginas
    */
-  obtenerTodosPedidos: async () => {
+  obtenerTodosPedidos: async (cursor = null) => {
     try {
-      const response = await axios.get(`${API_URL}/pedidos`);
+      const response = await axios.get(`${API_URL}/pedidos`, {
+        params: cursor ? { cursor } : {}
+      });
       return response.data;
     } catch (error) {
       console.error('Error obteniendo todos los pedidos:', error);